@@ -0,0 +1,114 @@
+package rodionova.dev.reservation_system.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import rodionova.dev.reservation_system.reservations.ReservationService;
+import rodionova.dev.reservation_system.reservations.ReservationStatus;
+import rodionova.dev.reservation_system.reservations.approval.ApprovalQueue;
+import rodionova.dev.reservation_system.reservations.approval.ApprovalState;
+import rodionova.dev.reservation_system.reservations.approval.ApprovalTicket;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A burst of approvals for a few popular rooms: {@code ReservationService.approveReservation} on the caller's
+ * thread versus the approval queue, waiting for the queued outcome. Every invocation approves a fresh PENDING
+ * reservation of overlapping short stays, so most of them end as conflicts once the calendars fill up. Sample
+ * time reports the latency percentiles a caller sees, p99 included.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(32)
+@Fork(1)
+public class ApprovalPipelineBenchmark {
+
+    private static final int PENDING_PER_ITERATION = 100_000;
+
+    @Param({"sync", "queue"})
+    public String mode;
+
+    @Param({"4", "64"})
+    public int rooms;
+
+    private ConfigurableApplicationContext context;
+
+    private ReservationService reservationService;
+
+    private ApprovalQueue approvalQueue;
+
+    private final AtomicLong nextId = new AtomicLong(1);
+
+    private long seededUpTo;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("reservation.approval.queue.enabled=" + mode.equals("queue"));
+        reservationService = context.getBean(ReservationService.class);
+        approvalQueue = context.getBean(ApprovalQueue.class);
+    }
+
+    /**
+     * Fresh ids every iteration, so no cached copy of an approved row makes the next iteration cheaper.
+     */
+    @Setup(Level.Iteration)
+    public void seedPending() {
+        var random = new Random(seededUpTo);
+        var rows = new ArrayList<Object[]>(PENDING_PER_ITERATION);
+        for (int i = 0; i < PENDING_PER_ITERATION; i++) {
+            long id = seededUpTo + i + 1;
+            LocalDate startDate = BenchmarkApplication.FIRST_DAY.plusDays(random.nextInt(365));
+            rows.add(new Object[]{id, id % 5000 + 1, id % rooms + 1, Date.valueOf(startDate),
+                    Date.valueOf(startDate.plusDays(random.nextInt(1, 5))), ReservationStatus.PENDING.name()});
+        }
+        context.getBean(JdbcTemplate.class).batchUpdate("""
+                INSERT INTO reservations (id, user_id, room_id, start_date, end_date, reservation_status, version)
+                VALUES (?, ?, ?, ?, ?, ?, 0)
+                """, rows);
+        nextId.set(seededUpTo + 1);
+        seededUpTo += PENDING_PER_ITERATION;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public ApprovalState approve() {
+        long id = nextId.getAndIncrement();
+        if (mode.equals("sync")) {
+            try {
+                reservationService.approveReservation(id, null);
+                return ApprovalState.APPROVED;
+            } catch (IllegalArgumentException e) {
+                return ApprovalState.REJECTED;
+            }
+        }
+        var outcome = new CompletableFuture<ApprovalTicket>();
+        approvalQueue.submit(id, null, outcome::complete);
+        return outcome.join().state();
+    }
+}
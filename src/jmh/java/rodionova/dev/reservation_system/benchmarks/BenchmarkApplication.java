@@ -0,0 +1,82 @@
+package rodionova.dev.reservation_system.benchmarks;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import rodionova.dev.reservation_system.ReservationSystemApplication;
+import rodionova.dev.reservation_system.reservations.ReservationStatus;
+
+import java.nio.file.Path;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Boots the application against an in-memory H2 database in PostgreSQL mode and seeds the reservations table.
+ */
+final class BenchmarkApplication {
+
+    static final LocalDate FIRST_DAY = LocalDate.of(2030, 1, 1);
+
+    static final int RESERVATIONS_PER_ROOM = 100;
+
+    private BenchmarkApplication() {
+    }
+
+    static ConfigurableApplicationContext start(String... extraProperties) {
+        var properties = new LinkedHashMap<String, String>();
+        Stream.concat(Stream.of(
+                        "spring.main.web-application-type=none",
+                        "spring.main.banner-mode=off",
+                        "logging.level.root=WARN",
+                        // The relay row is not an entity, ddl-auto leaves it out; the index warm-up reads it
+                        "spring.datasource.url=jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1"
+                                + ";INIT=CREATE TABLE IF NOT EXISTS reservation_outbox_relay"
+                                + " (id integer PRIMARY KEY, last_position bigint NOT NULL)"
+                                + "\\;MERGE INTO reservation_outbox_relay KEY (id) VALUES (1, 0)",
+                        "reservation.availability.in-memory-index.snapshot.path="
+                                + Path.of(System.getProperty("java.io.tmpdir"), "availability-index-" + UUID.randomUUID() + ".bin"),
+                        "spring.jpa.hibernate.ddl-auto=create-drop",
+                        "spring.flyway.enabled=false",
+                        "reservation.archive.enabled=false",
+                        "reservation.expiry.enabled=false",
+                        "reservation.outbox.relay.enabled=false",
+                        "reservation.approval.advisory-locks.enabled=false"),
+                Stream.of(extraProperties))
+                .map(property -> property.split("=", 2))
+                .forEach(property -> properties.put(property[0], property[1]));
+        // Passed as command line arguments so they take precedence over application.properties
+        return new SpringApplicationBuilder(ReservationSystemApplication.class)
+                .run(properties.entrySet().stream()
+                        .map(property -> "--" + property.getKey() + "=" + property.getValue())
+                        .toArray(String[]::new));
+    }
+
+    static int roomCount(int tableSize) {
+        return Math.max(1, tableSize / RESERVATIONS_PER_ROOM);
+    }
+
+    /**
+     * Every room gets a run of one-week stays separated by a free day; every tenth row is PENDING.
+     */
+    static void seed(ConfigurableApplicationContext context, int tableSize) {
+        var jdbcTemplate = context.getBean(JdbcTemplate.class);
+        int rooms = roomCount(tableSize);
+        var rows = new ArrayList<Object[]>(tableSize);
+        for (int i = 0; i < tableSize; i++) {
+            long roomId = i % rooms + 1;
+            int slot = i / rooms;
+            LocalDate startDate = FIRST_DAY.plusDays(slot * 8L);
+            var status = i % 10 == 0 ? ReservationStatus.PENDING : ReservationStatus.APPROVED;
+            rows.add(new Object[]{i + 1L, i % 5000 + 1L, roomId,
+                    Date.valueOf(startDate), Date.valueOf(startDate.plusDays(6)), status.name()});
+        }
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO reservations (id, user_id, room_id, start_date, end_date, reservation_status, version)
+                VALUES (?, ?, ?, ?, ?, ?, 0)
+                """, rows);
+    }
+}
@@ -0,0 +1,103 @@
+package rodionova.dev.reservation_system.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import rodionova.dev.reservation_system.reservations.Reservation;
+import rodionova.dev.reservation_system.reservations.ReservationService;
+import rodionova.dev.reservation_system.reservations.ReservationStatus;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Booking groupSize rooms for the same nights: one {@code createGroupReservation} call versus a create and an
+ * approve per room, which is what a client had to do before. Average time per group; the group call should grow
+ * well below linearly with groupSize.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GroupReservationBenchmark {
+
+    private static final int ROOMS = 1000;
+
+    private static final int STAYS_PER_ROOM = 100;
+
+    // Above the ids the sequence hands out during a run
+    private static final long SEEDED_FIRST_ID = 1_000_000_000L;
+
+    @Param({"1", "10", "100"})
+    public int groupSize;
+
+    @Param({"group", "separate"})
+    public String mode;
+
+    private ConfigurableApplicationContext context;
+
+    private ReservationService reservationService;
+
+    private long nextSlot;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        reservationService = context.getBean(ReservationService.class);
+        var rows = new ArrayList<Object[]>(ROOMS * STAYS_PER_ROOM);
+        for (int slot = 0; slot < STAYS_PER_ROOM; slot++) {
+            LocalDate startDate = BenchmarkApplication.FIRST_DAY.plusDays(slot * 4L);
+            for (long roomId = 1; roomId <= ROOMS; roomId++) {
+                rows.add(new Object[]{SEEDED_FIRST_ID + rows.size(), roomId % 5000 + 1, roomId,
+                        Date.valueOf(startDate), Date.valueOf(startDate.plusDays(2)), ReservationStatus.APPROVED.name()});
+            }
+        }
+        context.getBean(JdbcTemplate.class).batchUpdate("""
+                INSERT INTO reservations (id, user_id, room_id, start_date, end_date, reservation_status, version)
+                VALUES (?, ?, ?, ?, ?, ?, 0)
+                """, rows);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * Every group takes the next free nights after the seeded stays, so none of them conflicts.
+     */
+    @Benchmark
+    public List<Reservation> book() {
+        LocalDate startDate = BenchmarkApplication.FIRST_DAY.plusDays(STAYS_PER_ROOM * 4L + nextSlot++ * 4);
+        var group = new ArrayList<Reservation>(groupSize);
+        for (long roomId = 1; roomId <= groupSize; roomId++) {
+            group.add(new Reservation(null, 1L, roomId * (ROOMS / groupSize), startDate, startDate.plusDays(2), null, null));
+        }
+        if (mode.equals("group")) {
+            return reservationService.createGroupReservation(group);
+        }
+        var approved = new ArrayList<Reservation>(groupSize);
+        for (Reservation reservation : group) {
+            var created = reservationService.createReservation(reservation);
+            approved.add(reservationService.approveReservation(created.id(), created.version()));
+        }
+        return approved;
+    }
+}
@@ -0,0 +1,69 @@
+package rodionova.dev.reservation_system.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import rodionova.dev.reservation_system.reservations.availability.ReservationAvalabilityService;
+import rodionova.dev.reservation_system.reservations.availability.RoomAvailabilityIndexLoader;
+
+import java.time.LocalDate;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReservationAvailabilityBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int tableSize;
+
+    @Param({"false", "true"})
+    public boolean inMemoryIndex;
+
+    private ConfigurableApplicationContext context;
+
+    private ReservationAvalabilityService availabilityService;
+
+    private int rooms;
+
+    private int days;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("reservation.availability.in-memory-index.enabled=" + inMemoryIndex);
+        BenchmarkApplication.seed(context, tableSize);
+        availabilityService = context.getBean(ReservationAvalabilityService.class);
+        // The index was warmed on an empty table at startup and the seed bypasses the outbox, rebuild it from the rows
+        context.getBeanProvider(RoomAvailabilityIndexLoader.class).ifAvailable(RoomAvailabilityIndexLoader::reloadFromStore);
+        rooms = BenchmarkApplication.roomCount(tableSize);
+        days = BenchmarkApplication.RESERVATIONS_PER_ROOM * 8;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public boolean isReservationAvailable() {
+        var random = ThreadLocalRandom.current();
+        LocalDate startDate = BenchmarkApplication.FIRST_DAY.plusDays(random.nextInt(days));
+        return availabilityService.isReservationAvailable(
+                random.nextLong(rooms) + 1, startDate, startDate.plusDays(random.nextInt(1, 4)));
+    }
+}
@@ -0,0 +1,64 @@
+package rodionova.dev.reservation_system.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import rodionova.dev.reservation_system.reservations.Reservation;
+import rodionova.dev.reservation_system.reservations.ReservationStatus;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReservationJsonBenchmark {
+
+    @Param({"1", "100"})
+    public int listSize;
+
+    private ObjectWriter writer;
+
+    private Reservation reservation;
+
+    private List<Reservation> reservations;
+
+    @Setup
+    public void setUp() {
+        // Same builder Spring Boot uses for its ObjectMapper: JavaTimeModule, ISO dates
+        writer = Jackson2ObjectMapperBuilder.json().build().writer();
+        reservation = new Reservation(42L, 7L, 3L,
+                LocalDate.of(2030, 5, 1), LocalDate.of(2030, 5, 8), ReservationStatus.APPROVED, 3L);
+        reservations = new ArrayList<>(listSize);
+        for (long i = 0; i < listSize; i++) {
+            reservations.add(new Reservation(i, 7L, i % 20, LocalDate.of(2030, 5, 1).plusDays(i),
+                    LocalDate.of(2030, 5, 8).plusDays(i), ReservationStatus.APPROVED, 1L));
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeReservation() throws JsonProcessingException {
+        return writer.writeValueAsBytes(reservation);
+    }
+
+    @Benchmark
+    public byte[] serializeReservationList() throws JsonProcessingException {
+        return writer.writeValueAsBytes(reservations);
+    }
+}
@@ -0,0 +1,52 @@
+package rodionova.dev.reservation_system.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import rodionova.dev.reservation_system.reservations.Reservation;
+import rodionova.dev.reservation_system.reservations.ReservationEntity;
+import rodionova.dev.reservation_system.reservations.ReservationMapper;
+import rodionova.dev.reservation_system.reservations.ReservationStatus;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReservationMapperBenchmark {
+
+    private final ReservationMapper reservationMapper = new ReservationMapper();
+
+    private ReservationEntity entity;
+
+    private Reservation reservation;
+
+    @Setup
+    public void setUp() {
+        entity = new ReservationEntity(42L, 7L, 3L,
+                LocalDate.of(2030, 5, 1), LocalDate.of(2030, 5, 8), ReservationStatus.APPROVED);
+        reservation = new Reservation(null, 7L, 3L,
+                LocalDate.of(2030, 5, 1), LocalDate.of(2030, 5, 8), null, null);
+    }
+
+    @Benchmark
+    public Reservation toDomainReservation() {
+        return reservationMapper.toDomainReservation(entity);
+    }
+
+    @Benchmark
+    public ReservationEntity toDomainEntity() {
+        return reservationMapper.toDomainEntity(reservation);
+    }
+}
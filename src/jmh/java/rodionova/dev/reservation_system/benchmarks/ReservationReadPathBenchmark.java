@@ -0,0 +1,121 @@
+package rodionova.dev.reservation_system.benchmarks;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import rodionova.dev.reservation_system.reservations.Reservation;
+import rodionova.dev.reservation_system.reservations.ReservationEntity;
+import rodionova.dev.reservation_system.reservations.ReservationMapper;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entity-plus-mapper reads against constructor-expression projections, through the same EntityManager, so only
+ * hydration differs. The allocation comparison is {@code gc.alloc.rate.norm} from the default {@code -prof gc}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReservationReadPathBenchmark {
+
+    private static final int PAGE_SIZE = 50;
+
+    @Param({"10000"})
+    public int tableSize;
+
+    private ConfigurableApplicationContext context;
+
+    private ReservationMapper reservationMapper;
+
+    private EntityManager entityManager;
+
+    private int rooms;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        BenchmarkApplication.seed(context, tableSize);
+        reservationMapper = context.getBean(ReservationMapper.class);
+        entityManager = SharedEntityManagerCreator.createSharedEntityManager(
+                context.getBean(EntityManagerFactory.class));
+        rooms = BenchmarkApplication.roomCount(tableSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Reservation> searchPageEntities() {
+        return entityManager.createQuery("""
+                        SELECT r FROM ReservationEntity r
+                        WHERE r.roomId = :roomId
+                        AND r.id > 0
+                        ORDER BY r.id
+                        """, ReservationEntity.class)
+                .setParameter("roomId", randomRoomId())
+                .setMaxResults(PAGE_SIZE)
+                .getResultList()
+                .stream()
+                .map(reservationMapper::toDomainReservation)
+                .toList();
+    }
+
+    @Benchmark
+    public List<Reservation> searchPageProjection() {
+        return entityManager.createQuery("""
+                        SELECT new rodionova.dev.reservation_system.reservations.Reservation(r.id, r.userId, r.roomId, r.startDate, r.endDate, r.status, r.version)
+                        FROM ReservationEntity r
+                        WHERE r.roomId = :roomId
+                        AND r.id > 0
+                        ORDER BY r.id
+                        """, Reservation.class)
+                .setParameter("roomId", randomRoomId())
+                .setMaxResults(PAGE_SIZE)
+                .getResultList();
+    }
+
+    @Benchmark
+    public Reservation getByIdEntity() {
+        return reservationMapper.toDomainReservation(entityManager.find(ReservationEntity.class, randomId()));
+    }
+
+    @Benchmark
+    public Reservation getByIdProjection() {
+        return entityManager.createQuery("""
+                        SELECT new rodionova.dev.reservation_system.reservations.Reservation(r.id, r.userId, r.roomId, r.startDate, r.endDate, r.status, r.version)
+                        FROM ReservationEntity r
+                        WHERE r.id = :id
+                        """, Reservation.class)
+                .setParameter("id", randomId())
+                .getSingleResult();
+    }
+
+    private long randomRoomId() {
+        return ThreadLocalRandom.current().nextLong(rooms) + 1;
+    }
+
+    private long randomId() {
+        return ThreadLocalRandom.current().nextLong(tableSize) + 1;
+    }
+}
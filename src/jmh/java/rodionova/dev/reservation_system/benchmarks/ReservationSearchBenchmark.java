@@ -0,0 +1,73 @@
+package rodionova.dev.reservation_system.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import rodionova.dev.reservation_system.reservations.ReservationPage;
+import rodionova.dev.reservation_system.reservations.ReservationSearchFilter;
+import rodionova.dev.reservation_system.reservations.ReservationService;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReservationSearchBenchmark {
+
+    private static final int PAGE_SIZE = 50;
+
+    @Param({"1000", "10000", "100000"})
+    public int tableSize;
+
+    private ConfigurableApplicationContext context;
+
+    private ReservationService reservationService;
+
+    private int rooms;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        BenchmarkApplication.seed(context, tableSize);
+        reservationService = context.getBean(ReservationService.class);
+        rooms = BenchmarkApplication.roomCount(tableSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public ReservationPage firstPageByRoom() {
+        long roomId = ThreadLocalRandom.current().nextLong(rooms) + 1;
+        return reservationService.searchAllByFilter(new ReservationSearchFilter(roomId, null, PAGE_SIZE, null, null));
+    }
+
+    @Benchmark
+    public ReservationPage deepOffsetPage() {
+        int lastPage = Math.max(0, tableSize / PAGE_SIZE - 1);
+        return reservationService.searchAllByFilter(new ReservationSearchFilter(null, null, PAGE_SIZE, lastPage, null));
+    }
+
+    @Benchmark
+    public ReservationPage deepKeysetPage() {
+        long afterId = Math.max(0, tableSize - PAGE_SIZE);
+        return reservationService.searchAllByFilter(new ReservationSearchFilter(null, null, PAGE_SIZE, null, afterId));
+    }
+}
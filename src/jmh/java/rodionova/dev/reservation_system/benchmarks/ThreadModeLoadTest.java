@@ -0,0 +1,128 @@
+package rodionova.dev.reservation_system.benchmarks;
+
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Closed-loop load test of the availability check with platform threads versus virtual threads.
+ * <p>
+ * {@code mvn -Pbenchmarks test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=rodionova.dev.reservation_system.benchmarks.ThreadModeLoadTest}
+ * <p>
+ * By default both modes are booted in turn against the H2 stand-in. Pass {@code -Dloadtest.baseUrl=http://host:port}
+ * to drive an already running instance (for example one started with and without the virtual-threads profile
+ * against a real Postgres), {@code -Dloadtest.clients} and {@code -Dloadtest.seconds} to change the load.
+ * <p>
+ * Both booted modes get the same fixed connection pool of {@code -Dloadtest.poolSize} connections, by default the
+ * profile's 50, so the comparison measures the thread model rather than the pool size.
+ */
+public class ThreadModeLoadTest {
+
+    private static final int TABLE_SIZE = 10_000;
+
+    public static void main(String[] args) throws Exception {
+        int clients = Integer.getInteger("loadtest.clients", 1000);
+        int seconds = Integer.getInteger("loadtest.seconds", 20);
+        int poolSize = Integer.getInteger("loadtest.poolSize", 50);
+        String baseUrl = System.getProperty("loadtest.baseUrl");
+
+        if (baseUrl != null) {
+            run("external", baseUrl, clients, seconds, BenchmarkApplication.roomCount(TABLE_SIZE)).print();
+            return;
+        }
+        var results = new ArrayList<Result>();
+        for (boolean virtualThreads : new boolean[]{false, true}) {
+            try (ConfigurableApplicationContext context = BenchmarkApplication.start(
+                    "spring.main.web-application-type=servlet",
+                    "server.port=0",
+                    "reservation.ratelimit.enabled=false",
+                    "spring.datasource.hikari.maximum-pool-size=" + poolSize,
+                    "spring.datasource.hikari.minimum-idle=" + poolSize,
+                    "spring.profiles.active=" + (virtualThreads ? "virtual-threads" : "default"))) {
+                BenchmarkApplication.seed(context, TABLE_SIZE);
+                int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+                String mode = virtualThreads ? "virtual threads" : "platform threads";
+                results.add(run(mode, "http://localhost:" + port, clients, seconds,
+                        BenchmarkApplication.roomCount(TABLE_SIZE)));
+            }
+        }
+        results.forEach(Result::print);
+    }
+
+    private static Result run(String mode, String baseUrl, int clients, int seconds, int rooms) throws Exception {
+        var httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+        var errors = new AtomicLong();
+        var requests = new AtomicLong();
+        // Latency histogram with 0.1 ms buckets up to 10 s
+        var histogram = new AtomicLongArray(100_001);
+
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int client = 0; client < clients; client++) {
+                executor.submit(() -> {
+                    var random = ThreadLocalRandom.current();
+                    while (System.nanoTime() < deadline) {
+                        LocalDate startDate = BenchmarkApplication.FIRST_DAY.plusDays(random.nextInt(800));
+                        var request = HttpRequest.newBuilder(URI.create(baseUrl
+                                        + "/api/reservations/availability/check?roomId=" + (random.nextInt(rooms) + 1)
+                                        + "&startDate=" + startDate + "&endDate=" + startDate.plusDays(2)))
+                                .POST(HttpRequest.BodyPublishers.noBody())
+                                .build();
+                        long started = System.nanoTime();
+                        try {
+                            var response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() != 200) {
+                                errors.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                        }
+                        long bucket = (System.nanoTime() - started) / 100_000;
+                        histogram.incrementAndGet((int) Math.min(bucket, histogram.length() - 1));
+                        requests.incrementAndGet();
+                    }
+                    return null;
+                });
+            }
+        }
+
+        return new Result(mode, clients, requests.get() / (double) seconds, errors.get(),
+                percentileMillis(histogram, requests.get(), 0.50), percentileMillis(histogram, requests.get(), 0.99));
+    }
+
+    private static double percentileMillis(AtomicLongArray histogram, long total, double percentile) {
+        long rank = (long) Math.ceil(percentile * total);
+        long seen = 0;
+        for (int bucket = 0; bucket < histogram.length(); bucket++) {
+            seen += histogram.get(bucket);
+            if (seen >= rank) {
+                return bucket / 10.0;
+            }
+        }
+        return histogram.length() / 10.0;
+    }
+
+    private record Result(String mode, int clients, double throughput, long errors, double p50, double p99) {
+
+        void print() {
+            System.out.printf("%-16s clients=%d throughput=%.0f req/s errors=%d p50=%.1f ms p99=%.1f ms%n",
+                    mode, clients, throughput, errors, p50, p99);
+        }
+    }
+}
@@ -24,7 +24,10 @@ public record Reservation(
         @NotNull
         LocalDate endDate,
 
-        ReservationStatus status
+        ReservationStatus status,
+
+        @Null
+        Long version
 ) {
 
 
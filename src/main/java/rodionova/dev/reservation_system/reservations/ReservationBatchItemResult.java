@@ -0,0 +1,16 @@
+package rodionova.dev.reservation_system.reservations;
+
+public record ReservationBatchItemResult(
+        int index,
+        Reservation reservation,
+        String error
+) {
+
+    public static ReservationBatchItemResult success(int index, Reservation reservation) {
+        return new ReservationBatchItemResult(index, reservation, null);
+    }
+
+    public static ReservationBatchItemResult failure(int index, String error) {
+        return new ReservationBatchItemResult(index, null, error);
+    }
+}
@@ -1,8 +1,10 @@
 package rodionova.dev.reservation_system.reservations;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -11,30 +13,55 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.RestController;
+import rodionova.dev.reservation_system.reservations.approval.ApprovalCallbacks;
+import rodionova.dev.reservation_system.reservations.approval.ApprovalQueue;
+import rodionova.dev.reservation_system.reservations.approval.ApprovalTicket;
+import rodionova.dev.reservation_system.reservations.idempotency.IdempotentRequests;
 
+import java.net.URI;
 import java.util.List;
 
 @RestController
 @RequestMapping("/reservation")
 public class ReservationController {
 
-    Logger log = LoggerFactory.getLogger(ReservationController.class);
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private static final Logger log = LoggerFactory.getLogger(ReservationController.class);
+
+    private static final TypeReference<List<Reservation>> RESERVATION_LIST = new TypeReference<>() {
+    };
 
     private final ReservationService reservationService;
 
-    public ReservationController(ReservationService reservationService) {
+    private final IdempotentRequests idempotentRequests;
+
+    private final ApprovalQueue approvalQueue;
+
+    private final ApprovalCallbacks approvalCallbacks;
+
+    public ReservationController(ReservationService reservationService,
+                                 IdempotentRequests idempotentRequests,
+                                 ApprovalQueue approvalQueue,
+                                 ApprovalCallbacks approvalCallbacks) {
         this.reservationService = reservationService;
+        this.idempotentRequests = idempotentRequests;
+        this.approvalQueue = approvalQueue;
+        this.approvalCallbacks = approvalCallbacks;
     }
 
     @GetMapping("/{id}")
     public ResponseEntity<Reservation> getReservationById(@PathVariable Long id) {
-        log.info("Called the getReservationById method. Get reservation by id= " + id);
+        log.debug("Called the getReservationById method. Get reservation by id= {}", id);
+        var reservation = reservationService.getReservationById(id);
         return ResponseEntity.status(HttpStatus.OK)
-                .body(reservationService.getReservationById(id));
+                .eTag(ReservationETags.of(reservation))
+                .body(reservation);
     }
 
     @GetMapping
@@ -42,37 +69,76 @@ public class ReservationController {
             @RequestParam(value = "roomId", required = false) Long roomId,
             @RequestParam(value = "userId", required = false) Long userId,
             @RequestParam(value = "pageSize", required = false) Integer pageSize,
-            @RequestParam(value = "pageNumber", required = false) Integer pageNumber
+            @RequestParam(value = "pageNumber", required = false) Integer pageNumber,
+            @RequestParam(value = "after", required = false) Long after
     ) {
-        log.info("Called the getAllReservations method");
-        var filter= new ReservationSearchFilter(roomId, userId, pageSize, pageNumber);
-        return ResponseEntity.ok(reservationService.searchAllByFilter(filter));
+        log.debug("Called the getAllReservations method");
+        var filter= new ReservationSearchFilter(roomId, userId, pageSize, pageNumber, after);
+        var page = reservationService.searchAllByFilter(filter);
+        var response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor().toString());
+        }
+        return response.body(page.reservations());
     }
 
     @PostMapping
-    public ResponseEntity<Reservation> createReservation(@RequestBody @Valid Reservation reservationToCreate) {
-        log.info("Called the createReservation method. Create reservation: " + reservationToCreate);
-        return ResponseEntity
-                .status(HttpStatus.CREATED)
-                .header("test-header", "123")
-                .body(reservationService.createReservation(reservationToCreate));
+    public ResponseEntity<Reservation> createReservation(
+            @RequestBody @Valid Reservation reservationToCreate,
+            @RequestHeader(value = IdempotentRequests.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey
+    ) {
+        log.debug("Called the createReservation method. Create reservation: {}", reservationToCreate);
+        return idempotentRequests.execute(idempotencyKey, "create", reservationToCreate, Reservation.class, () -> {
+            var created = reservationService.createReservation(reservationToCreate);
+            return ResponseEntity
+                    .status(HttpStatus.CREATED)
+                    .header("test-header", "123")
+                    .eTag(ReservationETags.of(created))
+                    .body(created);
+        });
+    }
+
+    @PostMapping("/batch")
+    public ResponseEntity<List<ReservationBatchItemResult>> createReservations(
+            @RequestBody List<Reservation> reservationsToCreate
+    ) {
+        log.debug("Called the createReservations method. Batch size= {}", reservationsToCreate.size());
+        return ResponseEntity.ok(reservationService.createReservations(reservationsToCreate));
+    }
+
+    /**
+     * All or nothing: 201 with every reservation APPROVED, or 400 naming the items that conflict.
+     */
+    @PostMapping("/group")
+    public ResponseEntity<List<Reservation>> createGroupReservation(
+            @RequestBody List<Reservation> reservationsToCreate,
+            @RequestHeader(value = IdempotentRequests.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey
+    ) {
+        log.debug("Called the createGroupReservation method. Group size= {}", reservationsToCreate.size());
+        return idempotentRequests.execute(idempotencyKey, "create-group", reservationsToCreate, RESERVATION_LIST,
+                () -> ResponseEntity.status(HttpStatus.CREATED)
+                        .body(reservationService.createGroupReservation(reservationsToCreate)));
     }
 
     @PutMapping("/{id}")
     public ResponseEntity<Reservation> updateReservation(
             @PathVariable("id") Long id,
-            @RequestBody @Valid Reservation reservationToUpdate
+            @RequestBody @Valid Reservation reservationToUpdate,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch
     ) {
-        log.info("Called the updateReservation method. Update reservation= {}, id = {}",
-                reservationToUpdate, reservationToUpdate.id());
-        var updated = reservationService.updateReservation(id, reservationToUpdate);
-        return ResponseEntity.ok(updated);
+        log.debug("Called the updateReservation method. Update reservation= {}, id = {}",
+                reservationToUpdate, id);
+        var updated = reservationService.updateReservation(
+                id, reservationToUpdate, ReservationETags.expectedVersion(ifMatch));
+        return ResponseEntity.ok()
+                .eTag(ReservationETags.of(updated))
+                .body(updated);
     }
 
     @ResponseBody
     @DeleteMapping("/{id}")
     public ResponseEntity deleteReservation(@PathVariable Long id) {
-        log.info("Called the deleteReservation method. Delete reservation by id= " + id);
+        log.debug("Called the deleteReservation method. Delete reservation by id= {}", id);
         reservationService.deleteReservation(id);
         return ResponseEntity
                 .status(HttpStatus.NO_CONTENT)
@@ -80,17 +146,57 @@ public class ReservationController {
     }
 
     @PostMapping("{id}/cancel")
-    public ResponseEntity cancelReservation(@PathVariable Long id) {
-        log.info("Called the cancelReservation method. Cancel reservation by id= " + id);
-        log.info("Reservation is cancelled");
-        return ResponseEntity.status(HttpStatus.OK)
-                .body(reservationService.cancelReservation(id));
+    public ResponseEntity<Reservation> cancelReservation(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestHeader(value = IdempotentRequests.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey
+    ) {
+        log.debug("Called the cancelReservation method. Cancel reservation by id= {}", id);
+        var expectedVersion = ReservationETags.expectedVersion(ifMatch);
+        return idempotentRequests.execute(idempotencyKey, "cancel", List.of(id, String.valueOf(expectedVersion)),
+                Reservation.class, () -> {
+                    var cancelled = reservationService.cancelReservation(id, expectedVersion);
+                    return ResponseEntity.status(HttpStatus.OK)
+                            .eTag(ReservationETags.of(cancelled))
+                            .body(cancelled);
+                });
     }
 
+    /**
+     * With the approval queue enabled, answers 202 with a ticket to poll at its Location instead of approving.
+     */
     @PostMapping("/{id}/approve")
-    public ResponseEntity<Reservation> approveReservation(@PathVariable Long id) {
-        log.info("Called the approveReservation method. Approve reservation by id= " + id);
-        var reservationToApprove = reservationService.approveReservation(id);
-        return ResponseEntity.ok(reservationToApprove);
+    public ResponseEntity<?> approveReservation(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestHeader(value = IdempotentRequests.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            @RequestParam(value = "callbackUrl", required = false) String callbackUrl
+    ) {
+        log.debug("Called the approveReservation method. Approve reservation by id= {}", id);
+        var expectedVersion = ReservationETags.expectedVersion(ifMatch);
+        if (approvalQueue.isEnabled()) {
+            var callback = approvalCallbacks.to(callbackUrl);
+            return idempotentRequests.execute(idempotencyKey, "approve-queued",
+                    List.of(id, String.valueOf(expectedVersion), String.valueOf(callbackUrl)),
+                    ApprovalTicket.class, () -> {
+                        var ticket = approvalQueue.submit(id, expectedVersion, callback);
+                        return ResponseEntity.accepted()
+                                .location(URI.create("/reservation/approvals/" + ticket.trackingId()))
+                                .body(ticket);
+                    });
+        }
+        return idempotentRequests.execute(idempotencyKey, "approve", List.of(id, String.valueOf(expectedVersion)),
+                Reservation.class, () -> {
+                    var reservationToApprove = reservationService.approveReservation(id, expectedVersion);
+                    return ResponseEntity.ok()
+                            .eTag(ReservationETags.of(reservationToApprove))
+                            .body(reservationToApprove);
+                });
+    }
+
+    @PostMapping("/approve-batch")
+    public ResponseEntity<List<ReservationBatchItemResult>> approveReservations(@RequestBody List<Long> ids) {
+        log.debug("Called the approveReservations method. Batch size= {}", ids.size());
+        return ResponseEntity.ok(reservationService.approveReservations(ids));
     }
 }
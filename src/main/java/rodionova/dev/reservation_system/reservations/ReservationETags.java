@@ -0,0 +1,32 @@
+package rodionova.dev.reservation_system.reservations;
+
+/**
+ * Strong ETags of the form {@code "<version>"}.
+ */
+final class ReservationETags {
+
+    private ReservationETags() {
+    }
+
+    static String of(Reservation reservation) {
+        return "\"" + reservation.version() + "\"";
+    }
+
+    /**
+     * Returns the version an {@code If-Match} header requires, or null when it is absent or {@code *}.
+     */
+    static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.strip().equals("*")) {
+            return null;
+        }
+        var value = ifMatch.strip();
+        if (value.length() < 3 || !value.startsWith("\"") || !value.endsWith("\"")) {
+            throw new IllegalArgumentException("If-Match should hold a single strong ETag returned by this API");
+        }
+        try {
+            return Long.parseLong(value.substring(1, value.length() - 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("If-Match should hold a single strong ETag returned by this API");
+        }
+    }
+}
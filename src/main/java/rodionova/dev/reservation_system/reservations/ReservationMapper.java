@@ -12,7 +12,8 @@ public class ReservationMapper {
                 reservationEntity.getRoomId(),
                 reservationEntity.getStartDate(),
                 reservationEntity.getEndDate(),
-                reservationEntity.getStatus()
+                reservationEntity.getStatus(),
+                reservationEntity.getVersion()
         );
     }
     public ReservationEntity toDomainEntity(Reservation reservation) {
@@ -0,0 +1,123 @@
+package rodionova.dev.reservation_system.reservations;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+@Component
+public class ReservationMetrics {
+
+    public static final String SOURCE_INDEX = "index";
+    public static final String SOURCE_DATABASE = "database";
+
+    private final MeterRegistry meterRegistry;
+
+    private final Counter indexAvailable;
+    private final Counter indexConflict;
+    private final Counter databaseAvailable;
+    private final Counter databaseConflict;
+
+    public ReservationMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.indexAvailable = availabilityCounter(SOURCE_INDEX, "available");
+        this.indexConflict = availabilityCounter(SOURCE_INDEX, "conflict");
+        this.databaseAvailable = availabilityCounter(SOURCE_DATABASE, "available");
+        this.databaseConflict = availabilityCounter(SOURCE_DATABASE, "conflict");
+    }
+
+    public void recordAvailabilityCheck(String source, boolean available) {
+        if (SOURCE_INDEX.equals(source)) {
+            (available ? indexAvailable : indexConflict).increment();
+        } else {
+            (available ? databaseAvailable : databaseConflict).increment();
+        }
+    }
+
+    public void recordAvailabilityAlternatives(String outcome) {
+        meterRegistry.counter("reservation.availability.alternatives", "outcome", outcome).increment();
+    }
+
+    public void recordTransition(ReservationStatus from, ReservationStatus to) {
+        recordTransition(from, to, 1);
+    }
+
+    public void recordTransition(ReservationStatus from, ReservationStatus to, int count) {
+        meterRegistry.counter("reservation.status.transitions",
+                        "from", from != null ? from.name() : "NEW",
+                        "to", to.name())
+                .increment(count);
+    }
+
+    public void recordExpirySweep(long durationNanos, int expired) {
+        meterRegistry.timer("reservation.expiry.sweeps").record(durationNanos, TimeUnit.NANOSECONDS);
+        recordTransition(ReservationStatus.PENDING, ReservationStatus.EXPIRED, expired);
+    }
+
+    public void recordArchived(int count) {
+        meterRegistry.counter("reservation.archived").increment(count);
+    }
+
+    public void recordOutboxPublished(int count) {
+        meterRegistry.counter("reservation.outbox.published").increment(count);
+    }
+
+    public void recordEventSubscriberDropped() {
+        meterRegistry.counter("reservation.events.subscribers.dropped").increment();
+    }
+
+    public void recordAvailabilitySubscriberDropped() {
+        meterRegistry.counter("reservation.availability.subscribers.dropped").increment();
+    }
+
+    public void recordIdempotentRequest(String outcome) {
+        meterRegistry.counter("reservation.idempotency.requests", "outcome", outcome).increment();
+    }
+
+    public void recordRateLimitDecision(String outcome) {
+        meterRegistry.counter("reservation.ratelimit.requests", "outcome", outcome).increment();
+    }
+
+    public void recordReadRouting(String target, String reason) {
+        meterRegistry.counter("reservation.datasource.reads", "target", target, "reason", reason).increment();
+    }
+
+    public void recordAvailabilityIndexLoad(String source, long durationNanos) {
+        meterRegistry.timer("reservation.availability.index.load", "source", source)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordAvailabilityIndexEvents(int count) {
+        meterRegistry.counter("reservation.availability.index.events").increment(count);
+    }
+
+    public void recordQueuedApproval(String state, long durationNanos) {
+        meterRegistry.timer("reservation.approval.queue.latency", "state", state)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordApprovalBatch(int size) {
+        meterRegistry.summary("reservation.approval.queue.batch.size").record(size);
+    }
+
+    public void recordApprovalQueueFull() {
+        meterRegistry.counter("reservation.approval.queue.rejected").increment();
+    }
+
+    public void recordApprovalCallback(String outcome) {
+        meterRegistry.counter("reservation.approval.callbacks", "outcome", outcome).increment();
+    }
+
+    public void recordGroupReservation(String outcome, int size) {
+        meterRegistry.summary("reservation.group.size", "outcome", outcome).record(size);
+    }
+
+    private Counter availabilityCounter(String source, String outcome) {
+        return Counter.builder("reservation.availability.checks")
+                .description("Availability checks by where they were answered and their outcome")
+                .tag("source", source)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,9 @@
+package rodionova.dev.reservation_system.reservations;
+
+import java.util.List;
+
+public record ReservationPage(
+        List<Reservation> reservations,
+        Long nextCursor
+) {
+}
@@ -1,13 +1,17 @@
 package rodionova.dev.reservation_system.reservations;
 
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
 public interface ReservationRepository extends JpaRepository<ReservationEntity, Long> {
@@ -19,15 +23,73 @@ public interface ReservationRepository extends JpaRepository<ReservationEntity,
     @Query("""
             update ReservationEntity r
             set
-            r.status = :status
+            r.status = :status,
+            r.version = r.version + 1
             where r.id = :id
             """)
     void setStatus(@Param("id") Long id, @Param("status") ReservationStatus reservationStatus);
 
     @Modifying
-    @Query("UPDATE ReservationEntity r SET r.status = :status WHERE r.id = :id")
+    @Query("UPDATE ReservationEntity r SET r.status = :status, r.version = r.version + 1 WHERE r.id = :id")
     void updateStatusById(@Param("id") Long id, @Param("status") ReservationStatus status);
 
+    @Modifying
+    @Query("""
+            UPDATE ReservationEntity r SET r.status = :status, r.version = r.version + 1
+            WHERE r.id IN :ids AND r.status = :expectedStatus
+            """)
+    int updateStatusByIds(
+            @Param("ids") Collection<Long> ids,
+            @Param("expectedStatus") ReservationStatus expectedStatus,
+            @Param("status") ReservationStatus status);
+
+    /**
+     * Status transition in one statement; returns 0 when the row is gone, left {@code expectedStatus} or moved past
+     * {@code expectedVersion}. Clears the persistence context, so a following read sees the database row.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+            UPDATE ReservationEntity r SET r.status = :status, r.version = r.version + 1
+            WHERE r.id = :id AND r.status = :expectedStatus AND r.version = :expectedVersion
+            """)
+    int updateStatusIfCurrent(
+            @Param("id") Long id,
+            @Param("expectedVersion") Long expectedVersion,
+            @Param("expectedStatus") ReservationStatus expectedStatus,
+            @Param("status") ReservationStatus status);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+            UPDATE ReservationEntity r
+            SET r.userId = :userId, r.roomId = :roomId, r.startDate = :startDate, r.endDate = :endDate,
+            r.version = r.version + 1
+            WHERE r.id = :id AND r.status = 'PENDING' AND r.version = :expectedVersion
+            """)
+    int updatePendingIfCurrent(
+            @Param("id") Long id,
+            @Param("expectedVersion") Long expectedVersion,
+            @Param("userId") Long userId,
+            @Param("roomId") Long roomId,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate);
+
+    /**
+     * Must run inside a transaction; rows locked by another sweeper or an approval in progress are skipped.
+     */
+    @Query(value = """
+            SELECT id FROM reservations
+            WHERE reservation_status = 'PENDING'
+            AND created_at < :createdBefore
+            ORDER BY created_at
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<Long> lockStalePendingIds(@Param("createdBefore") Instant createdBefore, @Param("limit") int limit);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM ReservationEntity r WHERE r.id IN :ids ORDER BY r.id")
+    List<ReservationEntity> findAllByIdForUpdate(@Param("ids") Collection<Long> ids);
+
     @Query("""
             SELECT r.id FROM ReservationEntity r
             WHERE r.roomId = :roomId
@@ -41,12 +103,71 @@ public interface ReservationRepository extends JpaRepository<ReservationEntity,
             @Param("endDate") LocalDate endDate,
         @Param("status") ReservationStatus status);
 
-    @Query("SELECT r FROM ReservationEntity r " +
-            "WHERE (:roomId IS NULL OR r.roomId = :roomId) " +
-            "AND (:userId IS NULL OR r.userId = :userId)")
-    List<ReservationEntity> searchAllByFilter(
+    List<ReservationEntity> findAllByStatus(ReservationStatus status);
+
+    @Query("""
+            SELECT new rodionova.dev.reservation_system.reservations.Reservation(r.id, r.userId, r.roomId, r.startDate, r.endDate, r.status, r.version)
+            FROM ReservationEntity r
+            WHERE r.roomId IN :roomIds
+            AND r.startDate <= :endDate
+            AND r.endDate >= :startDate
+            AND r.status = :status
+            """)
+    List<Reservation> findReservationsOverlapping(
+            @Param("roomIds") Collection<Long> roomIds,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate,
+            @Param("status") ReservationStatus status);
+
+    @Transactional(readOnly = true)
+    @Query("""
+            SELECT new rodionova.dev.reservation_system.reservations.Reservation(r.id, r.userId, r.roomId, r.startDate, r.endDate, r.status, r.version)
+            FROM ReservationEntity r
+            WHERE r.id > :afterId
+            ORDER BY r.id
+            """)
+    List<Reservation> searchAll(
+            @Param("afterId") Long afterId,
+            Pageable pageable);
+
+    @Transactional(readOnly = true)
+    @Query("""
+            SELECT new rodionova.dev.reservation_system.reservations.Reservation(r.id, r.userId, r.roomId, r.startDate, r.endDate, r.status, r.version)
+            FROM ReservationEntity r
+            WHERE r.roomId = :roomId
+            AND r.id > :afterId
+            ORDER BY r.id
+            """)
+    List<Reservation> searchAllByRoomId(
+            @Param("roomId") Long roomId,
+            @Param("afterId") Long afterId,
+            Pageable pageable);
+
+    @Transactional(readOnly = true)
+    @Query("""
+            SELECT new rodionova.dev.reservation_system.reservations.Reservation(r.id, r.userId, r.roomId, r.startDate, r.endDate, r.status, r.version)
+            FROM ReservationEntity r
+            WHERE r.userId = :userId
+            AND r.id > :afterId
+            ORDER BY r.id
+            """)
+    List<Reservation> searchAllByUserId(
+            @Param("userId") Long userId,
+            @Param("afterId") Long afterId,
+            Pageable pageable);
+
+    @Transactional(readOnly = true)
+    @Query("""
+            SELECT new rodionova.dev.reservation_system.reservations.Reservation(r.id, r.userId, r.roomId, r.startDate, r.endDate, r.status, r.version)
+            FROM ReservationEntity r
+            WHERE r.roomId = :roomId
+            AND r.userId = :userId
+            AND r.id > :afterId
+            ORDER BY r.id
+            """)
+    List<Reservation> searchAllByRoomIdAndUserId(
             @Param("roomId") Long roomId,
             @Param("userId") Long userId,
-            Pageable pageable
-    );
+            @Param("afterId") Long afterId,
+            Pageable pageable);
 }
@@ -7,7 +7,8 @@ public record ReservationSearchFilter(
         Long roomId,
         Long userId,
         Integer pageSize,
-        Integer pageNumber
+        Integer pageNumber,
+        Long afterId
 ) {
 
 }
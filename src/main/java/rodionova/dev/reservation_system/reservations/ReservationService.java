@@ -1,144 +1,584 @@
 package rodionova.dev.reservation_system.reservations;
 
 
+import io.micrometer.core.annotation.Timed;
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
-import rodionova.dev.reservation_system.reservations.availability.ReservationAvailabilityController;
+import org.springframework.transaction.support.TransactionTemplate;
 import rodionova.dev.reservation_system.reservations.availability.ReservationAvalabilityService;
+import rodionova.dev.reservation_system.reservations.cache.ReservationCache;
+import rodionova.dev.reservation_system.reservations.outbox.ReservationEventType;
+import rodionova.dev.reservation_system.reservations.outbox.ReservationOutbox;
+import rodionova.dev.reservation_system.reservations.replica.ReplicaReads;
+import rodionova.dev.reservation_system.reservations.store.ReservationStore;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.logging.Logger;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 public class ReservationService {
-    ;
 
-    private final ReservationRepository reservationRepository;
+    private static final int MAX_PAGE_SIZE = 1000;
 
-    private Logger log = Logger.getLogger(ReservationService.class.getName());
+    private static final int MAX_BATCH_SIZE = 1000;
 
-    private final ReservationMapper reservationMapper;
+    private static final long NO_CURSOR = 0L;
+
+    private final ReservationStore reservationStore;
+
+    private static final Logger log = LoggerFactory.getLogger(ReservationService.class);
 
     private final ReservationAvalabilityService reservationAvalabilityService;
 
-    public ReservationService(ReservationRepository reservationRepository,
-                              ReservationMapper reservationMapper,
-                              ReservationAvalabilityService reservationAvailabilityService) {
-        this.reservationMapper = reservationMapper;
-        this.reservationRepository = reservationRepository;
+    private final Validator validator;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final RoomLocks roomLocks;
+
+    private final ReservationMetrics reservationMetrics;
+
+    private final ReservationCache reservationCache;
+
+    private final ReservationOutbox reservationOutbox;
+
+    private final ReplicaReads replicaReads;
+
+    public ReservationService(ReservationStore reservationStore,
+                              ReservationAvalabilityService reservationAvailabilityService,
+                              Validator validator,
+                              PlatformTransactionManager transactionManager,
+                              RoomLocks roomLocks,
+                              ReservationMetrics reservationMetrics,
+                              ReservationCache reservationCache,
+                              ReservationOutbox reservationOutbox,
+                              ReplicaReads replicaReads) {
+        this.reservationStore = reservationStore;
         this.reservationAvalabilityService = reservationAvailabilityService;
+        this.validator = validator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.roomLocks = roomLocks;
+        this.reservationMetrics = reservationMetrics;
+        this.reservationCache = reservationCache;
+        this.reservationOutbox = reservationOutbox;
+        this.replicaReads = replicaReads;
     }
 
+    @Timed(value = "reservation.service", extraTags = {"operation", "getById"})
     public Reservation getReservationById(Long id) {
-        ReservationEntity reservationEntity = reservationRepository.findById(id).orElseThrow(
-                () -> new EntityNotFoundException("Not found reservation for Id= " + id));
-
-
-        return reservationMapper.toDomainReservation(reservationEntity);
+        if (!reservationCache.isEnabled()) {
+            return replicaReads.execute(() -> loadReservationById(id));
+        }
+        // A replica read racing a write could cache the old row past the eviction that follows the commit
+        return reservationCache.get(id, this::loadReservationById);
+    }
 
+    private Reservation loadReservationById(Long id) {
+        return reservationStore.findById(id).orElseThrow(
+                () -> new EntityNotFoundException("Not found reservation for Id= " + id));
     }
 
 
-    public List<Reservation> searchAllByFilter(ReservationSearchFilter reservationSearchFilter) {
+    @Timed(value = "reservation.service", extraTags = {"operation", "search"})
+    public ReservationPage searchAllByFilter(ReservationSearchFilter reservationSearchFilter) {
 
         int pageSize = reservationSearchFilter.pageSize() != null ? reservationSearchFilter.pageSize() : 10;
         int pageNumber = reservationSearchFilter.pageNumber() != null ? reservationSearchFilter.pageNumber() : 0;
-        var pageable = Pageable
-                .ofSize(pageSize)
-                .withPage(pageNumber);
-        List<ReservationEntity> allEntities = reservationRepository
-                .searchAllByFilter(reservationSearchFilter.roomId(), reservationSearchFilter.userId(), Pageable.unpaged());
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size should be between 1 and " + MAX_PAGE_SIZE);
+        }
+        if (pageNumber < 0) {
+            throw new IllegalArgumentException("Page number should not be negative");
+        }
+        if (reservationSearchFilter.afterId() != null && reservationSearchFilter.pageNumber() != null) {
+            throw new IllegalArgumentException("Page number cannot be combined with a cursor");
+        }
 
-        return allEntities.stream().map(reservationMapper::toDomainReservation).toList();
+        Pageable pageable;
+        long afterId;
+        if (reservationSearchFilter.afterId() != null) {
+            pageable = Pageable.ofSize(pageSize);
+            afterId = reservationSearchFilter.afterId();
+        } else {
+            pageable = Pageable.ofSize(pageSize).withPage(pageNumber);
+            afterId = NO_CURSOR;
+        }
+        var reservations = replicaReads.execute(() -> reservationStore.search(
+                reservationSearchFilter.roomId(), reservationSearchFilter.userId(), afterId, pageable));
+        Long nextCursor = reservations.size() == pageSize ? reservations.getLast().id() : null;
+        return new ReservationPage(reservations, nextCursor);
     }
 
+    @Timed(value = "reservation.service", extraTags = {"operation", "create"})
+    @Transactional
     public Reservation createReservation(Reservation reservationToCreate) {
 
-        if (reservationToCreate.status() != null) {
-            throw new IllegalArgumentException("Status should be empty");
-        }
-        if (!reservationToCreate.endDate().isAfter(reservationToCreate.startDate())) {
-            throw new IllegalArgumentException("End date should be after start date");
+        checkNewReservation(reservationToCreate);
+
+        var createdReservation = reservationStore.insert(pending(reservationToCreate));
+        reservationOutbox.append(ReservationEventType.CREATED, createdReservation);
+        reservationMetrics.recordTransition(null, ReservationStatus.PENDING);
+        return createdReservation;
+    }
+
+    @Timed(value = "reservation.service", extraTags = {"operation", "createBatch"})
+    @Transactional
+    public List<ReservationBatchItemResult> createReservations(List<Reservation> reservationsToCreate) {
+        checkBatchSize(reservationsToCreate.size());
+
+        var results = new ReservationBatchItemResult[reservationsToCreate.size()];
+        var reservationsToSave = new ArrayList<Reservation>();
+        var positions = new ArrayList<Integer>();
+        for (int i = 0; i < reservationsToCreate.size(); i++) {
+            var reservationToCreate = reservationsToCreate.get(i);
+            var error = validateBatchItem(reservationToCreate);
+            if (error != null) {
+                results[i] = ReservationBatchItemResult.failure(i, error);
+                continue;
+            }
+            reservationsToSave.add(pending(reservationToCreate));
+            positions.add(i);
         }
 
-        var entityToSave = reservationMapper.toDomainEntity(reservationToCreate);
-        entityToSave.setStatus(ReservationStatus.PENDING);
-        var savedEntity = reservationRepository.save(entityToSave);
-        return reservationMapper.toDomainReservation(savedEntity);
+        var createdReservations = reservationStore.insertAll(reservationsToSave);
+        reservationMetrics.recordTransition(null, ReservationStatus.PENDING, createdReservations.size());
+        for (int i = 0; i < createdReservations.size(); i++) {
+            int position = positions.get(i);
+            results[position] = ReservationBatchItemResult.success(position, createdReservations.get(i));
+        }
+        reservationOutbox.appendAll(ReservationEventType.CREATED, createdReservations);
+        return List.of(results);
     }
 
-    public Reservation updateReservation(Long id, Reservation reservationToUpdate) {
+    /**
+     * Books several rooms at once, all or nothing: the reservations are created APPROVED in one transaction, or
+     * none is created. One query reads the APPROVED reservations of all the rooms, checked under the locks of the
+     * rooms, taken in ascending order like every multi-room approval, so the group cannot deadlock a batch.
+     *
+     * @throws IllegalArgumentException naming the items that are invalid, overlap each other or conflict
+     */
+    @Timed(value = "reservation.service", extraTags = {"operation", "createGroup"})
+    public List<Reservation> createGroupReservation(List<Reservation> reservationsToCreate) {
+        checkBatchSize(reservationsToCreate.size());
+
+        var errors = new ArrayList<String>();
+        for (int i = 0; i < reservationsToCreate.size(); i++) {
+            var error = validateBatchItem(reservationsToCreate.get(i));
+            if (error != null) {
+                errors.add("item " + i + ": " + error);
+            }
+        }
+        if (!errors.isEmpty()) {
+            reservationMetrics.recordGroupReservation("invalid", reservationsToCreate.size());
+            throw new IllegalArgumentException("Cannot create group reservation, " + String.join("; ", errors));
+        }
 
-        var reservationEntity = reservationRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException("No found reservation by id= " + id));
-        if (reservationEntity.getStatus() != ReservationStatus.PENDING) {
-            throw new IllegalStateException("Cannot modify reservation, this status should be PENDING");
+        var roomIds = new HashSet<Long>();
+        reservationsToCreate.forEach(reservation -> roomIds.add(reservation.roomId()));
+        List<Reservation> createdReservations;
+        try {
+            createdReservations = roomLocks.withRoomLocks(roomIds, () -> transactionTemplate.execute(status -> {
+                roomLocks.lockRoomsInTransaction(roomIds);
+                return createGroupLocked(reservationsToCreate);
+            }));
+        } catch (IllegalArgumentException e) {
+            reservationMetrics.recordGroupReservation("conflict", reservationsToCreate.size());
+            throw e;
+        }
+        createdReservations.forEach(reservation -> reservationAvalabilityService.onReservationApproved(
+                reservation.id(), reservation.roomId(), reservation.startDate(), reservation.endDate()));
+        reservationMetrics.recordTransition(null, ReservationStatus.APPROVED, createdReservations.size());
+        reservationMetrics.recordGroupReservation("created", createdReservations.size());
+        return createdReservations;
+    }
+
+    private List<Reservation> createGroupLocked(List<Reservation> reservationsToCreate) {
+        var conflicts = conflictingPositions(reservationsToCreate);
+        if (!conflicts.isEmpty()) {
+            throw new IllegalArgumentException("Cannot create group reservation, items " + conflicts
+                    + " conflict with existing reservations or earlier items of the group");
         }
+
+        var reservationsToSave = reservationsToCreate.stream()
+                .map(reservation -> new Reservation(null, reservation.userId(), reservation.roomId(),
+                        reservation.startDate(), reservation.endDate(), ReservationStatus.APPROVED, null))
+                .toList();
+        var createdReservations = reservationStore.insertAll(reservationsToSave);
+        // Consumers learn of approved nights from APPROVED events; the event carries the whole row either way
+        reservationOutbox.appendAll(ReservationEventType.APPROVED, createdReservations);
+        return createdReservations;
+    }
+
+    @Timed(value = "reservation.service", extraTags = {"operation", "update"})
+    @Transactional
+    public Reservation updateReservation(Long id, Reservation reservationToUpdate, Long expectedVersion) {
         if (!reservationToUpdate.endDate().isAfter(reservationToUpdate.startDate())) {
             throw new IllegalArgumentException("End date should be after start date");
         }
 
-        var reservationToSave = reservationMapper.toDomainEntity(reservationToUpdate);
-        reservationToSave.setId(id);
-        reservationToSave.setStatus(ReservationStatus.PENDING);
+        var current = currentReservation(id, expectedVersion);
+        var updatedReservation = updateIfCurrent(current, reservationToUpdate, false);
+        if (updatedReservation == null) {
+            updatedReservation = updateIfCurrent(freshReservation(id, expectedVersion), reservationToUpdate, true);
+        }
+        if (updatedReservation == null) {
+            throw concurrentModification(id);
+        }
+        reservationOutbox.append(ReservationEventType.UPDATED, updatedReservation);
+        reservationCache.evict(id);
+        log.debug("Reservation by id={} is updated", id);
 
-        var savedEntity = reservationRepository.save(reservationToSave);
-        log.info("Called the updateReservation method. Reservation updated");
+        return updatedReservation;
+    }
 
-        return reservationMapper.toDomainReservation(savedEntity);
+    private Reservation updateIfCurrent(Reservation current, Reservation reservationToUpdate, boolean fresh) {
+        if (current.status() != ReservationStatus.PENDING) {
+            if (!fresh) {
+                return null;
+            }
+            throw new IllegalStateException("Cannot modify reservation, this status should be PENDING");
+        }
+        int updated = reservationStore.updatePendingIfCurrent(current.id(), current.version(),
+                reservationToUpdate.userId(), reservationToUpdate.roomId(),
+                reservationToUpdate.startDate(), reservationToUpdate.endDate());
+        if (updated == 0) {
+            return null;
+        }
+        return new Reservation(current.id(), reservationToUpdate.userId(), reservationToUpdate.roomId(),
+                reservationToUpdate.startDate(), reservationToUpdate.endDate(), ReservationStatus.PENDING,
+                current.version() + 1);
     }
 
+    @Timed(value = "reservation.service", extraTags = {"operation", "delete"})
+    @Transactional
     public void deleteReservation(Long id) {
-        if (!reservationRepository.existsById(id)) {
-            throw new EntityNotFoundException("\"No found reservation by id= \" + id");
+        var deleted = reservationStore.delete(id)
+                .orElseThrow(() -> new EntityNotFoundException("No found reservation by id= " + id));
+        reservationOutbox.append(ReservationEventType.DELETED, deleted);
+        reservationCache.evict(id);
+        if (deleted.status() == ReservationStatus.APPROVED) {
+            reservationAvalabilityService.onApprovedReservationReleased(id, deleted.roomId(),
+                    deleted.startDate(), deleted.endDate());
+        } else {
+            reservationAvalabilityService.onReservationReleased(id);
         }
-        log.info("Reservation is deleted");
-        reservationRepository.deleteById(id);
+        log.info("Reservation by id={} is deleted", id);
     }
 
-    public Reservation approveReservation(Long id) {
+    @Timed(value = "reservation.service", extraTags = {"operation", "approve"})
+    public Reservation approveReservation(Long id, Long expectedVersion) {
 
-        var reservationToApprove = reservationRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException("No found reservation by id= " + id));
+        var current = currentReservation(id, expectedVersion);
+        var approvedReservation = approveIfCurrent(current, false);
+        if (approvedReservation == null) {
+            approvedReservation = approveIfCurrent(freshReservation(id, expectedVersion), true);
+        }
+        if (approvedReservation == null) {
+            throw concurrentModification(id);
+        }
+        reservationCache.evict(id);
+        reservationAvalabilityService.onReservationApproved(
+                approvedReservation.id(),
+                approvedReservation.roomId(),
+                approvedReservation.startDate(),
+                approvedReservation.endDate());
+        reservationMetrics.recordTransition(ReservationStatus.PENDING, ReservationStatus.APPROVED);
+        return approvedReservation;
+    }
 
-        if (reservationToApprove.getStatus() != ReservationStatus.PENDING) {
+    private Reservation approveIfCurrent(Reservation current, boolean fresh) {
+        if (current.status() != ReservationStatus.PENDING) {
+            if (!fresh) {
+                return null;
+            }
             throw new IllegalStateException("Cannot approve reservation, this status should be PENDING");
         }
-        var isAvailable = reservationAvalabilityService.isReservationAvailable(
-                reservationToApprove.getRoomId(),
-                reservationToApprove.getStartDate(),
-                reservationToApprove.getEndDate());
+        return roomLocks.withRoomLock(current.roomId(), () ->
+                transactionTemplate.execute(status -> approveLocked(current)));
+    }
+
+    /**
+     * The conflict check runs on the room and dates of {@code current}; the version in the conditional update
+     * guarantees they are still the row's, and the row lock it takes makes the expiry sweeper skip the row.
+     */
+    private Reservation approveLocked(Reservation current) {
+        roomLocks.lockRoomsInTransaction(List.of(current.roomId()));
+
+        var isAvailable = reservationAvalabilityService.isReservationAvailableForApproval(
+                current.roomId(),
+                current.startDate(),
+                current.endDate());
         if (!isAvailable) {
             throw new IllegalArgumentException("Cannot approve reservation, this reservation is conflict");
         }
 
+        int updated = reservationStore.updateStatusIfCurrent(
+                current.id(), current.version(), ReservationStatus.PENDING, ReservationStatus.APPROVED);
+        if (updated == 0) {
+            return null;
+        }
+        var approvedReservation = withStatus(current, ReservationStatus.APPROVED);
+        reservationOutbox.append(ReservationEventType.APPROVED, approvedReservation);
+        return approvedReservation;
+    }
 
-        reservationToApprove.setStatus(ReservationStatus.APPROVED);
-        reservationRepository.save(reservationToApprove);
-        return reservationMapper.toDomainReservation(reservationToApprove);
+    @Timed(value = "reservation.service", extraTags = {"operation", "approveBatch"})
+    public List<ReservationBatchItemResult> approveReservations(List<Long> ids) {
+        return approveReservations(ids, Collections.nCopies(ids.size(), null));
     }
 
+    /**
+     * @param expectedVersions per id, the version it must still have to be approved; null accepts any
+     */
+    @Timed(value = "reservation.service", extraTags = {"operation", "approveBatch"})
+    public List<ReservationBatchItemResult> approveReservations(List<Long> ids, List<Long> expectedVersions) {
+        checkBatchSize(ids.size());
+
+        var roomIds = new HashSet<Long>();
+        var distinctIds = new HashSet<>(ids);
+        distinctIds.remove(null);
+        reservationStore.findAllById(distinctIds).forEach(reservation -> roomIds.add(reservation.roomId()));
+
+        var approvedReservations = new ArrayList<Reservation>();
+        var results = roomLocks.withRoomLocks(roomIds, () -> transactionTemplate.execute(status -> {
+            roomLocks.lockRoomsInTransaction(roomIds);
+            return approveInTransaction(ids, expectedVersions, roomIds, approvedReservations);
+        }));
+        approvedReservations.forEach(reservation -> {
+            reservationCache.evict(reservation.id());
+            reservationAvalabilityService.onReservationApproved(
+                    reservation.id(), reservation.roomId(), reservation.startDate(), reservation.endDate());
+        });
+        reservationMetrics.recordTransition(ReservationStatus.PENDING, ReservationStatus.APPROVED, approvedReservations.size());
+        return results;
+    }
+
+    private List<ReservationBatchItemResult> approveInTransaction(List<Long> ids,
+                                                                 List<Long> expectedVersions,
+                                                                 Set<Long> lockedRoomIds,
+                                                                 List<Reservation> approvedReservations) {
+        var results = new ReservationBatchItemResult[ids.size()];
+        var reservationsById = new HashMap<Long, Reservation>();
+        var distinctIds = new HashSet<>(ids);
+        distinctIds.remove(null);
+        reservationStore.findAllByIdForUpdate(distinctIds)
+                .forEach(reservation -> reservationsById.put(reservation.id(), reservation));
+
+        var candidates = new ArrayList<Integer>();
+        var seenIds = new HashSet<Long>();
+        for (int i = 0; i < ids.size(); i++) {
+            var id = ids.get(i);
+            var reservation = reservationsById.get(id);
+            if (id == null) {
+                results[i] = ReservationBatchItemResult.failure(i, "Reservation id should not be empty");
+            } else if (reservation == null) {
+                results[i] = ReservationBatchItemResult.failure(i, "No found reservation by id= " + id);
+            } else if (!seenIds.add(id)) {
+                results[i] = ReservationBatchItemResult.failure(i, "Reservation id= " + id + " is repeated in the batch");
+            } else if (expectedVersions.get(i) != null && !expectedVersions.get(i).equals(reservation.version())) {
+                results[i] = ReservationBatchItemResult.failure(i, new ReservationVersionMismatchException(
+                        id, expectedVersions.get(i), reservation.version()).getMessage());
+            } else if (reservation.status() != ReservationStatus.PENDING) {
+                results[i] = ReservationBatchItemResult.failure(i, "Cannot approve reservation, this status should be PENDING");
+            } else if (!lockedRoomIds.contains(reservation.roomId())) {
+                results[i] = ReservationBatchItemResult.failure(
+                        i, "Cannot approve reservation, it was moved to another room, retry the approval");
+            } else {
+                candidates.add(i);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return List.of(results);
+        }
 
+        var candidateReservations = candidates.stream()
+                .map(position -> reservationsById.get(ids.get(position)))
+                .toList();
+        var conflicts = new HashSet<>(conflictingPositions(candidateReservations));
+        var toApprove = new ArrayList<Reservation>();
+        var positionsById = new HashMap<Long, Integer>();
+        for (int i = 0; i < candidates.size(); i++) {
+            int position = candidates.get(i);
+            var reservation = candidateReservations.get(i);
+            if (conflicts.contains(i)) {
+                results[position] = ReservationBatchItemResult.failure(
+                        position, "Cannot approve reservation, this reservation is conflict");
+                continue;
+            }
+            toApprove.add(reservation);
+            positionsById.put(reservation.id(), position);
+        }
+        // Results and events carry the versions the update gave the rows
+        var approvedById = new HashMap<Long, Reservation>();
+        reservationStore.updateStatusIfCurrent(toApprove, ReservationStatus.PENDING, ReservationStatus.APPROVED)
+                .forEach(reservation -> approvedById.put(reservation.id(), reservation));
+        for (Reservation reservation : toApprove) {
+            int position = positionsById.get(reservation.id());
+            var approvedReservation = approvedById.get(reservation.id());
+            if (approvedReservation == null) {
+                results[position] = ReservationBatchItemResult.failure(
+                        position, "Reservation id= " + reservation.id() + " was modified concurrently, retry the approval");
+                continue;
+            }
+            approvedReservations.add(approvedReservation);
+            results[position] = ReservationBatchItemResult.success(position, approvedReservation);
+        }
+        reservationOutbox.appendAll(ReservationEventType.APPROVED, approvedReservations);
+        return List.of(results);
+    }
+
+    /**
+     * Positions in {@code candidates} whose nights overlap an APPROVED reservation of the same room or an
+     * earlier candidate that does not conflict itself; must run under the locks of every candidate's room.
+     */
+    private List<Integer> conflictingPositions(List<Reservation> candidates) {
+        var roomIds = new HashSet<Long>();
+        LocalDate minStartDate = LocalDate.MAX;
+        LocalDate maxEndDate = LocalDate.MIN;
+        for (Reservation reservation : candidates) {
+            roomIds.add(reservation.roomId());
+            minStartDate = reservation.startDate().isBefore(minStartDate) ? reservation.startDate() : minStartDate;
+            maxEndDate = reservation.endDate().isAfter(maxEndDate) ? reservation.endDate() : maxEndDate;
+        }
+        var occupiedByRoom = new HashMap<Long, List<Reservation>>();
+        reservationStore.findReservationsOverlapping(roomIds, minStartDate, maxEndDate, ReservationStatus.APPROVED)
+                .forEach(reservation -> occupiedByRoom.computeIfAbsent(reservation.roomId(), key -> new ArrayList<>()).add(reservation));
+
+        // Candidates are added to their room as they pass, so two of them cannot take the same nights
+        var conflicts = new ArrayList<Integer>();
+        for (int i = 0; i < candidates.size(); i++) {
+            var reservation = candidates.get(i);
+            var occupied = occupiedByRoom.computeIfAbsent(reservation.roomId(), key -> new ArrayList<>());
+            boolean conflict = occupied.stream().anyMatch(other ->
+                    !other.startDate().isAfter(reservation.endDate())
+                            && !other.endDate().isBefore(reservation.startDate()));
+            if (conflict) {
+                conflicts.add(i);
+            } else {
+                occupied.add(reservation);
+            }
+        }
+        return conflicts;
+    }
+
+    @Timed(value = "reservation.service", extraTags = {"operation", "cancel"})
     @Transactional
-    public Reservation cancelReservation(Long id) {
+    public Reservation cancelReservation(Long id, Long expectedVersion) {
 
-        ReservationEntity reservation = reservationRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException("No found reservation for this id= " + id));
+        var current = currentReservation(id, expectedVersion);
+        var cancelled = cancelIfCurrent(current, false);
+        if (cancelled == null) {
+            cancelled = cancelIfCurrent(freshReservation(id, expectedVersion), true);
+        }
+        if (cancelled == null) {
+            throw concurrentModification(id);
+        }
+        reservationOutbox.append(ReservationEventType.CANCELLED, cancelled);
+        reservationCache.evict(id);
+        reservationAvalabilityService.onApprovedReservationReleased(id, cancelled.roomId(),
+                cancelled.startDate(), cancelled.endDate());
+
+        reservationMetrics.recordTransition(ReservationStatus.APPROVED, ReservationStatus.CANCELLED);
+        log.info("Reservation by id={} is cancelled", id);
+        return cancelled;
+    }
 
-        if (!reservation.getStatus().equals(ReservationStatus.APPROVED)) {
-            throw new IllegalStateException("Cannot cancel reservation, this status should NOT BE APPROVED");
+    private Reservation cancelIfCurrent(Reservation current, boolean fresh) {
+        if (current.status() != ReservationStatus.APPROVED && !fresh) {
+            return null;
         }
-        if (!reservation.getStatus().equals(ReservationStatus.CANCELLED)) {
+        if (current.status() == ReservationStatus.CANCELLED) {
             throw new IllegalStateException("Cannot cancel reservation, this reservation is already cancelled");
         }
+        if (current.status() != ReservationStatus.APPROVED) {
+            throw new IllegalStateException("Cannot cancel reservation, this status should be APPROVED");
+        }
+        int updated = reservationStore.updateStatusIfCurrent(
+                current.id(), current.version(), ReservationStatus.APPROVED, ReservationStatus.CANCELLED);
+        return updated == 1 ? withStatus(current, ReservationStatus.CANCELLED) : null;
+    }
 
-        reservation.setStatus(ReservationStatus.CANCELLED);
-        ReservationEntity cancelledReservation = reservationRepository.save(reservation);
+    /**
+     * State a conditional update is checked against: the cached copy, unless the caller expects another version.
+     * A stale copy costs a fresh read and a second attempt, never a lost update; the {@code *IfCurrent} methods
+     * return null to ask for that, and only reject a transition on fresh state.
+     */
+    private Reservation currentReservation(Long id, Long expectedVersion) {
+        var reservation = reservationCache.get(id, this::loadReservationById);
+        if (expectedVersion == null || expectedVersion.equals(reservation.version())) {
+            return reservation;
+        }
+        return freshReservation(id, expectedVersion);
+    }
+
+    private Reservation freshReservation(Long id, Long expectedVersion) {
+        reservationCache.evict(id);
+        var reservation = loadReservationById(id);
+        if (expectedVersion != null && !expectedVersion.equals(reservation.version())) {
+            throw new ReservationVersionMismatchException(id, expectedVersion, reservation.version());
+        }
+        return reservation;
+    }
+
+    private Reservation pending(Reservation reservation) {
+        return new Reservation(null, reservation.userId(), reservation.roomId(),
+                reservation.startDate(), reservation.endDate(), ReservationStatus.PENDING, null);
+    }
+
+    private Reservation withStatus(Reservation reservation, ReservationStatus status) {
+        return new Reservation(reservation.id(), reservation.userId(), reservation.roomId(),
+                reservation.startDate(), reservation.endDate(), status, reservation.version() + 1);
+    }
+
+    private OptimisticLockingFailureException concurrentModification(Long id) {
+        return new OptimisticLockingFailureException(
+                "Reservation id= " + id + " was modified concurrently, retry the request");
+    }
+
+    private void checkNewReservation(Reservation reservationToCreate) {
+        if (reservationToCreate.status() != null) {
+            throw new IllegalArgumentException("Status should be empty");
+        }
+        if (!reservationToCreate.endDate().isAfter(reservationToCreate.startDate())) {
+            throw new IllegalArgumentException("End date should be after start date");
+        }
+    }
 
-        log.info("Reservation by id={} is cancelled");
-        return reservationMapper.toDomainReservation(cancelledReservation);
+    private String validateBatchItem(Reservation reservationToCreate) {
+        if (reservationToCreate == null) {
+            return "Reservation should not be empty";
+        }
+        var violations = validator.validate(reservationToCreate);
+        if (!violations.isEmpty()) {
+            return violations.stream()
+                    .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining(", "));
+        }
+        try {
+            checkNewReservation(reservationToCreate);
+            return null;
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+    }
+
+    private void checkBatchSize(int size) {
+        if (size == 0 || size > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Batch size should be between 1 and " + MAX_BATCH_SIZE);
+        }
     }
 }
\ No newline at end of file
@@ -3,5 +3,6 @@ package rodionova.dev.reservation_system.reservations;
 public enum ReservationStatus {
     PENDING,
     APPROVED,
-    CANCELLED
+    CANCELLED,
+    EXPIRED
 }
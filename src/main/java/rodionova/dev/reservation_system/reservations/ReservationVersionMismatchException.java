@@ -0,0 +1,11 @@
+package rodionova.dev.reservation_system.reservations;
+
+/**
+ * The client's {@code If-Match} names a version the reservation no longer has.
+ */
+public class ReservationVersionMismatchException extends RuntimeException {
+
+    public ReservationVersionMismatchException(Long id, Long expectedVersion, Long currentVersion) {
+        super("Reservation id= " + id + " is at version " + currentVersion + ", not " + expectedVersion);
+    }
+}
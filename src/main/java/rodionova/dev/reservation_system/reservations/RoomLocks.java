@@ -0,0 +1,92 @@
+package rodionova.dev.reservation_system.reservations;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Serializes approvals per room. Striped in-process locks cover a single node,
+ * transaction-scoped Postgres advisory locks keyed by roomId cover several nodes. Those use the two-int key space
+ * under their own namespace, so they never meet single-key locks such as the partition maintenance one in V3.
+ * Locks are always taken in ascending order, so multi-room callers cannot deadlock each other. The memory engine
+ * is single-node and may run without a database, so it never takes the advisory locks.
+ */
+@Component
+public class RoomLocks {
+
+    private static final int STRIPES = 256;
+
+    /**
+     * First key of every room advisory lock, "room" in ASCII.
+     */
+    private static final int ADVISORY_LOCK_NAMESPACE = 0x726F6F6D;
+
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final boolean advisoryLocksEnabled;
+
+    public RoomLocks(@Nullable JdbcTemplate jdbcTemplate,
+                     @Value("#{${reservation.approval.advisory-locks.enabled:true} and '${reservation.store.engine:jpa}' == 'jpa'}")
+                     boolean advisoryLocksEnabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.advisoryLocksEnabled = advisoryLocksEnabled;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    public <T> T withRoomLock(Long roomId, Supplier<T> action) {
+        ReentrantLock lock = stripes[stripeOf(roomId)];
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public <T> T withRoomLocks(Collection<Long> roomIds, Supplier<T> action) {
+        var stripeIndexes = new TreeSet<Integer>();
+        roomIds.forEach(roomId -> stripeIndexes.add(stripeOf(roomId)));
+        var acquired = new ReentrantLock[stripeIndexes.size()];
+        int count = 0;
+        try {
+            for (int stripeIndex : stripeIndexes) {
+                stripes[stripeIndex].lock();
+                acquired[count++] = stripes[stripeIndex];
+            }
+            return action.get();
+        } finally {
+            for (int i = count - 1; i >= 0; i--) {
+                acquired[i].unlock();
+            }
+        }
+    }
+
+    /**
+     * Must run inside the transaction that writes the approval; the lock is released on commit or rollback.
+     */
+    public void lockRoomsInTransaction(Collection<Long> roomIds) {
+        if (!advisoryLocksEnabled) {
+            return;
+        }
+        // Room ids beyond the int range fold onto others; such rooms only serialize together
+        var keys = new TreeSet<Integer>();
+        roomIds.forEach(roomId -> keys.add(Long.hashCode(roomId)));
+        for (int key : keys) {
+            jdbcTemplate.query("SELECT pg_advisory_xact_lock(?, ?)", resultSet -> null, ADVISORY_LOCK_NAMESPACE, key);
+        }
+    }
+
+    private int stripeOf(Long roomId) {
+        return Long.hashCode(roomId * 0x9E3779B97F4A7C15L) & (STRIPES - 1);
+    }
+}
@@ -0,0 +1,119 @@
+package rodionova.dev.reservation_system.reservations.approval;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import rodionova.dev.reservation_system.reservations.ReservationMetrics;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * POSTs a completed approval ticket to the callbackUrl its request named. Only URLs under one of allowed-urls
+ * are called, so a client cannot point the server at arbitrary hosts. A callback is sent once; polling the ticket
+ * covers a receiver that was down.
+ */
+@Component
+public class ApprovalCallbacks {
+
+    private static final Logger log = LoggerFactory.getLogger(ApprovalCallbacks.class);
+
+    private final HttpClient httpClient;
+
+    private final ObjectMapper objectMapper;
+
+    private final ReservationMetrics reservationMetrics;
+
+    private final List<URI> allowedUrls;
+
+    private final Duration timeout;
+
+    public ApprovalCallbacks(ObjectMapper objectMapper,
+                             ReservationMetrics reservationMetrics,
+                             @Value("${reservation.approval.queue.callback.allowed-urls:}") List<String> allowedUrls,
+                             @Value("${reservation.approval.queue.callback.timeout:5s}") Duration timeout) {
+        this.objectMapper = objectMapper;
+        this.reservationMetrics = reservationMetrics;
+        this.allowedUrls = allowedUrls.stream().filter(url -> !url.isBlank()).map(URI::create).toList();
+        this.timeout = timeout;
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(timeout)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+    }
+
+    /**
+     * @param callbackUrl null for no callback
+     * @throws IllegalArgumentException for a URL outside allowed-urls
+     */
+    public Consumer<ApprovalTicket> to(String callbackUrl) {
+        if (callbackUrl == null) {
+            return ticket -> {
+            };
+        }
+        URI uri;
+        try {
+            uri = new URI(callbackUrl).normalize();
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException("callbackUrl is not a valid URL", e);
+        }
+        if (allowedUrls.stream().noneMatch(allowed -> isUnder(uri, allowed))) {
+            throw new IllegalArgumentException("callbackUrl is not under one of the allowed callback URLs");
+        }
+        return ticket -> post(uri, ticket);
+    }
+
+    private void post(URI uri, ApprovalTicket ticket) {
+        String body;
+        try {
+            body = objectMapper.writeValueAsString(ticket);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot write approval ticket", e);
+        }
+        var request = HttpRequest.newBuilder(uri)
+                .timeout(timeout)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+            if (error == null && response.statusCode() / 100 == 2) {
+                reservationMetrics.recordApprovalCallback("delivered");
+                return;
+            }
+            reservationMetrics.recordApprovalCallback("failed");
+            log.warn("Approval callback to {} for tracking id= {} failed: {}", uri, ticket.trackingId(),
+                    error != null ? error.toString() : "status " + response.statusCode());
+        });
+    }
+
+    private static boolean isUnder(URI uri, URI allowed) {
+        return Objects.equals(uri.getScheme(), allowed.getScheme())
+                && Objects.equals(uri.getHost(), allowed.getHost())
+                && uri.getPort() == allowed.getPort()
+                && uri.getRawUserInfo() == null
+                && uri.getRawPath() != null
+                && isUnderPath(uri.getRawPath(), allowed.getRawPath());
+    }
+
+    /**
+     * The allowed path itself or below it: {@code /hooks} admits {@code /hooks/approvals} but not {@code /hooks-evil}.
+     */
+    private static boolean isUnderPath(String path, String allowedPath) {
+        if (allowedPath.isEmpty() || allowedPath.endsWith("/")) {
+            return path.startsWith(allowedPath);
+        }
+        return path.equals(allowedPath) || path.startsWith(allowedPath + "/");
+    }
+}
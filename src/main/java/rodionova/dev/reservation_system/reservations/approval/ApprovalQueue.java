@@ -0,0 +1,240 @@
+package rodionova.dev.reservation_system.reservations.approval;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import rodionova.dev.reservation_system.reservations.ReservationBatchItemResult;
+import rodionova.dev.reservation_system.reservations.ReservationMetrics;
+import rodionova.dev.reservation_system.reservations.ReservationService;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Approvals accepted with 202 and carried out in the background. Reservations are partitioned by roomId onto
+ * single-threaded workers, so the approvals of a room on this node run one at a time in submission order and
+ * never wait on each other's locks. Each worker approves what queued up while it was busy as one batch: one
+ * transaction and one conflict query for all of its rooms. The database locks of the batch approval stay, they
+ * order the queue against other nodes and the synchronous endpoints. Outcomes are kept for result-ttl for polling
+ * and handed to the submitter's callback.
+ */
+@Component
+public class ApprovalQueue implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(ApprovalQueue.class);
+
+    private static final long POLL_MILLIS = 100;
+
+    private static final Duration SHUTDOWN_WAIT = Duration.ofSeconds(30);
+
+    private final ReservationService reservationService;
+
+    private final ReservationMetrics reservationMetrics;
+
+    private final boolean enabled;
+
+    private final int batchSize;
+
+    private final Cache<String, ApprovalTicket> tickets;
+
+    private final Partition[] partitions;
+
+    private volatile boolean running;
+
+    public ApprovalQueue(ReservationService reservationService,
+                         ReservationMetrics reservationMetrics,
+                         MeterRegistry meterRegistry,
+                         @Value("${reservation.approval.queue.enabled:false}") boolean enabled,
+                         @Value("${reservation.approval.queue.partitions:8}") int partitionCount,
+                         @Value("${reservation.approval.queue.capacity:10000}") int capacity,
+                         @Value("${reservation.approval.queue.batch-size:100}") int batchSize,
+                         @Value("${reservation.approval.queue.result-ttl:10m}") Duration resultTtl,
+                         @Value("${reservation.approval.queue.maximum-results:100000}") long maximumResults) {
+        this.reservationService = reservationService;
+        this.reservationMetrics = reservationMetrics;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.tickets = Caffeine.newBuilder()
+                .maximumSize(maximumResults)
+                .expireAfterWrite(resultTtl)
+                .build();
+        this.partitions = new Partition[enabled ? partitionCount : 0];
+        for (int i = 0; i < partitions.length; i++) {
+            partitions[i] = new Partition(capacity);
+        }
+        this.running = enabled;
+        for (int i = 0; i < partitions.length; i++) {
+            Thread.ofVirtual().name("reservation-approvals-" + i).start(partitions[i]);
+        }
+        Gauge.builder("reservation.approval.queue.depth", this, ApprovalQueue::depth)
+                .description("Approvals waiting for their partition")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param callback gets the completed ticket on the partition's thread; it should hand slow work off
+     * @throws EntityNotFoundException     for an unknown reservation, checked up front to find its room
+     * @throws ApprovalQueueFullException when the room's partition has capacity approvals waiting
+     */
+    public ApprovalTicket submit(Long reservationId, Long expectedVersion, Consumer<ApprovalTicket> callback) {
+        if (!running) {
+            throw new IllegalStateException("Approval queue is not running");
+        }
+        // A room changed after this read is approved all the same, only outside its new room's partition
+        var roomId = reservationService.getReservationById(reservationId).roomId();
+        var ticket = ApprovalTicket.queued(reservationId);
+        tickets.put(ticket.trackingId(), ticket);
+        if (!partitionOf(roomId).queue.offer(new Job(ticket, expectedVersion, System.nanoTime(), callback))) {
+            tickets.invalidate(ticket.trackingId());
+            reservationMetrics.recordApprovalQueueFull();
+            throw new ApprovalQueueFullException();
+        }
+        return ticket;
+    }
+
+    public ApprovalTicket ticket(String trackingId) {
+        var ticket = tickets.getIfPresent(trackingId);
+        if (ticket == null) {
+            throw new EntityNotFoundException("No found approval by tracking id= " + trackingId);
+        }
+        return ticket;
+    }
+
+    /**
+     * Stops taking approvals and works off the queued ones.
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        long deadline = System.nanoTime() + SHUTDOWN_WAIT.toNanos();
+        for (Partition partition : partitions) {
+            if (!partition.stopped.await(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                log.warn("Approval queue stopped with {} approvals not processed", depth());
+                return;
+            }
+        }
+    }
+
+    private double depth() {
+        int depth = 0;
+        for (Partition partition : partitions) {
+            depth += partition.queue.size();
+        }
+        return depth;
+    }
+
+    private Partition partitionOf(Long roomId) {
+        return partitions[Math.floorMod(Long.hashCode(roomId * 0x9E3779B97F4A7C15L), partitions.length)];
+    }
+
+    private void approve(List<Job> batch) {
+        reservationMetrics.recordApprovalBatch(batch.size());
+        List<ReservationBatchItemResult> results;
+        try {
+            results = reservationService.approveReservations(
+                    batch.stream().map(job -> job.ticket().reservationId()).toList(),
+                    batch.stream().map(Job::expectedVersion).toList());
+        } catch (RuntimeException e) {
+            log.warn("Queued approval of {} reservations failed", batch.size(), e);
+            batch.forEach(job -> complete(job, job.ticket().failed(e.getMessage())));
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            var job = batch.get(i);
+            var result = results.get(i);
+            complete(job, result.error() == null
+                    ? job.ticket().approved(result.reservation())
+                    : job.ticket().rejected(result.error()));
+        }
+    }
+
+    private void complete(Job job, ApprovalTicket ticket) {
+        tickets.put(ticket.trackingId(), ticket);
+        reservationMetrics.recordQueuedApproval(ticket.state().name(), System.nanoTime() - job.submittedNanos());
+        try {
+            job.callback().accept(ticket);
+        } catch (RuntimeException e) {
+            log.warn("Approval callback for tracking id= {} failed", ticket.trackingId(), e);
+        }
+    }
+
+    private record Job(ApprovalTicket ticket, Long expectedVersion, long submittedNanos,
+                       Consumer<ApprovalTicket> callback) {
+    }
+
+    private final class Partition implements Runnable {
+
+        private final BlockingQueue<Job> queue;
+
+        private final CountDownLatch stopped = new CountDownLatch(1);
+
+        // Taken from the queue but held back from the batch; only the partition's thread touches it
+        private final ArrayDeque<Job> pending = new ArrayDeque<>();
+
+        private Partition(int capacity) {
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running || !queue.isEmpty() || !pending.isEmpty()) {
+                    var batch = nextBatch();
+                    if (!batch.isEmpty()) {
+                        approve(batch);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                stopped.countDown();
+            }
+        }
+
+        /**
+         * In submission order; a reservation submitted twice waits for the next batch, which sees the first outcome.
+         */
+        private List<Job> nextBatch() throws InterruptedException {
+            if (pending.isEmpty()) {
+                var first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    return List.of();
+                }
+                pending.add(first);
+            }
+            if (pending.size() < batchSize) {
+                queue.drainTo(pending, batchSize - pending.size());
+            }
+            var batch = new ArrayList<Job>(pending.size());
+            var ids = new HashSet<Long>();
+            var iterator = pending.iterator();
+            while (iterator.hasNext()) {
+                var job = iterator.next();
+                if (ids.add(job.ticket().reservationId())) {
+                    batch.add(job);
+                    iterator.remove();
+                }
+            }
+            return batch;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package rodionova.dev.reservation_system.reservations.approval;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/reservation/approvals")
+public class ApprovalQueueController {
+
+    private static final Logger log = LoggerFactory.getLogger(ApprovalQueueController.class);
+
+    private final ApprovalQueue approvalQueue;
+
+    public ApprovalQueueController(ApprovalQueue approvalQueue) {
+        this.approvalQueue = approvalQueue;
+    }
+
+    @GetMapping("/{trackingId}")
+    public ResponseEntity<ApprovalTicket> getApproval(@PathVariable String trackingId) {
+        log.debug("Called the getApproval method. Get approval by tracking id= {}", trackingId);
+        return ResponseEntity.ok(approvalQueue.ticket(trackingId));
+    }
+}
@@ -0,0 +1,8 @@
+package rodionova.dev.reservation_system.reservations.approval;
+
+public class ApprovalQueueFullException extends RuntimeException {
+
+    public ApprovalQueueFullException() {
+        super("Too many approvals are queued for this room's partition, retry later");
+    }
+}
@@ -0,0 +1,8 @@
+package rodionova.dev.reservation_system.reservations.approval;
+
+public enum ApprovalState {
+    QUEUED,
+    APPROVED,
+    REJECTED,
+    FAILED
+}
@@ -0,0 +1,43 @@
+package rodionova.dev.reservation_system.reservations.approval;
+
+import rodionova.dev.reservation_system.reservations.Reservation;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * A queued approval and, once processed, its outcome: the approved reservation, or why it was rejected
+ * (conflict, not PENDING, stale If-Match) or failed (the database was unavailable; retrying may succeed).
+ */
+public record ApprovalTicket(
+        String trackingId,
+        Long reservationId,
+        ApprovalState state,
+        Reservation reservation,
+        String error,
+        Instant submittedAt,
+        Instant completedAt
+) {
+
+    static ApprovalTicket queued(Long reservationId) {
+        return new ApprovalTicket(UUID.randomUUID().toString(), reservationId, ApprovalState.QUEUED,
+                null, null, Instant.now(), null);
+    }
+
+    ApprovalTicket approved(Reservation approvedReservation) {
+        return complete(ApprovalState.APPROVED, approvedReservation, null);
+    }
+
+    ApprovalTicket rejected(String reason) {
+        return complete(ApprovalState.REJECTED, null, reason);
+    }
+
+    ApprovalTicket failed(String reason) {
+        return complete(ApprovalState.FAILED, null, reason);
+    }
+
+    private ApprovalTicket complete(ApprovalState completedState, Reservation approvedReservation, String reason) {
+        return new ApprovalTicket(trackingId, reservationId, completedState, approvedReservation, reason,
+                submittedAt, Instant.now());
+    }
+}
@@ -0,0 +1,140 @@
+package rodionova.dev.reservation_system.reservations.archive;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import rodionova.dev.reservation_system.reservations.ReservationMetrics;
+import rodionova.dev.reservation_system.reservations.ReservationStatus;
+import rodionova.dev.reservation_system.reservations.availability.ReservationAvalabilityService;
+import rodionova.dev.reservation_system.reservations.cache.ReservationCache;
+import rodionova.dev.reservation_system.reservations.outbox.ReservationEventType;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+
+/**
+ * Keeps the monthly partitions of {@code reservations} ahead of the calendar and moves ended APPROVED, CANCELLED
+ * and EXPIRED reservations into {@code reservations_archive}, one short transaction per batch that also appends an
+ * ARCHIVED outbox event per moved row. Partitions left empty behind the horizon are dropped. Works on the jpa
+ * engine's tables, so it is not created for another store engine.
+ */
+@Component
+@ConditionalOnProperty(name = "reservation.archive.enabled", havingValue = "true", matchIfMissing = true)
+@ConditionalOnProperty(name = "reservation.store.engine", havingValue = "jpa", matchIfMissing = true)
+public class ReservationArchiveJob {
+
+    private static final String ARCHIVE_BATCH = """
+            WITH batch AS (
+                SELECT id, end_date FROM reservations
+                WHERE end_date < ?
+                AND reservation_status IN (?, ?, ?)
+                LIMIT ?
+                FOR UPDATE SKIP LOCKED
+            ), moved AS (
+                DELETE FROM reservations r
+                USING batch b
+                WHERE r.id = b.id AND r.end_date = b.end_date
+                RETURNING r.*
+            ), archived AS (
+                INSERT INTO reservations_archive (id, user_id, room_id, start_date, end_date, reservation_status, created_at)
+                SELECT id, user_id, room_id, start_date, end_date, reservation_status, created_at FROM moved
+            )
+            INSERT INTO reservation_outbox (reservation_id, event_type, payload)
+            SELECT id, ?, json_build_object('id', id, 'userId', user_id, 'roomId', room_id, 'startDate', start_date,
+                    'endDate', end_date, 'status', reservation_status, 'version', version)::text
+            FROM moved
+            RETURNING reservation_id
+            """;
+
+    private static final Logger log = LoggerFactory.getLogger(ReservationArchiveJob.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ReservationCache reservationCache;
+
+    private final ReservationAvalabilityService reservationAvalabilityService;
+
+    private final ReservationMetrics reservationMetrics;
+
+    private final Duration horizon;
+
+    private final int batchSize;
+
+    private final int partitionsAhead;
+
+    public ReservationArchiveJob(JdbcTemplate jdbcTemplate,
+                                 PlatformTransactionManager transactionManager,
+                                 ReservationCache reservationCache,
+                                 ReservationAvalabilityService reservationAvalabilityService,
+                                 ReservationMetrics reservationMetrics,
+                                 @Value("${reservation.archive.horizon:90d}") Duration horizon,
+                                 @Value("${reservation.archive.batch-size:1000}") int batchSize,
+                                 @Value("${reservation.archive.partitions-ahead:12}") int partitionsAhead) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.reservationCache = reservationCache;
+        this.reservationAvalabilityService = reservationAvalabilityService;
+        this.reservationMetrics = reservationMetrics;
+        this.horizon = horizon;
+        this.batchSize = batchSize;
+        this.partitionsAhead = partitionsAhead;
+    }
+
+    @Scheduled(fixedDelayString = "${reservation.archive.interval:1h}")
+    public void run() {
+        LocalDate cutoff = LocalDate.now().minusDays(horizon.toDays());
+        try {
+            ensurePartitions(YearMonth.now());
+            archiveEndedBefore(cutoff);
+            dropEmptyPartitionsBefore(cutoff);
+        } catch (RuntimeException e) {
+            log.warn("Reservation archival failed, retrying on the next run", e);
+        }
+    }
+
+    public void ensurePartitions(YearMonth from) {
+        for (int i = 0; i <= partitionsAhead; i++) {
+            jdbcTemplate.query("SELECT reservations_ensure_partition(?)", resultSet -> null,
+                    from.plusMonths(i).atDay(1));
+        }
+    }
+
+    public long archiveEndedBefore(LocalDate cutoff) {
+        long archived = 0;
+        List<Long> ids;
+        do {
+            ids = transactionTemplate.execute(status -> jdbcTemplate.queryForList(ARCHIVE_BATCH, Long.class,
+                    cutoff, ReservationStatus.APPROVED.name(), ReservationStatus.CANCELLED.name(),
+                    ReservationStatus.EXPIRED.name(), batchSize, ReservationEventType.ARCHIVED.name()));
+            for (Long id : ids) {
+                reservationCache.evict(id);
+                reservationAvalabilityService.onReservationReleased(id);
+            }
+            reservationMetrics.recordArchived(ids.size());
+            archived += ids.size();
+        } while (ids.size() == batchSize);
+        if (archived > 0) {
+            log.info("Archived {} reservations ended before {}", archived, cutoff);
+        }
+        return archived;
+    }
+
+    public int dropEmptyPartitionsBefore(LocalDate cutoff) {
+        Integer dropped = jdbcTemplate.queryForObject("SELECT reservations_drop_empty_partitions(?)",
+                Integer.class, cutoff);
+        if (dropped != null && dropped > 0) {
+            log.info("Dropped {} empty reservation partitions ending before {}", dropped, cutoff);
+        }
+        return dropped != null ? dropped : 0;
+    }
+}
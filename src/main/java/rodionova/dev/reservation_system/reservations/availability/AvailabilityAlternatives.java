@@ -0,0 +1,13 @@
+package rodionova.dev.reservation_system.reservations.availability;
+
+import java.util.List;
+
+/**
+ * {@code dates} are free windows of the requested length in the requested room, nearest first;
+ * {@code roomIds} are candidate rooms free on the requested dates, in the order they were given.
+ */
+public record AvailabilityAlternatives(
+        List<DateInterval> dates,
+        List<Long> roomIds
+) {
+}
@@ -0,0 +1,140 @@
+package rodionova.dev.reservation_system.reservations.availability;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.stereotype.Service;
+import rodionova.dev.reservation_system.reservations.ReservationMetrics;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Alternatives for a check that found the room taken. Both kinds come from one calendar of the room and the
+ * candidate rooms around the requested dates: one query for the APPROVED intervals, one sweep per room. The
+ * window, the number of candidates and the results are capped, and the calendar query runs under a statement
+ * timeout; past it the database cancels the query and the check is answered without alternatives.
+ */
+@Service
+public class AvailabilityAlternativesService {
+
+    static final int MAX_CANDIDATE_ROOMS = 50;
+
+    private static final Logger log = LoggerFactory.getLogger(AvailabilityAlternativesService.class);
+
+    private final RoomCalendarService roomCalendarService;
+
+    private final ReservationMetrics reservationMetrics;
+
+    private final int searchDays;
+
+    private final int maxDates;
+
+    private final int maxRooms;
+
+    private final Duration timeout;
+
+    public AvailabilityAlternativesService(RoomCalendarService roomCalendarService,
+                                           ReservationMetrics reservationMetrics,
+                                           @Value("${reservation.availability.alternatives.search-days:14}") int searchDays,
+                                           @Value("${reservation.availability.alternatives.max-dates:3}") int maxDates,
+                                           @Value("${reservation.availability.alternatives.max-rooms:5}") int maxRooms,
+                                           @Value("${reservation.availability.alternatives.timeout:150ms}") Duration timeout) {
+        this.roomCalendarService = roomCalendarService;
+        this.reservationMetrics = reservationMetrics;
+        this.searchDays = searchDays;
+        this.maxDates = maxDates;
+        this.maxRooms = maxRooms;
+        this.timeout = timeout;
+    }
+
+    /**
+     * @return the alternatives, or null when they could not be computed within the bounds
+     */
+    public AvailabilityAlternatives findAlternatives(Long roomId, LocalDate startDate, LocalDate endDate,
+                                                     List<Long> candidateRoomIds) {
+        if (endDate.isBefore(startDate)) {
+            return null;
+        }
+        long length = ChronoUnit.DAYS.between(startDate, endDate) + 1;
+        LocalDate today = LocalDate.now();
+        LocalDate from = startDate.minusDays(searchDays);
+        if (from.isBefore(today) && !startDate.isBefore(today)) {
+            from = today;
+        }
+        LocalDate to = endDate.plusDays(searchDays);
+        if (ChronoUnit.DAYS.between(from, to) + 1 > RoomCalendarService.MAX_DAYS) {
+            reservationMetrics.recordAvailabilityAlternatives("skipped");
+            return null;
+        }
+
+        var roomIds = new LinkedHashSet<Long>();
+        roomIds.add(roomId);
+        if (candidateRoomIds != null) {
+            candidateRoomIds.stream()
+                    .filter(candidate -> candidate != null && !candidate.equals(roomId))
+                    .limit(MAX_CANDIDATE_ROOMS)
+                    .forEach(roomIds::add);
+        }
+
+        var request = new RoomCalendarRequest(List.copyOf(roomIds), from, to);
+        RoomCalendarResponse calendar;
+        try {
+            calendar = roomCalendarService.getCalendar(request, timeout);
+        } catch (QueryTimeoutException e) {
+            reservationMetrics.recordAvailabilityAlternatives("timeout");
+            return null;
+        } catch (RuntimeException e) {
+            log.warn("Could not compute availability alternatives for room {}", roomId, e);
+            reservationMetrics.recordAvailabilityAlternatives("failed");
+            return null;
+        }
+
+        var dates = List.<DateInterval>of();
+        var freeRoomIds = new ArrayList<Long>();
+        for (RoomCalendar room : calendar.rooms()) {
+            if (room.roomId().equals(roomId)) {
+                dates = nearestWindows(room.freeIntervals(), startDate, length);
+            } else if (freeRoomIds.size() < maxRooms && isFree(room.freeIntervals(), startDate, endDate)) {
+                freeRoomIds.add(room.roomId());
+            }
+        }
+        reservationMetrics.recordAvailabilityAlternatives("computed");
+        return new AvailabilityAlternatives(dates, freeRoomIds);
+    }
+
+    /**
+     * For every free interval long enough, the start closest to the requested one; ties go to the earlier date.
+     */
+    private List<DateInterval> nearestWindows(List<DateInterval> freeIntervals, LocalDate startDate, long length) {
+        var starts = new ArrayList<LocalDate>();
+        for (DateInterval free : freeIntervals) {
+            LocalDate latestStart = free.endDate().minusDays(length - 1);
+            if (latestStart.isBefore(free.startDate())) {
+                continue;
+            }
+            if (startDate.isBefore(free.startDate())) {
+                starts.add(free.startDate());
+            } else {
+                starts.add(startDate.isAfter(latestStart) ? latestStart : startDate);
+            }
+        }
+        return starts.stream()
+                .sorted(Comparator.<LocalDate>comparingLong(start -> Math.abs(ChronoUnit.DAYS.between(startDate, start)))
+                        .thenComparing(Comparator.naturalOrder()))
+                .limit(maxDates)
+                .map(start -> new DateInterval(start, start.plusDays(length - 1)))
+                .toList();
+    }
+
+    private static boolean isFree(List<DateInterval> freeIntervals, LocalDate startDate, LocalDate endDate) {
+        return freeIntervals.stream().anyMatch(free ->
+                !free.startDate().isAfter(startDate) && !free.endDate().isBefore(endDate));
+    }
+}
@@ -0,0 +1,16 @@
+package rodionova.dev.reservation_system.reservations.availability;
+
+import java.time.LocalDate;
+
+/**
+ * Pushed to availability subscribers: the room's nights from {@code startDate} to {@code endDate} (inclusive, as in
+ * the conflict check) became {@code status} because reservation {@code reservationId} was approved or released.
+ */
+public record AvailabilityDelta(
+        Long roomId,
+        LocalDate startDate,
+        LocalDate endDate,
+        AvailabilityStatus status,
+        Long reservationId) {
+
+}
@@ -0,0 +1,96 @@
+package rodionova.dev.reservation_system.reservations.availability;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Binary copy of the availability index: a header with the outbox position the content reflects, fixed-width
+ * records of id, roomId and the start and end epoch days, and a CRC32 of everything before it. Read through a
+ * mapped buffer; written to a temporary file that replaces the old one once synced.
+ */
+final class AvailabilitySnapshotFile {
+
+    private static final int MAGIC = 0x41565831;
+
+    private static final int HEADER_BYTES = Integer.BYTES + Long.BYTES + Integer.BYTES;
+
+    private static final int RECORD_BYTES = Long.BYTES + Long.BYTES + Integer.BYTES + Integer.BYTES;
+
+    record Content(long position, List<RoomAvailabilityIndex.IndexedInterval> intervals) {
+    }
+
+    private final Path path;
+
+    AvailabilitySnapshotFile(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * @return the content, null when there is no snapshot yet
+     */
+    Content read() throws IOException {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES + Integer.BYTES) {
+                throw new IOException(path + " is truncated");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            var crc = new CRC32();
+            crc.update(buffer.slice(0, (int) size - Integer.BYTES));
+            if (buffer.getInt((int) size - Integer.BYTES) != (int) crc.getValue() || buffer.getInt() != MAGIC) {
+                throw new IOException(path + " is corrupt");
+            }
+            long position = buffer.getLong();
+            int count = buffer.getInt();
+            if ((long) count * RECORD_BYTES != size - HEADER_BYTES - Integer.BYTES) {
+                throw new IOException(path + " does not hold " + count + " records");
+            }
+            var intervals = new ArrayList<RoomAvailabilityIndex.IndexedInterval>(count);
+            for (int i = 0; i < count; i++) {
+                intervals.add(new RoomAvailabilityIndex.IndexedInterval(buffer.getLong(), buffer.getLong(),
+                        LocalDate.ofEpochDay(buffer.getInt()), LocalDate.ofEpochDay(buffer.getInt())));
+            }
+            return new Content(position, intervals);
+        }
+    }
+
+    void write(long position, List<RoomAvailabilityIndex.IndexedInterval> intervals) throws IOException {
+        var buffer = ByteBuffer.allocate(HEADER_BYTES + intervals.size() * RECORD_BYTES + Integer.BYTES);
+        buffer.putInt(MAGIC).putLong(position).putInt(intervals.size());
+        for (RoomAvailabilityIndex.IndexedInterval interval : intervals) {
+            buffer.putLong(interval.reservationId())
+                    .putLong(interval.roomId())
+                    .putInt(Math.toIntExact(interval.startDate().toEpochDay()))
+                    .putInt(Math.toIntExact(interval.endDate().toEpochDay()));
+        }
+        var crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+        buffer.flip();
+
+        Path directory = path.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (var channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+}
@@ -0,0 +1,93 @@
+package rodionova.dev.reservation_system.reservations.availability;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * One availability subscription. Holds no thread while idle: deltas are buffered here and a drain task is scheduled
+ * on the shared executor only when the buffer goes from empty to non-empty. The buffer grows on demand up to its
+ * bound, so an idle subscriber is just the emitter and an empty deque.
+ */
+class AvailabilitySubscriber {
+
+    static final Object HEARTBEAT = new Object();
+
+    private final SseEmitter emitter;
+
+    private final List<Long> roomIds;
+
+    private final int bufferSize;
+
+    private final Executor executor;
+
+    private final ArrayDeque<Object> buffer = new ArrayDeque<>();
+
+    private boolean draining;
+
+    private volatile boolean closed;
+
+    AvailabilitySubscriber(SseEmitter emitter, List<Long> roomIds, int bufferSize, Executor executor) {
+        this.emitter = emitter;
+        this.roomIds = roomIds;
+        this.bufferSize = bufferSize;
+        this.executor = executor;
+    }
+
+    List<Long> roomIds() {
+        return roomIds;
+    }
+
+    /**
+     * Returns false when the buffer is full, leaving the drop decision to the caller.
+     */
+    boolean offer(Object message) {
+        synchronized (buffer) {
+            if (closed) {
+                return true;
+            }
+            if (buffer.size() >= bufferSize) {
+                return false;
+            }
+            buffer.addLast(message);
+            if (draining) {
+                return true;
+            }
+            draining = true;
+        }
+        executor.execute(this::drain);
+        return true;
+    }
+
+    void close() {
+        closed = true;
+        emitter.complete();
+    }
+
+    private void drain() {
+        while (true) {
+            Object message;
+            synchronized (buffer) {
+                message = buffer.pollFirst();
+                if (message == null || closed) {
+                    buffer.clear();
+                    draining = false;
+                    return;
+                }
+            }
+            try {
+                if (message == HEARTBEAT) {
+                    emitter.send(SseEmitter.event().comment("heartbeat"));
+                } else {
+                    emitter.send(SseEmitter.event().name("availability").data(message));
+                }
+            } catch (IOException | RuntimeException e) {
+                closed = true;
+                emitter.completeWithError(e);
+            }
+        }
+    }
+}
@@ -1,8 +1,10 @@
 package rodionova.dev.reservation_system.reservations.availability;
 
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 
 import java.time.LocalDate;
+import java.util.List;
 
 public record CheckAvailabilityRequest(
         @NotNull
@@ -10,6 +12,9 @@ public record CheckAvailabilityRequest(
         @NotNull
         LocalDate startDate,
         @NotNull
-        LocalDate endDate) {
+        LocalDate endDate,
+        Boolean alternatives,
+        @Size(max = AvailabilityAlternativesService.MAX_CANDIDATE_ROOMS)
+        List<Long> alternativeRoomIds) {
 
 }
@@ -1,9 +1,14 @@
 package rodionova.dev.reservation_system.reservations.availability;
 
-import org.springframework.boot.availability.AvailabilityState;
+import com.fasterxml.jackson.annotation.JsonInclude;
 
+/**
+ * {@code alternatives} is only present for a RESERVED check that asked for them and got them in time.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public record CheckAvailabilityResponse(
         String message,
-        AvailabilityStatus availabilityStatus
+        AvailabilityStatus availabilityStatus,
+        AvailabilityAlternatives alternatives
 ) {
 }
@@ -0,0 +1,9 @@
+package rodionova.dev.reservation_system.reservations.availability;
+
+import java.time.LocalDate;
+
+public record DateInterval(
+        LocalDate startDate,
+        LocalDate endDate
+) {
+}
@@ -3,21 +3,41 @@ package rodionova.dev.reservation_system.reservations.availability;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/reservations/availability")
 public class ReservationAvailabilityController {
 
+    static final int MAX_SUBSCRIBED_ROOMS = 500;
+
     private static final Logger log = LoggerFactory.getLogger(ReservationAvailabilityController.class);
 
     private final ReservationAvalabilityService reservationAvalabilityService;
 
-    public ReservationAvailabilityController(ReservationAvalabilityService reservationAvalabilityService) {
+    private final RoomCalendarService roomCalendarService;
+
+    private final RoomAvailabilityBroadcaster roomAvailabilityBroadcaster;
+
+    private final AvailabilityAlternativesService availabilityAlternativesService;
+
+    public ReservationAvailabilityController(ReservationAvalabilityService reservationAvalabilityService,
+                                             RoomCalendarService roomCalendarService,
+                                             RoomAvailabilityBroadcaster roomAvailabilityBroadcaster,
+                                             AvailabilityAlternativesService availabilityAlternativesService) {
         this.reservationAvalabilityService = reservationAvalabilityService;
+        this.roomCalendarService = roomCalendarService;
+        this.roomAvailabilityBroadcaster = roomAvailabilityBroadcaster;
+        this.availabilityAlternativesService = availabilityAlternativesService;
     }
 
     ;
@@ -25,7 +45,7 @@ public class ReservationAvailabilityController {
     @PostMapping("/check")
     public ResponseEntity<CheckAvailabilityResponse> checkAvailabilityResponse(
             @Valid CheckAvailabilityRequest checkAvailabilityRequest) {
-        log.info("Called checkAvailabilityResponse method");
+        log.debug("Called checkAvailabilityResponse method");
         boolean isAvailable = reservationAvalabilityService.isReservationAvailable(
                 checkAvailabilityRequest.roomId(),
                 checkAvailabilityRequest.startDate(),
@@ -36,7 +56,38 @@ public class ReservationAvailabilityController {
 
         var status = isAvailable ? AvailabilityStatus.AVAILABLE : AvailabilityStatus.RESERVED;
 
-        return ResponseEntity.ok(new CheckAvailabilityResponse(message, status));
+        AvailabilityAlternatives alternatives = null;
+        if (!isAvailable && Boolean.TRUE.equals(checkAvailabilityRequest.alternatives())) {
+            alternatives = availabilityAlternativesService.findAlternatives(
+                    checkAvailabilityRequest.roomId(),
+                    checkAvailabilityRequest.startDate(),
+                    checkAvailabilityRequest.endDate(),
+                    checkAvailabilityRequest.alternativeRoomIds());
+        }
+
+        return ResponseEntity.ok(new CheckAvailabilityResponse(message, status, alternatives));
+
+    }
+
+    @PostMapping("/calendar")
+    public ResponseEntity<RoomCalendarResponse> getRoomCalendar(@Valid RoomCalendarRequest roomCalendarRequest) {
+        log.debug("Called getRoomCalendar method for {} rooms", roomCalendarRequest.roomIds().size());
+        return ResponseEntity.ok(roomCalendarService.getCalendar(roomCalendarRequest));
+    }
 
+    /**
+     * Pushes availability deltas for the rooms. Only reservations approved or released on the node serving the
+     * connection are pushed; see {@link RoomAvailabilityBroadcaster}.
+     */
+    @GetMapping(value = "/subscribe", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribe(@RequestParam("roomIds") List<Long> roomIds) {
+        log.debug("Called subscribe method for {} rooms", roomIds.size());
+        if (roomIds.isEmpty() || roomIds.size() > MAX_SUBSCRIBED_ROOMS) {
+            throw new IllegalArgumentException("Number of rooms should be between 1 and " + MAX_SUBSCRIBED_ROOMS);
+        }
+        if (roomIds.contains(null)) {
+            throw new IllegalArgumentException("Room id should not be empty");
+        }
+        return roomAvailabilityBroadcaster.subscribe(roomIds.stream().distinct().toList());
     }
-}
\ No newline at end of file
+}
@@ -1,10 +1,16 @@
 package rodionova.dev.reservation_system.reservations.availability;
 
+import io.micrometer.core.annotation.Timed;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import rodionova.dev.reservation_system.reservations.ReservationRepository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import rodionova.dev.reservation_system.reservations.ReservationMetrics;
 import rodionova.dev.reservation_system.reservations.ReservationStatus;
+import rodionova.dev.reservation_system.reservations.replica.ReplicaReads;
+import rodionova.dev.reservation_system.reservations.store.ReservationStore;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -12,24 +18,95 @@ import java.util.List;
 @Service
 public class ReservationAvalabilityService {
 
-    private final ReservationRepository reservationRepository;
+    private final ReservationStore reservationStore;
+    private final RoomAvailabilityIndex roomAvailabilityIndex;
+    private final ReservationMetrics reservationMetrics;
+    private final RoomAvailabilityBroadcaster roomAvailabilityBroadcaster;
+    private final ReplicaReads replicaReads;
+    private final boolean inMemoryIndexEnabled;
     private final Logger log = LoggerFactory.getLogger(ReservationAvalabilityService.class);
 
-    public ReservationAvalabilityService(ReservationRepository reservationRepository) {
-        this.reservationRepository = reservationRepository;
-
-
+    public ReservationAvalabilityService(ReservationStore reservationStore,
+                                         RoomAvailabilityIndex roomAvailabilityIndex,
+                                         ReservationMetrics reservationMetrics,
+                                         RoomAvailabilityBroadcaster roomAvailabilityBroadcaster,
+                                         ReplicaReads replicaReads,
+                                         // The index follows the outbox, which the memory engine does not have
+                                         @Value("#{${reservation.availability.in-memory-index.enabled:false} and '${reservation.store.engine:jpa}' == 'jpa'}")
+                                         boolean inMemoryIndexEnabled) {
+        this.reservationStore = reservationStore;
+        this.roomAvailabilityIndex = roomAvailabilityIndex;
+        this.reservationMetrics = reservationMetrics;
+        this.roomAvailabilityBroadcaster = roomAvailabilityBroadcaster;
+        this.replicaReads = replicaReads;
+        this.inMemoryIndexEnabled = inMemoryIndexEnabled;
     }
 
+    @Timed(value = "reservation.availability", extraTags = {"operation", "check"})
     public boolean isReservationAvailable(Long roomId, LocalDate startDate, LocalDate endDate) {
+        if (inMemoryIndexEnabled) {
+            boolean available = !roomAvailabilityIndex.hasConflict(roomId, startDate, endDate);
+            reservationMetrics.recordAvailabilityCheck(ReservationMetrics.SOURCE_INDEX, available);
+            return available;
+        }
+        return replicaReads.execute(() -> hasNoConflicts(roomId, startDate, endDate));
+    }
 
-        List<Long> conflictIds = reservationRepository
+    /**
+     * Always asks the primary: approvals must see rows committed by other nodes, which the index and the replicas
+     * may not have yet.
+     */
+    public boolean isReservationAvailableForApproval(Long roomId, LocalDate startDate, LocalDate endDate) {
+        return hasNoConflicts(roomId, startDate, endDate);
+    }
+
+    private boolean hasNoConflicts(Long roomId, LocalDate startDate, LocalDate endDate) {
+        List<Long> conflictIds = reservationStore
                 .findConflictReservations(roomId, startDate, endDate, ReservationStatus.APPROVED);
+        reservationMetrics.recordAvailabilityCheck(ReservationMetrics.SOURCE_DATABASE, conflictIds.isEmpty());
         if (conflictIds.isEmpty()) {
             return true;
         } else {
-            log.info("Conflicting with ids=" + conflictIds);
+            log.debug("Conflicting with ids={}", conflictIds);
             return false;
         }
     }
+
+    public void onReservationApproved(Long reservationId, Long roomId, LocalDate startDate, LocalDate endDate) {
+        if (inMemoryIndexEnabled) {
+            roomAvailabilityIndex.add(reservationId, roomId, startDate, endDate);
+        }
+        roomAvailabilityBroadcaster.publish(
+                new AvailabilityDelta(roomId, startDate, endDate, AvailabilityStatus.RESERVED, reservationId));
+    }
+
+    /**
+     * Inside a transaction the interval leaves the index on commit: removed earlier, a rollback would leave its
+     * nights looking available while the row is still APPROVED.
+     */
+    public void onReservationReleased(Long reservationId) {
+        if (!inMemoryIndexEnabled) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    roomAvailabilityIndex.remove(reservationId);
+                }
+            });
+            return;
+        }
+        roomAvailabilityIndex.remove(reservationId);
+    }
+
+    /**
+     * For an APPROVED reservation that was cancelled or deleted: approved reservations never overlap,
+     * so its nights are available again.
+     */
+    public void onApprovedReservationReleased(Long reservationId, Long roomId, LocalDate startDate, LocalDate endDate) {
+        onReservationReleased(reservationId);
+        roomAvailabilityBroadcaster.publish(
+                new AvailabilityDelta(roomId, startDate, endDate, AvailabilityStatus.AVAILABLE, reservationId));
+    }
 }
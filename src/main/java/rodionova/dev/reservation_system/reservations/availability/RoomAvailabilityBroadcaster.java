@@ -0,0 +1,142 @@
+package rodionova.dev.reservation_system.reservations.availability;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import rodionova.dev.reservation_system.reservations.ReservationMetrics;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Fans availability deltas out to SSE subscribers by room. Publishing only appends to the buffers of the room's
+ * subscribers; writes to the connections run on short-lived virtual threads, one per subscriber with pending data.
+ * A subscriber whose buffer is full is disconnected instead of silently missing a delta: the client reconnects
+ * and reloads its calendar.
+ * <p>
+ * Deltas come from the approvals and releases of this node only: a subscriber connected to one node does not hear
+ * about reservations changed through another. Relayed outbox events would not close the gap, since the relays of
+ * several nodes take turns and each event reaches the sinks of one node. The endpoint is meant for a single node.
+ */
+@Component
+public class RoomAvailabilityBroadcaster implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(RoomAvailabilityBroadcaster.class);
+
+    private final Map<Long, Set<AvailabilitySubscriber>> subscribersByRoom = new ConcurrentHashMap<>();
+
+    private final Set<AvailabilitySubscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final ReservationMetrics reservationMetrics;
+
+    private final int bufferSize;
+
+    private final Supplier<SseEmitter> emitters;
+
+    @Autowired
+    public RoomAvailabilityBroadcaster(ReservationMetrics reservationMetrics,
+                                       MeterRegistry meterRegistry,
+                                       @Value("${reservation.availability.subscriptions.buffer-size:64}") int bufferSize) {
+        this(reservationMetrics, meterRegistry, bufferSize, SseEmitter::new);
+    }
+
+    public RoomAvailabilityBroadcaster(ReservationMetrics reservationMetrics,
+                                       MeterRegistry meterRegistry,
+                                       int bufferSize,
+                                       Supplier<SseEmitter> emitters) {
+        this.reservationMetrics = reservationMetrics;
+        this.bufferSize = bufferSize;
+        this.emitters = emitters;
+        meterRegistry.gauge("reservation.availability.subscribers", subscribers, Set::size);
+    }
+
+    public SseEmitter subscribe(List<Long> roomIds) {
+        var emitter = emitters.get();
+        var subscriber = new AvailabilitySubscriber(emitter, List.copyOf(roomIds), bufferSize, executor);
+        subscribers.add(subscriber);
+        for (Long roomId : subscriber.roomIds()) {
+            subscribersByRoom.compute(roomId, (key, roomSubscribers) -> {
+                var updated = roomSubscribers != null ? roomSubscribers : ConcurrentHashMap.<AvailabilitySubscriber>newKeySet();
+                updated.add(subscriber);
+                return updated;
+            });
+        }
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(error -> remove(subscriber));
+        return emitter;
+    }
+
+    /**
+     * Sends the delta once the current transaction commits, or right away outside a transaction.
+     */
+    public void publish(AvailabilityDelta delta) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    fanOut(delta);
+                }
+            });
+            return;
+        }
+        fanOut(delta);
+    }
+
+    /**
+     * Keeps idle connections open through proxies and detects clients that went away without closing.
+     */
+    @Scheduled(fixedDelayString = "${reservation.availability.subscriptions.heartbeat:30s}")
+    public void heartbeat() {
+        subscribers.forEach(subscriber -> offer(subscriber, AvailabilitySubscriber.HEARTBEAT));
+    }
+
+    @Override
+    public void destroy() {
+        subscribers.forEach(this::remove);
+        executor.shutdownNow();
+    }
+
+    private void fanOut(AvailabilityDelta delta) {
+        var roomSubscribers = subscribersByRoom.get(delta.roomId());
+        if (roomSubscribers != null) {
+            roomSubscribers.forEach(subscriber -> offer(subscriber, delta));
+        }
+    }
+
+    private void offer(AvailabilitySubscriber subscriber, Object message) {
+        if (!subscriber.offer(message)) {
+            log.debug("Disconnecting a slow availability subscriber");
+            reservationMetrics.recordAvailabilitySubscriberDropped();
+            remove(subscriber);
+        }
+    }
+
+    private void remove(AvailabilitySubscriber subscriber) {
+        if (!subscribers.remove(subscriber)) {
+            return;
+        }
+        for (Long roomId : subscriber.roomIds()) {
+            subscribersByRoom.computeIfPresent(roomId, (key, roomSubscribers) -> {
+                roomSubscribers.remove(subscriber);
+                return roomSubscribers.isEmpty() ? null : roomSubscribers;
+            });
+        }
+        subscriber.close();
+    }
+}
@@ -0,0 +1,218 @@
+package rodionova.dev.reservation_system.reservations.availability;
+
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-process index of APPROVED date ranges per room.
+ * Reads are lock-free: every room holds an immutable sorted array that is replaced on write.
+ * Writes are serialized by one lock, so moving a reservation between rooms updates both maps as one step
+ * even when the catch-up scan and commit callbacks touch the same reservation.
+ */
+@Component
+public class RoomAvailabilityIndex {
+
+    private final ConcurrentHashMap<Long, RoomIntervals> intervalsByRoom = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<Long, Long> roomByReservationId = new ConcurrentHashMap<>();
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    public boolean hasConflict(Long roomId, LocalDate startDate, LocalDate endDate) {
+        RoomIntervals intervals = intervalsByRoom.get(roomId);
+        return intervals != null
+                && intervals.overlaps(startDate.toEpochDay(), endDate.toEpochDay());
+    }
+
+    public void add(Long reservationId, Long roomId, LocalDate startDate, LocalDate endDate) {
+        writeLock.lock();
+        try {
+            removeLocked(reservationId);
+            roomByReservationId.put(reservationId, roomId);
+            intervalsByRoom.compute(roomId, (key, intervals) -> (intervals == null ? RoomIntervals.EMPTY : intervals)
+                    .with(reservationId, startDate.toEpochDay(), endDate.toEpochDay()));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public void remove(Long reservationId) {
+        writeLock.lock();
+        try {
+            removeLocked(reservationId);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void removeLocked(Long reservationId) {
+        Long roomId = roomByReservationId.remove(reservationId);
+        if (roomId == null) {
+            return;
+        }
+        intervalsByRoom.computeIfPresent(roomId, (key, intervals) -> {
+            RoomIntervals left = intervals.without(reservationId);
+            return left.isEmpty() ? null : left;
+        });
+    }
+
+    public void load(Collection<IndexedInterval> approvedIntervals) {
+        Map<Long, List<IndexedInterval>> byRoom = new HashMap<>();
+        for (IndexedInterval interval : approvedIntervals) {
+            byRoom.computeIfAbsent(interval.roomId(), key -> new ArrayList<>()).add(interval);
+        }
+        writeLock.lock();
+        try {
+            intervalsByRoom.clear();
+            roomByReservationId.clear();
+            byRoom.forEach((roomId, intervals) -> {
+                intervalsByRoom.put(roomId, RoomIntervals.of(intervals));
+                intervals.forEach(interval -> roomByReservationId.put(interval.reservationId(), roomId));
+            });
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public int size() {
+        return roomByReservationId.size();
+    }
+
+    /**
+     * Every indexed range; each room's ranges are read from one version of its array.
+     */
+    public List<IndexedInterval> intervals() {
+        var intervals = new ArrayList<IndexedInterval>(roomByReservationId.size());
+        intervalsByRoom.forEach((roomId, roomIntervals) -> roomIntervals.addTo(roomId, intervals));
+        return intervals;
+    }
+
+    public record IndexedInterval(
+            Long reservationId,
+            Long roomId,
+            LocalDate startDate,
+            LocalDate endDate
+    ) {
+    }
+
+    /**
+     * Intervals sorted by start day. {@code maxEnds[i]} is the greatest end day among the first i + 1
+     * intervals, so an overlap query is a single binary search even if stored ranges overlap each other.
+     */
+    private static final class RoomIntervals {
+
+        private static final RoomIntervals EMPTY = new RoomIntervals(new long[0], new long[0], new long[0]);
+
+        private final long[] ids;
+        private final long[] starts;
+        private final long[] ends;
+        private final long[] maxEnds;
+
+        private RoomIntervals(long[] ids, long[] starts, long[] ends) {
+            this.ids = ids;
+            this.starts = starts;
+            this.ends = ends;
+            this.maxEnds = new long[ends.length];
+            long max = Long.MIN_VALUE;
+            for (int i = 0; i < ends.length; i++) {
+                max = Math.max(max, ends[i]);
+                maxEnds[i] = max;
+            }
+        }
+
+        static RoomIntervals of(List<IndexedInterval> intervals) {
+            IndexedInterval[] sorted = intervals.toArray(IndexedInterval[]::new);
+            Arrays.sort(sorted, (a, b) -> a.startDate().compareTo(b.startDate()));
+            long[] ids = new long[sorted.length];
+            long[] starts = new long[sorted.length];
+            long[] ends = new long[sorted.length];
+            for (int i = 0; i < sorted.length; i++) {
+                ids[i] = sorted[i].reservationId();
+                starts[i] = sorted[i].startDate().toEpochDay();
+                ends[i] = sorted[i].endDate().toEpochDay();
+            }
+            return new RoomIntervals(ids, starts, ends);
+        }
+
+        boolean isEmpty() {
+            return ids.length == 0;
+        }
+
+        void addTo(Long roomId, List<IndexedInterval> intervals) {
+            for (int i = 0; i < ids.length; i++) {
+                intervals.add(new IndexedInterval(ids[i], roomId,
+                        LocalDate.ofEpochDay(starts[i]), LocalDate.ofEpochDay(ends[i])));
+            }
+        }
+
+        boolean overlaps(long startDay, long endDay) {
+            int last = lastStartingOnOrBefore(endDay);
+            return last >= 0 && maxEnds[last] >= startDay;
+        }
+
+        RoomIntervals with(long id, long startDay, long endDay) {
+            int position = lastStartingOnOrBefore(startDay) + 1;
+            int length = ids.length + 1;
+            long[] newIds = new long[length];
+            long[] newStarts = new long[length];
+            long[] newEnds = new long[length];
+            System.arraycopy(ids, 0, newIds, 0, position);
+            System.arraycopy(starts, 0, newStarts, 0, position);
+            System.arraycopy(ends, 0, newEnds, 0, position);
+            newIds[position] = id;
+            newStarts[position] = startDay;
+            newEnds[position] = endDay;
+            System.arraycopy(ids, position, newIds, position + 1, ids.length - position);
+            System.arraycopy(starts, position, newStarts, position + 1, ids.length - position);
+            System.arraycopy(ends, position, newEnds, position + 1, ids.length - position);
+            return new RoomIntervals(newIds, newStarts, newEnds);
+        }
+
+        RoomIntervals without(long id) {
+            int position = -1;
+            for (int i = 0; i < ids.length; i++) {
+                if (ids[i] == id) {
+                    position = i;
+                    break;
+                }
+            }
+            if (position < 0) {
+                return this;
+            }
+            int length = ids.length - 1;
+            long[] newIds = new long[length];
+            long[] newStarts = new long[length];
+            long[] newEnds = new long[length];
+            System.arraycopy(ids, 0, newIds, 0, position);
+            System.arraycopy(starts, 0, newStarts, 0, position);
+            System.arraycopy(ends, 0, newEnds, 0, position);
+            System.arraycopy(ids, position + 1, newIds, position, length - position);
+            System.arraycopy(starts, position + 1, newStarts, position, length - position);
+            System.arraycopy(ends, position + 1, newEnds, position, length - position);
+            return new RoomIntervals(newIds, newStarts, newEnds);
+        }
+
+        private int lastStartingOnOrBefore(long day) {
+            int low = 0;
+            int high = starts.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (starts[mid] <= day) {
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return high;
+        }
+    }
+}
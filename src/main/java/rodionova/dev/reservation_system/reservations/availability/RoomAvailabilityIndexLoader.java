@@ -0,0 +1,202 @@
+package rodionova.dev.reservation_system.reservations.availability;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import rodionova.dev.reservation_system.reservations.Reservation;
+import rodionova.dev.reservation_system.reservations.ReservationMetrics;
+import rodionova.dev.reservation_system.reservations.ReservationStatus;
+import rodionova.dev.reservation_system.reservations.outbox.ReservationEvent;
+import rodionova.dev.reservation_system.reservations.outbox.ReservationEventFeed;
+import rodionova.dev.reservation_system.reservations.outbox.ReservationEventType;
+import rodionova.dev.reservation_system.reservations.store.ReservationStore;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Fills the availability index before the server starts and keeps it in step with the outbox. The index is saved
+ * with the outbox position it reflects every snapshot-interval and on shutdown; a restart maps that file and
+ * replays the events published after the position, plus the committed ones not published yet, instead of reading
+ * every APPROVED row. Events are whole reservations applied in order, so replaying one the snapshot already holds
+ * changes nothing. Without a usable snapshot, or when the retention cleanup has deleted events it would need, the
+ * index is read from the store.
+ */
+@Component
+@ConditionalOnProperty(name = "reservation.availability.in-memory-index.enabled", havingValue = "true")
+@ConditionalOnProperty(name = "reservation.store.engine", havingValue = "jpa", matchIfMissing = true)
+public class RoomAvailabilityIndexLoader implements SmartInitializingSingleton, DisposableBean {
+
+    static final String SOURCE_SNAPSHOT = "snapshot";
+
+    static final String SOURCE_STORE = "store";
+
+    private static final int PAGE_SIZE = 1000;
+
+    private static final Logger log = LoggerFactory.getLogger(RoomAvailabilityIndexLoader.class);
+
+    private final RoomAvailabilityIndex roomAvailabilityIndex;
+
+    private final ReservationStore reservationStore;
+
+    private final ReservationEventFeed reservationEventFeed;
+
+    private final ReservationMetrics reservationMetrics;
+
+    private final AvailabilitySnapshotFile snapshotFile;
+
+    private volatile long appliedPosition;
+
+    private volatile boolean loaded;
+
+    public RoomAvailabilityIndexLoader(RoomAvailabilityIndex roomAvailabilityIndex,
+                                       ReservationStore reservationStore,
+                                       ReservationEventFeed reservationEventFeed,
+                                       ReservationMetrics reservationMetrics,
+                                       @Value("${reservation.availability.in-memory-index.snapshot.path:data/availability-index.bin}")
+                                       String snapshotPath) {
+        this.roomAvailabilityIndex = roomAvailabilityIndex;
+        this.reservationStore = reservationStore;
+        this.reservationEventFeed = reservationEventFeed;
+        this.reservationMetrics = reservationMetrics;
+        this.snapshotFile = new AvailabilitySnapshotFile(Path.of(snapshotPath));
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        long started = System.nanoTime();
+        String source = SOURCE_SNAPSHOT;
+        if (!loadSnapshot()) {
+            reloadFromStore();
+            source = SOURCE_STORE;
+        }
+        loaded = true;
+        long elapsed = System.nanoTime() - started;
+        reservationMetrics.recordAvailabilityIndexLoad(source, elapsed);
+        log.info("In-memory availability index ready with {} approved reservations from the {} in {} ms",
+                roomAvailabilityIndex.size(), source, elapsed / 1_000_000);
+    }
+
+    @Scheduled(fixedDelayString = "${reservation.availability.in-memory-index.catch-up-interval:1s}")
+    public void run() {
+        try {
+            catchUp();
+        } catch (RuntimeException e) {
+            log.warn("Availability index catch-up failed, retrying on the next run", e);
+        }
+    }
+
+    /**
+     * Applies the events published since the last run.
+     */
+    public synchronized int catchUp() {
+        int applied = 0;
+        List<ReservationEvent> events;
+        do {
+            events = reservationEventFeed.publishedAfter(appliedPosition, PAGE_SIZE);
+            events.forEach(this::apply);
+            if (!events.isEmpty()) {
+                appliedPosition = events.getLast().position();
+            }
+            applied += events.size();
+        } while (events.size() == PAGE_SIZE);
+        reservationMetrics.recordAvailabilityIndexEvents(applied);
+        return applied;
+    }
+
+    @Scheduled(fixedDelayString = "${reservation.availability.in-memory-index.snapshot-interval:5m}",
+            initialDelayString = "${reservation.availability.in-memory-index.snapshot-interval:5m}")
+    public void saveSnapshot() {
+        try {
+            writeSnapshot();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not save the availability index, retrying on the next run", e);
+        }
+    }
+
+    /**
+     * The position is read before the index, so the file never claims events its content may lack.
+     */
+    public synchronized void writeSnapshot() throws IOException {
+        long position = appliedPosition;
+        snapshotFile.write(position, roomAvailabilityIndex.intervals());
+    }
+
+    @Override
+    public void destroy() {
+        if (loaded) {
+            saveSnapshot();
+        }
+    }
+
+    private boolean loadSnapshot() {
+        AvailabilitySnapshotFile.Content content;
+        try {
+            content = snapshotFile.read();
+        } catch (IOException e) {
+            log.warn("Ignoring the availability index snapshot", e);
+            return false;
+        }
+        if (content == null) {
+            return false;
+        }
+        long lastPosition = reservationEventFeed.lastPosition();
+        Long firstPosition = reservationEventFeed.firstPosition();
+        boolean eventsKept = content.position() == lastPosition
+                || (content.position() < lastPosition && firstPosition != null && firstPosition <= content.position() + 1);
+        if (!eventsKept) {
+            log.info("Availability index snapshot at position {} is out of reach of the outbox (positions {} to {})",
+                    content.position(), firstPosition, lastPosition);
+            return false;
+        }
+        roomAvailabilityIndex.load(content.intervals());
+        appliedPosition = content.position();
+        int published = catchUp();
+        int unpublished = 0;
+        List<ReservationEvent> events;
+        ReservationEvent last = null;
+        do {
+            events = reservationEventFeed.unpublishedAfter(last, PAGE_SIZE);
+            events.forEach(this::apply);
+            unpublished += events.size();
+            last = events.isEmpty() ? last : events.getLast();
+        } while (events.size() == PAGE_SIZE);
+        log.info("Loaded {} approved reservations at position {}, then {} published and {} unpublished events",
+                content.intervals().size(), content.position(), published, unpublished);
+        return true;
+    }
+
+    /**
+     * Reads every APPROVED row again, for rows written around the outbox.
+     */
+    public synchronized void reloadFromStore() {
+        // Events published from here on are replayed over the rows read next; the ones before are in those rows
+        appliedPosition = reservationEventFeed.lastPosition();
+        var approved = reservationStore.findAllByStatus(ReservationStatus.APPROVED).stream()
+                .map(reservation -> new RoomAvailabilityIndex.IndexedInterval(
+                        reservation.id(),
+                        reservation.roomId(),
+                        reservation.startDate(),
+                        reservation.endDate()))
+                .toList();
+        roomAvailabilityIndex.load(approved);
+    }
+
+    private void apply(ReservationEvent event) {
+        Reservation reservation = event.reservation();
+        // Deleted and archived rows are gone whatever status they had
+        boolean removed = event.type() == ReservationEventType.DELETED || event.type() == ReservationEventType.ARCHIVED;
+        if (!removed && reservation.status() == ReservationStatus.APPROVED) {
+            roomAvailabilityIndex.add(reservation.id(), reservation.roomId(),
+                    reservation.startDate(), reservation.endDate());
+        } else {
+            roomAvailabilityIndex.remove(event.reservationId());
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package rodionova.dev.reservation_system.reservations.availability;
+
+import java.util.List;
+
+/**
+ * {@code occupancy} has one character per day of the requested window: '1' when an APPROVED reservation
+ * covers the day, '0' when the room is free.
+ */
+public record RoomCalendar(
+        Long roomId,
+        String occupancy,
+        List<DateInterval> freeIntervals
+) {
+}
@@ -0,0 +1,17 @@
+package rodionova.dev.reservation_system.reservations.availability;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public record RoomCalendarRequest(
+        @NotEmpty
+        List<Long> roomIds,
+        @NotNull
+        LocalDate from,
+        @NotNull
+        LocalDate to) {
+
+}
@@ -0,0 +1,11 @@
+package rodionova.dev.reservation_system.reservations.availability;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public record RoomCalendarResponse(
+        LocalDate from,
+        LocalDate to,
+        List<RoomCalendar> rooms
+) {
+}
@@ -0,0 +1,105 @@
+package rodionova.dev.reservation_system.reservations.availability;
+
+import io.micrometer.core.annotation.Timed;
+import org.springframework.stereotype.Service;
+import rodionova.dev.reservation_system.reservations.Reservation;
+import rodionova.dev.reservation_system.reservations.ReservationStatus;
+import rodionova.dev.reservation_system.reservations.replica.ReplicaReads;
+import rodionova.dev.reservation_system.reservations.store.ReservationStore;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+@Service
+public class RoomCalendarService {
+
+    static final int MAX_ROOMS = 500;
+
+    static final int MAX_DAYS = 366;
+
+    private final ReservationStore reservationStore;
+
+    private final ReplicaReads replicaReads;
+
+    public RoomCalendarService(ReservationStore reservationStore, ReplicaReads replicaReads) {
+        this.reservationStore = reservationStore;
+        this.replicaReads = replicaReads;
+    }
+
+    @Timed(value = "reservation.availability", extraTags = {"operation", "calendar"})
+    public RoomCalendarResponse getCalendar(RoomCalendarRequest request) {
+        return getCalendar(request, null);
+    }
+
+    /**
+     * @param timeout how long the query may run before the database cancels it, null for no limit
+     */
+    @Timed(value = "reservation.availability", extraTags = {"operation", "calendar"})
+    public RoomCalendarResponse getCalendar(RoomCalendarRequest request, Duration timeout) {
+        var roomIds = new LinkedHashSet<>(request.roomIds());
+        roomIds.remove(null);
+        if (roomIds.isEmpty() || roomIds.size() > MAX_ROOMS) {
+            throw new IllegalArgumentException("Number of rooms should be between 1 and " + MAX_ROOMS);
+        }
+        if (request.to().isBefore(request.from())) {
+            throw new IllegalArgumentException("Calendar end should not be before its start");
+        }
+        int days = (int) ChronoUnit.DAYS.between(request.from(), request.to()) + 1;
+        if (days > MAX_DAYS) {
+            throw new IllegalArgumentException("Calendar window should not be longer than " + MAX_DAYS + " days");
+        }
+
+        var intervalsByRoom = new HashMap<Long, List<long[]>>();
+        var approved = replicaReads.execute(() -> timeout == null
+                ? reservationStore.findReservationsOverlapping(
+                        roomIds, request.from(), request.to(), ReservationStatus.APPROVED)
+                : reservationStore.findReservationsOverlapping(
+                        roomIds, request.from(), request.to(), ReservationStatus.APPROVED, timeout));
+        for (Reservation reservation : approved) {
+            intervalsByRoom.computeIfAbsent(reservation.roomId(), key -> new ArrayList<>())
+                    .add(new long[]{
+                            Math.max(0, ChronoUnit.DAYS.between(request.from(), reservation.startDate())),
+                            Math.min(days - 1, ChronoUnit.DAYS.between(request.from(), reservation.endDate()))});
+        }
+
+        var rooms = new ArrayList<RoomCalendar>(roomIds.size());
+        for (Long roomId : roomIds) {
+            rooms.add(sweep(roomId, request.from(), days, intervalsByRoom.getOrDefault(roomId, List.of())));
+        }
+        return new RoomCalendarResponse(request.from(), request.to(), rooms);
+    }
+
+    /**
+     * Walks the room's intervals in start order, merging overlaps, and emits the occupied days and the gaps between them.
+     */
+    private RoomCalendar sweep(Long roomId, LocalDate from, int days, List<long[]> intervals) {
+        long[][] sorted = intervals.toArray(long[][]::new);
+        Arrays.sort(sorted, (a, b) -> Long.compare(a[0], b[0]));
+
+        char[] occupancy = new char[days];
+        Arrays.fill(occupancy, '0');
+        var freeIntervals = new ArrayList<DateInterval>();
+        long nextFreeDay = 0;
+        for (long[] interval : sorted) {
+            if (interval[1] < nextFreeDay) {
+                continue;
+            }
+            long occupiedFrom = Math.max(interval[0], nextFreeDay);
+            if (occupiedFrom > nextFreeDay) {
+                freeIntervals.add(new DateInterval(from.plusDays(nextFreeDay), from.plusDays(occupiedFrom - 1)));
+            }
+            Arrays.fill(occupancy, (int) occupiedFrom, (int) interval[1] + 1, '1');
+            nextFreeDay = interval[1] + 1;
+        }
+        if (nextFreeDay < days) {
+            freeIntervals.add(new DateInterval(from.plusDays(nextFreeDay), from.plusDays(days - 1)));
+        }
+        return new RoomCalendar(roomId, new String(occupancy), freeIntervals);
+    }
+}
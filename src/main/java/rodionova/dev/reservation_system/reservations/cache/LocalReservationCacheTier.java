@@ -0,0 +1,45 @@
+package rodionova.dev.reservation_system.reservations.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import rodionova.dev.reservation_system.reservations.Reservation;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Local stand-in for a shared cache, for development and tests without external infrastructure. Bounded and
+ * expiring like a shared cache would be configured, so a missed eviction does not keep a row forever.
+ */
+@Component
+@ConditionalOnProperty(name = "reservation.cache.second-tier", havingValue = "local")
+public class LocalReservationCacheTier implements ReservationCacheTier {
+
+    private final Cache<Long, Reservation> reservations;
+
+    public LocalReservationCacheTier(@Value("${reservation.cache.local-tier.maximum-size:100000}") long maximumSize,
+                                     @Value("${reservation.cache.local-tier.ttl:5m}") Duration ttl) {
+        this.reservations = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    @Override
+    public Optional<Reservation> get(Long id) {
+        return Optional.ofNullable(reservations.getIfPresent(id));
+    }
+
+    @Override
+    public void put(Long id, Reservation reservation) {
+        reservations.put(id, reservation);
+    }
+
+    @Override
+    public void evict(Long id) {
+        reservations.invalidate(id);
+    }
+}
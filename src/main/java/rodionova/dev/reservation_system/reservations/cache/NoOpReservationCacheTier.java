@@ -0,0 +1,25 @@
+package rodionova.dev.reservation_system.reservations.cache;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import rodionova.dev.reservation_system.reservations.Reservation;
+
+import java.util.Optional;
+
+@Component
+@ConditionalOnProperty(name = "reservation.cache.second-tier", havingValue = "none", matchIfMissing = true)
+public class NoOpReservationCacheTier implements ReservationCacheTier {
+
+    @Override
+    public Optional<Reservation> get(Long id) {
+        return Optional.empty();
+    }
+
+    @Override
+    public void put(Long id, Reservation reservation) {
+    }
+
+    @Override
+    public void evict(Long id) {
+    }
+}
@@ -0,0 +1,85 @@
+package rodionova.dev.reservation_system.reservations.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import rodionova.dev.reservation_system.reservations.Reservation;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Read-through cache of reservations by id. The first tier is a bounded Caffeine cache; a miss there
+ * falls through to the second tier and then to the loader.
+ */
+@Component
+public class ReservationCache {
+
+    private final Cache<Long, Reservation> localCache;
+
+    private final ReservationCacheTier secondTier;
+
+    private final boolean enabled;
+
+    public ReservationCache(ReservationCacheTier secondTier,
+                            MeterRegistry meterRegistry,
+                            @Value("${reservation.cache.enabled:true}") boolean enabled,
+                            @Value("${reservation.cache.maximum-size:10000}") long maximumSize,
+                            @Value("${reservation.cache.ttl:30s}") Duration ttl) {
+        this.secondTier = secondTier;
+        this.enabled = enabled;
+        this.localCache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, localCache, "reservations");
+    }
+
+    public Reservation get(Long id, Function<Long, Reservation> loader) {
+        if (!enabled) {
+            return loader.apply(id);
+        }
+        // Caffeine runs one load per key at a time, and an invalidation waits for a running load of the same key,
+        // so a value read before a write committed cannot outlive the eviction that follows the commit
+        return localCache.get(id, key -> secondTier.get(key).orElseGet(() -> {
+            var reservation = loader.apply(key);
+            secondTier.put(key, reservation);
+            return reservation;
+        }));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void evict(Long id) {
+        if (!enabled) {
+            return;
+        }
+        evictFromAllTiers(id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Readers may reload the old row until the writing transaction completes
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evictFromAllTiers(id);
+                }
+            });
+        }
+    }
+
+    /**
+     * The local tier goes first: invalidating waits for a running load, which may still put the row it read into
+     * the second tier, so that tier is only evicted once the load is done.
+     */
+    private void evictFromAllTiers(Long id) {
+        localCache.invalidate(id);
+        secondTier.evict(id);
+    }
+}
@@ -0,0 +1,18 @@
+package rodionova.dev.reservation_system.reservations.cache;
+
+import rodionova.dev.reservation_system.reservations.Reservation;
+
+import java.util.Optional;
+
+/**
+ * Second cache tier shared between nodes (for example Redis). Evictions go to every tier,
+ * so a write on one node is visible to the others once their short-lived first tier expires.
+ */
+public interface ReservationCacheTier {
+
+    Optional<Reservation> get(Long id);
+
+    void put(Long id, Reservation reservation);
+
+    void evict(Long id);
+}
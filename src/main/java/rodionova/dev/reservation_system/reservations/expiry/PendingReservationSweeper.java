@@ -0,0 +1,96 @@
+package rodionova.dev.reservation_system.reservations.expiry;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import rodionova.dev.reservation_system.reservations.Reservation;
+import rodionova.dev.reservation_system.reservations.ReservationMetrics;
+import rodionova.dev.reservation_system.reservations.cache.ReservationCache;
+import rodionova.dev.reservation_system.reservations.outbox.ReservationEventType;
+import rodionova.dev.reservation_system.reservations.outbox.ReservationOutbox;
+import rodionova.dev.reservation_system.reservations.store.ReservationStore;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Expires PENDING reservations older than the TTL through {@link ReservationStore#expirePendingBefore}, one
+ * transaction per batch that also appends an EXPIRED outbox event per row.
+ */
+@Component
+@ConditionalOnProperty(name = "reservation.expiry.enabled", havingValue = "true", matchIfMissing = true)
+public class PendingReservationSweeper {
+
+    private static final Logger log = LoggerFactory.getLogger(PendingReservationSweeper.class);
+
+    private final ReservationStore reservationStore;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ReservationCache reservationCache;
+
+    private final ReservationMetrics reservationMetrics;
+
+    private final ReservationOutbox reservationOutbox;
+
+    private final Duration pendingTtl;
+
+    private final int batchSize;
+
+    public PendingReservationSweeper(ReservationStore reservationStore,
+                                     PlatformTransactionManager transactionManager,
+                                     ReservationCache reservationCache,
+                                     ReservationMetrics reservationMetrics,
+                                     ReservationOutbox reservationOutbox,
+                                     @Value("${reservation.expiry.pending-ttl:30m}") Duration pendingTtl,
+                                     @Value("${reservation.expiry.batch-size:500}") int batchSize) {
+        this.reservationStore = reservationStore;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.reservationCache = reservationCache;
+        this.reservationMetrics = reservationMetrics;
+        this.reservationOutbox = reservationOutbox;
+        this.pendingTtl = pendingTtl;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${reservation.expiry.interval:1m}",
+            initialDelayString = "${reservation.expiry.interval:1m}")
+    public void run() {
+        try {
+            sweep();
+        } catch (RuntimeException e) {
+            log.warn("Pending reservation sweep failed, retrying on the next run", e);
+        }
+    }
+
+    public int sweep() {
+        long started = System.nanoTime();
+        Instant createdBefore = Instant.now().minus(pendingTtl);
+        int expired = 0;
+        List<Reservation> batch;
+        do {
+            batch = transactionTemplate.execute(status -> expireBatch(createdBefore));
+            batch.forEach(reservation -> reservationCache.evict(reservation.id()));
+            expired += batch.size();
+        } while (batch.size() == batchSize);
+        reservationMetrics.recordExpirySweep(System.nanoTime() - started, expired);
+        if (expired > 0) {
+            log.info("Expired {} PENDING reservations created before {}", expired, createdBefore);
+        }
+        return expired;
+    }
+
+    private List<Reservation> expireBatch(Instant createdBefore) {
+        var expired = reservationStore.expirePendingBefore(createdBefore, batchSize);
+        if (!expired.isEmpty()) {
+            reservationOutbox.appendAll(ReservationEventType.EXPIRED, expired);
+        }
+        return expired;
+    }
+}
@@ -0,0 +1,50 @@
+package rodionova.dev.reservation_system.reservations.export;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import rodionova.dev.reservation_system.reservations.ReservationStatus;
+
+import java.time.LocalDate;
+
+@RestController
+@RequestMapping("/reservation/export")
+@ConditionalOnProperty(name = "reservation.store.engine", havingValue = "jpa", matchIfMissing = true)
+public class ReservationExportController {
+
+    private static final Logger log = LoggerFactory.getLogger(ReservationExportController.class);
+
+    private final ReservationExportService reservationExportService;
+
+    public ReservationExportController(ReservationExportService reservationExportService) {
+        this.reservationExportService = reservationExportService;
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportReservations(
+            @RequestParam(value = "roomId", required = false) Long roomId,
+            @RequestParam(value = "userId", required = false) Long userId,
+            @RequestParam(value = "status", required = false) ReservationStatus status,
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(value = "includeArchived", defaultValue = "false") boolean includeArchived
+    ) {
+        log.debug("Called the exportReservations method");
+        if (from != null && to != null && to.isBefore(from)) {
+            throw new IllegalArgumentException("Export range end should not be before its start");
+        }
+        var filter = new ReservationExportFilter(roomId, userId, status, from, to, includeArchived);
+        StreamingResponseBody body = outputStream -> reservationExportService.export(filter, outputStream);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+}
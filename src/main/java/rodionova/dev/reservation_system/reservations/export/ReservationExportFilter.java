@@ -0,0 +1,15 @@
+package rodionova.dev.reservation_system.reservations.export;
+
+import rodionova.dev.reservation_system.reservations.ReservationStatus;
+
+import java.time.LocalDate;
+
+public record ReservationExportFilter(
+        Long roomId,
+        Long userId,
+        ReservationStatus status,
+        LocalDate from,
+        LocalDate to,
+        boolean includeArchived
+) {
+}
@@ -0,0 +1,150 @@
+package rodionova.dev.reservation_system.reservations.export;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import rodionova.dev.reservation_system.reservations.Reservation;
+import rodionova.dev.reservation_system.reservations.ReservationStatus;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams reservations straight from the jpa engine's tables, so it and its endpoint exist only with that engine.
+ */
+@Service
+@ConditionalOnProperty(name = "reservation.store.engine", havingValue = "jpa", matchIfMissing = true)
+public class ReservationExportService {
+
+    static final int FETCH_SIZE = 1000;
+
+    private static final Logger log = LoggerFactory.getLogger(ReservationExportService.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ObjectMapper objectMapper;
+
+    public ReservationExportService(DataSource dataSource,
+                                    PlatformTransactionManager transactionManager,
+                                    ObjectMapper objectMapper) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(FETCH_SIZE);
+        // Postgres only streams with a cursor inside a transaction; otherwise the driver buffers the whole result.
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.objectMapper = objectMapper;
+    }
+
+    public void export(ReservationExportFilter filter, OutputStream outputStream) throws IOException {
+        long started = System.nanoTime();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+            long exported = transactionTemplate.execute(status -> {
+                long[] rows = {0};
+                jdbcTemplate.query(
+                        connection -> prepareStatement(connection, filter),
+                        (ResultSet resultSet) -> {
+                            writeLine(generator, mapRow(resultSet));
+                            rows[0]++;
+                        });
+                return rows[0];
+            });
+            generator.flush();
+            log.info("Exported {} reservations in {} ms", exported, (System.nanoTime() - started) / 1_000_000);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Archived rows are merged in by id when the filter asks for them; the archive keeps no version, so theirs is null.
+     */
+    private PreparedStatement prepareStatement(Connection connection, ReservationExportFilter filter) throws SQLException {
+        var sql = new StringBuilder("""
+                SELECT id, user_id, room_id, start_date, end_date, reservation_status, version
+                FROM reservations
+                WHERE 1 = 1
+                """);
+        List<Object> parameters = new ArrayList<>();
+        appendConditions(sql, parameters, filter);
+        if (filter.includeArchived()) {
+            sql.append("""
+
+                    UNION ALL
+                    SELECT id, user_id, room_id, start_date, end_date, reservation_status, NULL
+                    FROM reservations_archive
+                    WHERE 1 = 1
+                    """);
+            appendConditions(sql, parameters, filter);
+        }
+        sql.append(" ORDER BY id");
+
+        PreparedStatement statement = connection.prepareStatement(
+                sql.toString(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        statement.setFetchSize(FETCH_SIZE);
+        for (int i = 0; i < parameters.size(); i++) {
+            statement.setObject(i + 1, parameters.get(i));
+        }
+        return statement;
+    }
+
+    private void appendConditions(StringBuilder sql, List<Object> parameters, ReservationExportFilter filter) {
+        if (filter.roomId() != null) {
+            sql.append(" AND room_id = ?");
+            parameters.add(filter.roomId());
+        }
+        if (filter.userId() != null) {
+            sql.append(" AND user_id = ?");
+            parameters.add(filter.userId());
+        }
+        if (filter.status() != null) {
+            sql.append(" AND reservation_status = ?");
+            parameters.add(filter.status().name());
+        }
+        if (filter.from() != null) {
+            sql.append(" AND end_date >= ?");
+            parameters.add(Date.valueOf(filter.from()));
+        }
+        if (filter.to() != null) {
+            sql.append(" AND start_date <= ?");
+            parameters.add(Date.valueOf(filter.to()));
+        }
+    }
+
+    private Reservation mapRow(ResultSet resultSet) throws SQLException {
+        String status = resultSet.getString("reservation_status");
+        return new Reservation(
+                resultSet.getLong("id"),
+                resultSet.getLong("user_id"),
+                resultSet.getLong("room_id"),
+                resultSet.getDate("start_date").toLocalDate(),
+                resultSet.getDate("end_date").toLocalDate(),
+                status != null ? ReservationStatus.valueOf(status) : null,
+                resultSet.getObject("version", Long.class));
+    }
+
+    private void writeLine(JsonGenerator generator, Reservation reservation) {
+        try {
+            generator.writeObject(reservation);
+            generator.writeRaw('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package rodionova.dev.reservation_system.reservations.idempotency;
+
+/**
+ * Outcome of {@link IdempotencyStore#claim}: the caller either owns the key and must execute the request,
+ * or gets the response stored for it. An owner completes or releases the key with its token.
+ */
+public record IdempotencyClaim(boolean acquired, String token, StoredResponse response) {
+
+    static IdempotencyClaim execute(String token) {
+        return new IdempotencyClaim(true, token, null);
+    }
+
+    static IdempotencyClaim replay(StoredResponse response) {
+        return new IdempotencyClaim(false, null, response);
+    }
+}
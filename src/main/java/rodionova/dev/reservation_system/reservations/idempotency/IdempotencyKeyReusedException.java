@@ -0,0 +1,8 @@
+package rodionova.dev.reservation_system.reservations.idempotency;
+
+public class IdempotencyKeyReusedException extends RuntimeException {
+
+    public IdempotencyKeyReusedException() {
+        super("Idempotency-Key was already used for a different request");
+    }
+}
@@ -0,0 +1,28 @@
+package rodionova.dev.reservation_system.reservations.idempotency;
+
+import java.time.Duration;
+
+/**
+ * Remembers the response of each idempotency key for a TTL. At most one request per key executes at a time;
+ * duplicates arriving meanwhile wait for its response.
+ */
+public interface IdempotencyStore {
+
+    /**
+     * Claims the key, or returns the response completed under it. A duplicate of a request still in flight waits
+     * up to {@code maxWait}, then gets {@link IdempotentRequestInProgressException}; a key stored with another
+     * fingerprint gets {@link IdempotencyKeyReusedException}.
+     */
+    IdempotencyClaim claim(String key, String fingerprint, Duration maxWait);
+
+    /**
+     * Stores the response, unless the claim of {@code token} no longer owns the key.
+     */
+    void complete(String key, String token, StoredResponse response);
+
+    /**
+     * Gives the key up after a failed request, so a retry executes again. A key taken over by another claim
+     * is left to it.
+     */
+    void release(String key, String token);
+}
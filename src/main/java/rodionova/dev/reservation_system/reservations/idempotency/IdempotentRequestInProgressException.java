@@ -0,0 +1,8 @@
+package rodionova.dev.reservation_system.reservations.idempotency;
+
+public class IdempotentRequestInProgressException extends RuntimeException {
+
+    public IdempotentRequestInProgressException() {
+        super("A request with this Idempotency-Key is still in progress, retry later");
+    }
+}
@@ -0,0 +1,151 @@
+package rodionova.dev.reservation_system.reservations.idempotency;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import rodionova.dev.reservation_system.reservations.ReservationMetrics;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.function.Supplier;
+
+/**
+ * Runs a request at most once per {@code Idempotency-Key}. Retries with the same key and request get the stored
+ * response with {@code Idempotent-Replayed: true}, without running the request again. Only successful responses
+ * are stored; a failed request releases its key, so the retry executes.
+ */
+@Component
+public class IdempotentRequests {
+
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyStore idempotencyStore;
+
+    private final ObjectMapper objectMapper;
+
+    private final ReservationMetrics reservationMetrics;
+
+    private final Duration maxWait;
+
+    public IdempotentRequests(IdempotencyStore idempotencyStore,
+                              ObjectMapper objectMapper,
+                              ReservationMetrics reservationMetrics,
+                              @Value("${reservation.idempotency.wait:5s}") Duration maxWait) {
+        this.idempotencyStore = idempotencyStore;
+        this.objectMapper = objectMapper;
+        this.reservationMetrics = reservationMetrics;
+        this.maxWait = maxWait;
+    }
+
+    /**
+     * @param operation keeps equal keys sent to different endpoints apart
+     * @param request   what makes two requests the same; a key reused with another request is rejected
+     */
+    public <T> ResponseEntity<T> execute(String idempotencyKey,
+                                         String operation,
+                                         Object request,
+                                         Class<T> bodyType,
+                                         Supplier<ResponseEntity<T>> action) {
+        return execute(idempotencyKey, operation, request, objectMapper.constructType(bodyType), action);
+    }
+
+    /**
+     * For generic bodies such as {@code List<Reservation>}, which a {@link Class} cannot describe.
+     */
+    public <T> ResponseEntity<T> execute(String idempotencyKey,
+                                         String operation,
+                                         Object request,
+                                         TypeReference<T> bodyType,
+                                         Supplier<ResponseEntity<T>> action) {
+        return execute(idempotencyKey, operation, request, objectMapper.constructType(bodyType), action);
+    }
+
+    private <T> ResponseEntity<T> execute(String idempotencyKey,
+                                          String operation,
+                                          Object request,
+                                          JavaType bodyType,
+                                          Supplier<ResponseEntity<T>> action) {
+        if (idempotencyKey == null) {
+            return action.get();
+        }
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key should be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+        var key = operation + ":" + idempotencyKey;
+
+        IdempotencyClaim claim;
+        try {
+            claim = idempotencyStore.claim(key, fingerprint(operation, request), maxWait);
+        } catch (IdempotentRequestInProgressException e) {
+            reservationMetrics.recordIdempotentRequest("in_progress");
+            throw e;
+        } catch (IdempotencyKeyReusedException e) {
+            reservationMetrics.recordIdempotentRequest("key_reused");
+            throw e;
+        }
+        if (!claim.acquired()) {
+            reservationMetrics.recordIdempotentRequest("replayed");
+            return replay(claim.response(), bodyType);
+        }
+
+        boolean completed = false;
+        try {
+            var response = action.get();
+            if (response.getStatusCode().is2xxSuccessful()) {
+                idempotencyStore.complete(key, claim.token(), new StoredResponse(response.getStatusCode().value(),
+                        response.getHeaders().getETag(), toJson(response.getBody())));
+                completed = true;
+            }
+            reservationMetrics.recordIdempotentRequest("executed");
+            return response;
+        } finally {
+            if (!completed) {
+                idempotencyStore.release(key, claim.token());
+            }
+        }
+    }
+
+    private <T> ResponseEntity<T> replay(StoredResponse response, JavaType bodyType) {
+        var builder = ResponseEntity.status(HttpStatusCode.valueOf(response.status()))
+                .header(REPLAYED_HEADER, "true");
+        if (response.eTag() != null) {
+            builder.eTag(response.eTag());
+        }
+        try {
+            return builder.body(response.body() != null ? objectMapper.<T>readValue(response.body(), bodyType) : null);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot read stored response", e);
+        }
+    }
+
+    private String fingerprint(String operation, Object request) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+            digest.update(operation.getBytes(StandardCharsets.UTF_8));
+            digest.update(objectMapper.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalStateException("Cannot fingerprint request", e);
+        }
+    }
+
+    private String toJson(Object body) {
+        try {
+            return body != null ? objectMapper.writeValueAsString(body) : null;
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot store response", e);
+        }
+    }
+}
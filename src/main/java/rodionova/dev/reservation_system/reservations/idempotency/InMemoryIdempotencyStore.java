@@ -0,0 +1,93 @@
+package rodionova.dev.reservation_system.reservations.idempotency;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Keys live in a bounded Caffeine cache that expires them after the TTL. Only deduplicates retries that reach
+ * the same node; use the jdbc store behind a load balancer without sticky sessions.
+ */
+@Component
+@ConditionalOnProperty(name = "reservation.idempotency.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryIdempotencyStore implements IdempotencyStore {
+
+    private final Cache<String, Entry> entries;
+
+    public InMemoryIdempotencyStore(@Value("${reservation.idempotency.ttl:24h}") Duration ttl,
+                                    @Value("${reservation.idempotency.maximum-size:100000}") long maximumSize) {
+        this.entries = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maximumSize)
+                .build();
+    }
+
+    @Override
+    public IdempotencyClaim claim(String key, String fingerprint, Duration maxWait) {
+        long deadline = System.nanoTime() + maxWait.toNanos();
+        while (true) {
+            var entry = new Entry(fingerprint);
+            var existing = entries.asMap().putIfAbsent(key, entry);
+            if (existing == null) {
+                return IdempotencyClaim.execute(entry.token);
+            }
+            if (!existing.fingerprint.equals(fingerprint)) {
+                throw new IdempotencyKeyReusedException();
+            }
+            StoredResponse response;
+            try {
+                response = existing.response.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                throw new IdempotentRequestInProgressException();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IdempotentRequestInProgressException();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+            if (response != null) {
+                return IdempotencyClaim.replay(response);
+            }
+            // Released by a failed request: try to claim it again
+        }
+    }
+
+    @Override
+    public void complete(String key, String token, StoredResponse response) {
+        var entry = entries.getIfPresent(key);
+        if (entry != null && entry.token.equals(token)) {
+            entry.response.complete(response);
+        }
+    }
+
+    @Override
+    public void release(String key, String token) {
+        var entry = entries.getIfPresent(key);
+        if (entry != null && entry.token.equals(token)) {
+            entries.asMap().remove(key, entry);
+            entry.response.complete(null);
+        }
+    }
+
+    private static final class Entry {
+
+        private final String fingerprint;
+
+        private final String token = UUID.randomUUID().toString();
+
+        private final CompletableFuture<StoredResponse> response = new CompletableFuture<>();
+
+        private Entry(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package rodionova.dev.reservation_system.reservations.idempotency;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Keys in {@code reservation_idempotency_keys}, shared by all nodes. The primary key admits one claim per key;
+ * duplicates poll the row until the response is stored. A claim whose request has not completed within the lease
+ * (the node died mid-request) can be taken over, so the lease has to outlast the slowest request. Each claim
+ * writes its own token; a node that outlived its lease completes or releases nothing it no longer owns.
+ */
+@Component
+@ConditionalOnProperty(name = "reservation.idempotency.store", havingValue = "jdbc")
+public class JdbcIdempotencyStore implements IdempotencyStore {
+
+    private static final long POLL_INTERVAL_MILLIS = 50;
+
+    private static final Logger log = LoggerFactory.getLogger(JdbcIdempotencyStore.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Duration ttl;
+
+    private final Duration lease;
+
+    public JdbcIdempotencyStore(JdbcTemplate jdbcTemplate,
+                                @Value("${reservation.idempotency.ttl:24h}") Duration ttl,
+                                @Value("${reservation.idempotency.lease:30s}") Duration lease) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.ttl = ttl;
+        this.lease = lease;
+    }
+
+    @Override
+    public IdempotencyClaim claim(String key, String fingerprint, Duration maxWait) {
+        long deadline = System.nanoTime() + maxWait.toNanos();
+        while (true) {
+            var now = Instant.now();
+            jdbcTemplate.update("""
+                    DELETE FROM reservation_idempotency_keys
+                    WHERE idempotency_key = ? AND (expires_at < ? OR (status_code IS NULL AND created_at < ?))
+                    """, key, Timestamp.from(now), Timestamp.from(now.minus(lease)));
+            var token = UUID.randomUUID().toString();
+            try {
+                jdbcTemplate.update("""
+                        INSERT INTO reservation_idempotency_keys
+                            (idempotency_key, fingerprint, claim_token, created_at, expires_at)
+                        VALUES (?, ?, ?, ?, ?)
+                        """, key, fingerprint, token, Timestamp.from(now), Timestamp.from(now.plus(ttl)));
+                return IdempotencyClaim.execute(token);
+            } catch (DuplicateKeyException e) {
+                // Claimed by another request, fall through to its row
+            }
+
+            var rows = jdbcTemplate.query("""
+                    SELECT fingerprint, status_code, e_tag, body FROM reservation_idempotency_keys
+                    WHERE idempotency_key = ?
+                    """, (resultSet, rowNum) -> new ClaimedKey(
+                    resultSet.getString("fingerprint"),
+                    resultSet.getObject("status_code") != null
+                            ? new StoredResponse(resultSet.getInt("status_code"), resultSet.getString("e_tag"),
+                            resultSet.getString("body"))
+                            : null), key);
+            if (rows.isEmpty()) {
+                continue;
+            }
+            var claimed = rows.getFirst();
+            if (!claimed.fingerprint().equals(fingerprint)) {
+                throw new IdempotencyKeyReusedException();
+            }
+            if (claimed.response() != null) {
+                return IdempotencyClaim.replay(claimed.response());
+            }
+            if (System.nanoTime() > deadline) {
+                throw new IdempotentRequestInProgressException();
+            }
+            try {
+                Thread.sleep(POLL_INTERVAL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IdempotentRequestInProgressException();
+            }
+        }
+    }
+
+    @Override
+    public void complete(String key, String token, StoredResponse response) {
+        int updated = jdbcTemplate.update("""
+                UPDATE reservation_idempotency_keys SET status_code = ?, e_tag = ?, body = ?
+                WHERE idempotency_key = ? AND claim_token = ? AND status_code IS NULL
+                """, response.status(), response.eTag(), response.body(), key, token);
+        if (updated == 0) {
+            log.warn("Idempotency key {} was taken over after its lease ran out, its request executed again", key);
+        }
+    }
+
+    @Override
+    public void release(String key, String token) {
+        jdbcTemplate.update("""
+                DELETE FROM reservation_idempotency_keys
+                WHERE idempotency_key = ? AND claim_token = ? AND status_code IS NULL
+                """, key, token);
+    }
+
+    @Scheduled(fixedDelayString = "${reservation.idempotency.cleanup-interval:1h}")
+    public void deleteExpired() {
+        try {
+            int deleted = jdbcTemplate.update("DELETE FROM reservation_idempotency_keys WHERE expires_at < ?",
+                    Timestamp.from(Instant.now()));
+            if (deleted > 0) {
+                log.info("Deleted {} expired idempotency keys", deleted);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Idempotency key cleanup failed, retrying on the next run", e);
+        }
+    }
+
+    private record ClaimedKey(String fingerprint, StoredResponse response) {
+    }
+}
@@ -0,0 +1,11 @@
+package rodionova.dev.reservation_system.reservations.idempotency;
+
+/**
+ * A completed response kept for replay; {@code body} is the JSON the client received.
+ */
+public record StoredResponse(
+        int status,
+        String eTag,
+        String body
+) {
+}
@@ -0,0 +1,49 @@
+package rodionova.dev.reservation_system.reservations.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Local stand-in for a message broker: appends each batch to a newline-delimited JSON file.
+ */
+@Component
+@ConditionalOnProperty(name = "reservation.outbox.sinks.file.enabled", havingValue = "true")
+public class FileReservationEventSink implements ReservationEventSink {
+
+    private final ObjectMapper objectMapper;
+
+    private final Path path;
+
+    public FileReservationEventSink(ObjectMapper objectMapper,
+                                    @Value("${reservation.outbox.sinks.file.path:reservation-events.ndjson}") Path path) {
+        this.objectMapper = objectMapper;
+        this.path = path;
+    }
+
+    @Override
+    public synchronized void publish(List<ReservationEvent> events) {
+        var lines = new StringBuilder();
+        try {
+            for (ReservationEvent event : events) {
+                lines.append(objectMapper.writeValueAsString(event)).append('\n');
+            }
+            Files.writeString(path, lines, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize reservation events", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot append reservation events to " + path, e);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package rodionova.dev.reservation_system.reservations.outbox;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Hands each event to {@code @EventListener} methods of this application. Listeners run on the relay thread
+ * before the batch commits, so they should be quick and idempotent on {@link ReservationEvent#eventId()}.
+ */
+@Component
+@ConditionalOnProperty(name = "reservation.outbox.sinks.in-process.enabled", havingValue = "true", matchIfMissing = true)
+public class InProcessReservationEventSink implements ReservationEventSink {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    public InProcessReservationEventSink(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Override
+    public void publish(List<ReservationEvent> events) {
+        events.forEach(eventPublisher::publishEvent);
+    }
+}
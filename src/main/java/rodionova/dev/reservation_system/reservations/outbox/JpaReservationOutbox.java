@@ -0,0 +1,54 @@
+package rodionova.dev.reservation_system.reservations.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import rodionova.dev.reservation_system.reservations.Reservation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records reservation changes in {@code reservation_outbox}. Joins the caller's transaction, so an event exists
+ * exactly when the change it describes was committed. The database stamps created_at, which orders the relay.
+ */
+@Component
+@ConditionalOnProperty(name = "reservation.store.engine", havingValue = "jpa", matchIfMissing = true)
+public class JpaReservationOutbox implements ReservationOutbox {
+
+    private final OutboxEventRepository outboxEventRepository;
+
+    private final ObjectMapper objectMapper;
+
+    public JpaReservationOutbox(OutboxEventRepository outboxEventRepository, ObjectMapper objectMapper) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void append(ReservationEventType type, Reservation reservation) {
+        outboxEventRepository.save(toEntity(type, reservation));
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void appendAll(ReservationEventType type, List<Reservation> reservations) {
+        var entities = new ArrayList<OutboxEventEntity>(reservations.size());
+        for (Reservation reservation : reservations) {
+            entities.add(toEntity(type, reservation));
+        }
+        outboxEventRepository.saveAll(entities);
+    }
+
+    private OutboxEventEntity toEntity(ReservationEventType type, Reservation reservation) {
+        try {
+            return new OutboxEventEntity(reservation.id(), type, objectMapper.writeValueAsString(reservation));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize reservation id= " + reservation.id(), e);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package rodionova.dev.reservation_system.reservations.outbox;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import rodionova.dev.reservation_system.reservations.Reservation;
+
+import java.util.List;
+
+/**
+ * The memory engine runs without a database to hold the outbox, so its changes are not published as events;
+ * the relay and the consumers that read the outbox are off with it.
+ */
+@Component
+@ConditionalOnProperty(name = "reservation.store.engine", havingValue = "memory")
+public class NoOpReservationOutbox implements ReservationOutbox {
+
+    @Override
+    public void append(ReservationEventType type, Reservation reservation) {
+    }
+
+    @Override
+    public void appendAll(ReservationEventType type, List<Reservation> reservations) {
+    }
+}
@@ -0,0 +1,82 @@
+package rodionova.dev.reservation_system.reservations.outbox;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import org.hibernate.annotations.ColumnDefault;
+
+import java.time.Instant;
+
+@Table(name = "reservation_outbox")
+@Entity
+public class OutboxEventEntity {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "reservation_outbox_id_seq")
+    @SequenceGenerator(name = "reservation_outbox_id_seq", sequenceName = "reservation_outbox_id_seq", allocationSize = 50)
+    @Column(name = "id")
+    private Long id;
+
+    @Column(name = "reservation_id", nullable = false)
+    private Long reservationId;
+
+    @Column(name = "event_type", nullable = false, length = 32)
+    @Enumerated(EnumType.STRING)
+    private ReservationEventType eventType;
+
+    @Column(name = "payload", nullable = false, columnDefinition = "text")
+    private String payload;
+
+    // Set by the database clock on insert (V8), so the relay order does not depend on node clocks
+    @Column(name = "created_at", nullable = false, insertable = false, updatable = false)
+    @ColumnDefault("CURRENT_TIMESTAMP")
+    private Instant createdAt;
+
+    @Column(name = "position", unique = true)
+    private Long position;
+
+    @Column(name = "published_at")
+    private Instant publishedAt;
+
+    public OutboxEventEntity() {
+    }
+
+    public OutboxEventEntity(Long reservationId, ReservationEventType eventType, String payload) {
+        this.reservationId = reservationId;
+        this.eventType = eventType;
+        this.payload = payload;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getReservationId() {
+        return reservationId;
+    }
+
+    public ReservationEventType getEventType() {
+        return eventType;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public Long getPosition() {
+        return position;
+    }
+
+    public Instant getPublishedAt() {
+        return publishedAt;
+    }
+}
@@ -0,0 +1,6 @@
+package rodionova.dev.reservation_system.reservations.outbox;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface OutboxEventRepository extends JpaRepository<OutboxEventEntity, Long> {
+}
@@ -0,0 +1,19 @@
+package rodionova.dev.reservation_system.reservations.outbox;
+
+import rodionova.dev.reservation_system.reservations.Reservation;
+
+import java.time.Instant;
+
+/**
+ * A published reservation change. {@code position} orders events in publish order and is the SSE event id;
+ * {@code eventId} is stable across redeliveries, so consumers can deduplicate on it.
+ */
+public record ReservationEvent(
+        long position,
+        long eventId,
+        ReservationEventType type,
+        Long reservationId,
+        Reservation reservation,
+        Instant occurredAt
+) {
+}
@@ -0,0 +1,37 @@
+package rodionova.dev.reservation_system.reservations.outbox;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/reservation/events")
+@ConditionalOnProperty(name = "reservation.outbox.sinks.sse.enabled", havingValue = "true", matchIfMissing = true)
+@ConditionalOnProperty(name = "reservation.store.engine", havingValue = "jpa", matchIfMissing = true)
+public class ReservationEventController {
+
+    private static final Logger log = LoggerFactory.getLogger(ReservationEventController.class);
+
+    private final SseReservationEventSink sseReservationEventSink;
+
+    public ReservationEventController(SseReservationEventSink sseReservationEventSink) {
+        this.sseReservationEventSink = sseReservationEventSink;
+    }
+
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribe(@RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        log.debug("Called the subscribe method. Resume after event id= {}", lastEventId);
+        if (lastEventId != null && lastEventId < 0) {
+            throw new IllegalArgumentException("Last-Event-ID should not be negative");
+        }
+        return lastEventId != null
+                ? sseReservationEventSink.subscribe(lastEventId)
+                : sseReservationEventSink.subscribeFromNow();
+    }
+}
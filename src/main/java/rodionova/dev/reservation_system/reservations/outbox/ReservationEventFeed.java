@@ -0,0 +1,60 @@
+package rodionova.dev.reservation_system.reservations.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * Reads the outbox for consumers that keep state derived from reservations: published events by position, and
+ * the committed ones the relay has not published yet.
+ */
+@Component
+@ConditionalOnProperty(name = "reservation.store.engine", havingValue = "jpa", matchIfMissing = true)
+public class ReservationEventFeed {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final ReservationEventRowMapper rowMapper;
+
+    public ReservationEventFeed(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.rowMapper = new ReservationEventRowMapper(objectMapper);
+    }
+
+    public long lastPosition() {
+        return jdbcTemplate.queryForObject(
+                "SELECT last_position FROM reservation_outbox_relay WHERE id = 1", Long.class);
+    }
+
+    /**
+     * @return the lowest position still in the outbox, null when the retention cleanup left none
+     */
+    public Long firstPosition() {
+        return jdbcTemplate.queryForObject("SELECT MIN(position) FROM reservation_outbox", Long.class);
+    }
+
+    public List<ReservationEvent> publishedAfter(long position, int limit) {
+        return jdbcTemplate.query("SELECT " + ReservationEventRowMapper.COLUMNS
+                + " FROM reservation_outbox WHERE position > ? ORDER BY position LIMIT ?", rowMapper, position, limit);
+    }
+
+    /**
+     * In relay order, after {@code after} or from the start when it is null; their position is 0.
+     */
+    public List<ReservationEvent> unpublishedAfter(ReservationEvent after, int limit) {
+        if (after == null) {
+            return jdbcTemplate.query("SELECT " + ReservationEventRowMapper.COLUMNS
+                    + " FROM reservation_outbox WHERE position IS NULL ORDER BY created_at, id LIMIT ?", rowMapper, limit);
+        }
+        var createdAt = Timestamp.from(after.occurredAt());
+        return jdbcTemplate.query("SELECT " + ReservationEventRowMapper.COLUMNS + """
+                 FROM reservation_outbox WHERE position IS NULL
+                AND (created_at > ? OR (created_at = ? AND id > ?))
+                ORDER BY created_at, id LIMIT ?
+                """, rowMapper, createdAt, createdAt, after.eventId(), limit);
+    }
+}
@@ -0,0 +1,40 @@
+package rodionova.dev.reservation_system.reservations.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.jdbc.core.RowMapper;
+import rodionova.dev.reservation_system.reservations.Reservation;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps {@code reservation_outbox} rows selected as {@code id, position, reservation_id, event_type, payload,
+ * created_at}; the position column may be NULL for rows the relay has not published yet.
+ */
+class ReservationEventRowMapper implements RowMapper<ReservationEvent> {
+
+    static final String COLUMNS = "id, position, reservation_id, event_type, payload, created_at";
+
+    private final ObjectMapper objectMapper;
+
+    ReservationEventRowMapper(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public ReservationEvent mapRow(ResultSet resultSet, int rowNum) throws SQLException {
+        long id = resultSet.getLong("id");
+        try {
+            return new ReservationEvent(
+                    resultSet.getLong("position"),
+                    id,
+                    ReservationEventType.valueOf(resultSet.getString("event_type")),
+                    resultSet.getLong("reservation_id"),
+                    objectMapper.readValue(resultSet.getString("payload"), Reservation.class),
+                    resultSet.getTimestamp("created_at").toInstant());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot read outbox event id= " + id, e);
+        }
+    }
+}
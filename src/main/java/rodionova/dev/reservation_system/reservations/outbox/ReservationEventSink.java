@@ -0,0 +1,12 @@
+package rodionova.dev.reservation_system.reservations.outbox;
+
+import java.util.List;
+
+public interface ReservationEventSink {
+
+    /**
+     * Called by the relay before it commits the batch as published; throwing makes the relay retry the batch.
+     * Positions are final only after the commit, a sink that hands them to clients should wait for it.
+     */
+    void publish(List<ReservationEvent> events);
+}
@@ -0,0 +1,89 @@
+package rodionova.dev.reservation_system.reservations.outbox;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.LongFunction;
+
+/**
+ * One SSE connection: a bounded buffer filled by the relay and a virtual thread that writes it to the emitter,
+ * so a slow client never blocks the relay.
+ */
+class ReservationEventSubscriber {
+
+    private final SseEmitter emitter;
+
+    private final BlockingQueue<ReservationEvent> buffer;
+
+    private volatile Thread writer;
+
+    ReservationEventSubscriber(SseEmitter emitter, int bufferSize) {
+        this.emitter = emitter;
+        this.buffer = new ArrayBlockingQueue<>(bufferSize);
+    }
+
+    /**
+     * @param replayPage returns the published events after the given position, in position order
+     */
+    void start(LongFunction<List<ReservationEvent>> replayPage, long lastEventId) {
+        writer = Thread.ofVirtual().name("reservation-events-sse").start(() -> {
+            try {
+                long sent = lastEventId;
+                List<ReservationEvent> page;
+                do {
+                    page = replayPage.apply(sent);
+                    for (ReservationEvent event : page) {
+                        send(event);
+                        sent = event.position();
+                    }
+                } while (!page.isEmpty());
+                while (!Thread.currentThread().isInterrupted()) {
+                    var event = buffer.take();
+                    // Buffered while replaying and already sent from the outbox
+                    if (event.position() > sent) {
+                        send(event);
+                        sent = event.position();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException | RuntimeException e) {
+                emitter.completeWithError(e);
+            }
+        });
+    }
+
+    /**
+     * Returns false when the buffer cannot take the whole batch; the subscriber is then closed rather than
+     * skipping events.
+     */
+    boolean offer(List<ReservationEvent> events) {
+        if (buffer.remainingCapacity() < events.size()) {
+            return false;
+        }
+        for (ReservationEvent event : events) {
+            if (!buffer.offer(event)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    void close() {
+        var thread = writer;
+        if (thread != null) {
+            thread.interrupt();
+        }
+        emitter.complete();
+    }
+
+    private void send(ReservationEvent event) throws IOException {
+        emitter.send(SseEmitter.event()
+                .id(Long.toString(event.position()))
+                .name(event.type().name())
+                .data(event));
+    }
+}
@@ -0,0 +1,11 @@
+package rodionova.dev.reservation_system.reservations.outbox;
+
+public enum ReservationEventType {
+    CREATED,
+    UPDATED,
+    APPROVED,
+    CANCELLED,
+    DELETED,
+    EXPIRED,
+    ARCHIVED
+}
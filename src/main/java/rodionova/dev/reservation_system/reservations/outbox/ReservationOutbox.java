@@ -0,0 +1,15 @@
+package rodionova.dev.reservation_system.reservations.outbox;
+
+import rodionova.dev.reservation_system.reservations.Reservation;
+
+import java.util.List;
+
+/**
+ * Records reservation changes as events for the relay. Called inside the transaction that makes the change.
+ */
+public interface ReservationOutbox {
+
+    void append(ReservationEventType type, Reservation reservation);
+
+    void appendAll(ReservationEventType type, List<Reservation> reservations);
+}
@@ -0,0 +1,124 @@
+package rodionova.dev.reservation_system.reservations.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import rodionova.dev.reservation_system.reservations.ReservationMetrics;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Publishes committed outbox rows to the enabled sinks in batches. Each batch locks the single
+ * {@code reservation_outbox_relay} row, so relays on several nodes take turns and positions are assigned without gaps
+ * in publish order. Sinks are called before the batch commits: a failed sink rolls the batch back and it is
+ * published again on the next run, so delivery is at least once. The SSE sink defers its clients to the commit,
+ * since positions of a rolled-back batch are handed out again.
+ */
+@Component
+@ConditionalOnProperty(name = "reservation.outbox.relay.enabled", havingValue = "true", matchIfMissing = true)
+@ConditionalOnProperty(name = "reservation.store.engine", havingValue = "jpa", matchIfMissing = true)
+public class ReservationOutboxRelay {
+
+    private static final Logger log = LoggerFactory.getLogger(ReservationOutboxRelay.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final List<ReservationEventSink> sinks;
+
+    private final ReservationEventRowMapper rowMapper;
+
+    private final ReservationMetrics reservationMetrics;
+
+    private final int batchSize;
+
+    private final Duration retention;
+
+    public ReservationOutboxRelay(JdbcTemplate jdbcTemplate,
+                                  PlatformTransactionManager transactionManager,
+                                  List<ReservationEventSink> sinks,
+                                  ObjectMapper objectMapper,
+                                  ReservationMetrics reservationMetrics,
+                                  @Value("${reservation.outbox.batch-size:500}") int batchSize,
+                                  @Value("${reservation.outbox.retention:7d}") Duration retention) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.sinks = sinks;
+        this.rowMapper = new ReservationEventRowMapper(objectMapper);
+        this.reservationMetrics = reservationMetrics;
+        this.batchSize = batchSize;
+        this.retention = retention;
+    }
+
+    @Scheduled(fixedDelayString = "${reservation.outbox.interval:200ms}")
+    public void run() {
+        try {
+            relay();
+        } catch (RuntimeException e) {
+            log.warn("Reservation outbox relay failed, retrying on the next run", e);
+        }
+    }
+
+    public int relay() {
+        int published = 0;
+        int batch;
+        do {
+            batch = transactionTemplate.execute(status -> relayBatch());
+            published += batch;
+        } while (batch == batchSize);
+        return published;
+    }
+
+    @Scheduled(fixedDelayString = "${reservation.outbox.cleanup-interval:1h}")
+    public void deletePublished() {
+        try {
+            int deleted = jdbcTemplate.update("DELETE FROM reservation_outbox WHERE published_at < ?",
+                    Timestamp.from(Instant.now().minus(retention)));
+            if (deleted > 0) {
+                log.info("Deleted {} published outbox events older than {}", deleted, retention);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Reservation outbox cleanup failed, retrying on the next run", e);
+        }
+    }
+
+    private int relayBatch() {
+        long lastPosition = jdbcTemplate.queryForObject(
+                "SELECT last_position FROM reservation_outbox_relay WHERE id = 1 FOR UPDATE", Long.class);
+        var pending = jdbcTemplate.query("SELECT " + ReservationEventRowMapper.COLUMNS
+                + " FROM reservation_outbox WHERE position IS NULL ORDER BY created_at, id LIMIT ?", rowMapper, batchSize);
+        if (pending.isEmpty()) {
+            return 0;
+        }
+
+        var publishedAt = Timestamp.from(Instant.now());
+        var events = new ArrayList<ReservationEvent>(pending.size());
+        var updates = new ArrayList<Object[]>(pending.size());
+        for (ReservationEvent event : pending) {
+            long position = ++lastPosition;
+            events.add(new ReservationEvent(position, event.eventId(), event.type(), event.reservationId(),
+                    event.reservation(), event.occurredAt()));
+            updates.add(new Object[]{position, publishedAt, event.eventId()});
+        }
+        jdbcTemplate.batchUpdate("UPDATE reservation_outbox SET position = ?, published_at = ? WHERE id = ?", updates);
+        jdbcTemplate.update("UPDATE reservation_outbox_relay SET last_position = ? WHERE id = 1", lastPosition);
+
+        for (ReservationEventSink sink : sinks) {
+            sink.publish(events);
+        }
+        reservationMetrics.recordOutboxPublished(events.size());
+        return events.size();
+    }
+}
@@ -0,0 +1,117 @@
+package rodionova.dev.reservation_system.reservations.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import rodionova.dev.reservation_system.reservations.ReservationMetrics;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Streams published events to {@code GET /reservation/events} subscribers. A subscriber first replays the events
+ * after its {@code Last-Event-ID} from the outbox, then receives live events from a bounded buffer; a subscriber
+ * that falls a full buffer behind is disconnected and resumes from the outbox when it reconnects. Live events are
+ * handed over only once the relay's batch commits: a client skips positions it has seen, so it must never see ones
+ * a rolled-back batch would assign again to other events.
+ */
+@Component
+@ConditionalOnProperty(name = "reservation.outbox.sinks.sse.enabled", havingValue = "true", matchIfMissing = true)
+@ConditionalOnProperty(name = "reservation.store.engine", havingValue = "jpa", matchIfMissing = true)
+public class SseReservationEventSink implements ReservationEventSink {
+
+    private static final int REPLAY_PAGE_SIZE = 1000;
+
+    private static final Logger log = LoggerFactory.getLogger(SseReservationEventSink.class);
+
+    private final Set<ReservationEventSubscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final ReservationEventRowMapper rowMapper;
+
+    private final ReservationMetrics reservationMetrics;
+
+    private final int bufferSize;
+
+    private final Supplier<SseEmitter> emitters;
+
+    @Autowired
+    public SseReservationEventSink(JdbcTemplate jdbcTemplate,
+                                   ObjectMapper objectMapper,
+                                   ReservationMetrics reservationMetrics,
+                                   @Value("${reservation.outbox.sinks.sse.buffer-size:1000}") int bufferSize) {
+        this(jdbcTemplate, objectMapper, reservationMetrics, bufferSize, SseEmitter::new);
+    }
+
+    public SseReservationEventSink(JdbcTemplate jdbcTemplate,
+                                   ObjectMapper objectMapper,
+                                   ReservationMetrics reservationMetrics,
+                                   int bufferSize,
+                                   Supplier<SseEmitter> emitters) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.rowMapper = new ReservationEventRowMapper(objectMapper);
+        this.reservationMetrics = reservationMetrics;
+        this.bufferSize = bufferSize;
+        this.emitters = emitters;
+    }
+
+    public SseEmitter subscribeFromNow() {
+        return subscribe(jdbcTemplate.queryForObject(
+                "SELECT last_position FROM reservation_outbox_relay WHERE id = 1", Long.class));
+    }
+
+    public SseEmitter subscribe(long lastEventId) {
+        var emitter = emitters.get();
+        var subscriber = new ReservationEventSubscriber(emitter, bufferSize);
+        // Registered before the replay starts, so events published meanwhile are buffered rather than missed
+        subscribers.add(subscriber);
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(error -> remove(subscriber));
+        subscriber.start(after -> jdbcTemplate.query("SELECT " + ReservationEventRowMapper.COLUMNS
+                        + " FROM reservation_outbox WHERE position > ? ORDER BY position LIMIT ?",
+                rowMapper, after, REPLAY_PAGE_SIZE), lastEventId);
+        return emitter;
+    }
+
+    @Override
+    public void publish(List<ReservationEvent> events) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    fanOut(events);
+                }
+            });
+            return;
+        }
+        fanOut(events);
+    }
+
+    private void fanOut(List<ReservationEvent> events) {
+        for (ReservationEventSubscriber subscriber : subscribers) {
+            if (!subscriber.offer(events)) {
+                log.debug("Disconnecting a slow reservation event subscriber");
+                reservationMetrics.recordEventSubscriberDropped();
+                remove(subscriber);
+            }
+        }
+    }
+
+    private void remove(ReservationEventSubscriber subscriber) {
+        if (subscribers.remove(subscriber)) {
+            subscriber.close();
+        }
+    }
+}
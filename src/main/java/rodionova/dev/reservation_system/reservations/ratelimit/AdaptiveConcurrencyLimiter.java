@@ -0,0 +1,129 @@
+package rodionova.dev.reservation_system.reservations.ratelimit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Caps the number of concurrent rate-limited requests with an AIMD limit. Once per window the limit is cut when
+ * the window's latency percentile climbs above {@code tolerance} times the baseline, the lowest percentile seen
+ * so far drifting slowly upwards, and grows by one while requests keep using at least half of it. Latencies
+ * under {@code min-latency} never count as congestion. The limited endpoints are bound by their database
+ * queries, so their latency tracks database latency.
+ */
+@Component
+@ConditionalOnProperty(name = "reservation.ratelimit.enabled", havingValue = "true", matchIfMissing = true)
+public class AdaptiveConcurrencyLimiter {
+
+    private static final double BACKOFF = 0.9;
+
+    private static final double BASELINE_DRIFT = 0.01;
+
+    private static final Logger log = LoggerFactory.getLogger(AdaptiveConcurrencyLimiter.class);
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final AtomicReference<LatencyWindow> window = new AtomicReference<>(new LatencyWindow());
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final double percentile;
+
+    private final double tolerance;
+
+    private final int minSamples;
+
+    private final long minLatencyNanos;
+
+    private volatile int limit;
+
+    private volatile long baselineNanos = -1;
+
+    private volatile long lastPercentileNanos;
+
+    public AdaptiveConcurrencyLimiter(MeterRegistry meterRegistry,
+                                      @Value("${reservation.ratelimit.concurrency.initial-limit:50}") int initialLimit,
+                                      @Value("${reservation.ratelimit.concurrency.min-limit:8}") int minLimit,
+                                      @Value("${reservation.ratelimit.concurrency.max-limit:200}") int maxLimit,
+                                      @Value("${reservation.ratelimit.concurrency.percentile:0.9}") double percentile,
+                                      @Value("${reservation.ratelimit.concurrency.tolerance:2.0}") double tolerance,
+                                      @Value("${reservation.ratelimit.concurrency.min-samples:20}") int minSamples,
+                                      @Value("${reservation.ratelimit.concurrency.min-latency:10ms}") Duration minLatency) {
+        if (minLimit < 1 || minLimit > maxLimit) {
+            throw new IllegalArgumentException("Concurrency limits should satisfy 1 <= min-limit <= max-limit");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.percentile = percentile;
+        this.tolerance = tolerance;
+        this.minSamples = minSamples;
+        this.minLatencyNanos = minLatency.toNanos();
+        this.limit = Math.clamp(initialLimit, minLimit, maxLimit);
+        meterRegistry.gauge("reservation.ratelimit.concurrency.limit", this, limiter -> limiter.limit);
+        meterRegistry.gauge("reservation.ratelimit.concurrency.in-flight", inFlight);
+        meterRegistry.gauge("reservation.ratelimit.concurrency.latency", this,
+                limiter -> limiter.lastPercentileNanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                window.get().observeInFlight(current + 1);
+                return true;
+            }
+        }
+    }
+
+    public void release(long latencyNanos) {
+        inFlight.decrementAndGet();
+        window.get().record(latencyNanos);
+    }
+
+    public int limit() {
+        return limit;
+    }
+
+    @Scheduled(fixedDelayString = "${reservation.ratelimit.concurrency.window:1s}")
+    public void adjustLimit() {
+        var closed = window.getAndSet(new LatencyWindow());
+        if (closed.samples() < minSamples) {
+            return;
+        }
+        long latency = closed.percentileNanos(percentile);
+        lastPercentileNanos = latency;
+        long baseline = baselineNanos;
+        if (baseline < 0 || latency < baseline) {
+            baselineNanos = latency;
+            baseline = latency;
+        } else {
+            baselineNanos = baseline + (long) ((latency - baseline) * BASELINE_DRIFT);
+        }
+
+        int current = limit;
+        if (latency > minLatencyNanos && latency > baseline * tolerance) {
+            limit = Math.max(minLimit, (int) (current * BACKOFF));
+            if (limit != current) {
+                log.debug("Concurrency limit lowered to {}: p{} latency {} ms over baseline {} ms", limit,
+                        (int) (percentile * 100), TimeUnit.NANOSECONDS.toMillis(latency),
+                        TimeUnit.NANOSECONDS.toMillis(baseline));
+            }
+        } else if (closed.peakInFlight() * 2 >= current) {
+            limit = Math.min(maxLimit, current + 1);
+        }
+    }
+}
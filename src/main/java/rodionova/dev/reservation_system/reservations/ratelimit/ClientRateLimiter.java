@@ -0,0 +1,66 @@
+package rodionova.dev.reservation_system.reservations.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket per client. A bucket is kept as the time at which it would be full again (the generic cell rate
+ * algorithm), so taking a token is a single compare-and-set. Buckets idle for longer than it takes to refill
+ * are indistinguishable from new ones and expire; the number of tracked clients is bounded, an evicted client
+ * starts again with a full bucket.
+ */
+@Component
+@ConditionalOnProperty(name = "reservation.ratelimit.enabled", havingValue = "true", matchIfMissing = true)
+public class ClientRateLimiter {
+
+    private final Cache<String, AtomicLong> buckets;
+
+    private final long emissionIntervalNanos;
+
+    private final long capacityNanos;
+
+    public ClientRateLimiter(MeterRegistry meterRegistry,
+                             @Value("${reservation.ratelimit.requests-per-second:50}") double requestsPerSecond,
+                             @Value("${reservation.ratelimit.burst:100}") int burst,
+                             @Value("${reservation.ratelimit.maximum-clients:100000}") long maximumClients) {
+        if (requestsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Rate limit should allow at least one request");
+        }
+        this.emissionIntervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / requestsPerSecond));
+        this.capacityNanos = emissionIntervalNanos * burst;
+        this.buckets = Caffeine.newBuilder()
+                .expireAfterAccess(Duration.ofNanos(capacityNanos))
+                .maximumSize(maximumClients)
+                .build();
+        meterRegistry.gauge("reservation.ratelimit.clients", buckets, Cache::estimatedSize);
+    }
+
+    /**
+     * Takes a token from the client's bucket.
+     *
+     * @return 0 if the request may proceed, otherwise how many nanoseconds until the next token
+     */
+    public long tryAcquire(String client) {
+        var bucket = buckets.get(client, key -> new AtomicLong(System.nanoTime()));
+        while (true) {
+            long now = System.nanoTime();
+            long fullAt = bucket.get();
+            long next = Math.max(fullAt, now) + emissionIntervalNanos;
+            long wait = next - now - capacityNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (bucket.compareAndSet(fullAt, next)) {
+                return 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package rodionova.dev.reservation_system.reservations.ratelimit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Latencies and peak concurrency seen during one adjustment window. Latencies go into log-linear microsecond
+ * buckets, four per power of two, so percentiles are accurate to within 25% without keeping the samples.
+ */
+final class LatencyWindow {
+
+    private static final int SUB_BUCKETS = 4;
+
+    private static final int BUCKETS = 160;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    private final AtomicLong samples = new AtomicLong();
+
+    private final LongAccumulator peakInFlight = new LongAccumulator(Math::max, 0);
+
+    void record(long latencyNanos) {
+        counts.incrementAndGet(bucket(TimeUnit.NANOSECONDS.toMicros(latencyNanos)));
+        samples.incrementAndGet();
+    }
+
+    void observeInFlight(int inFlight) {
+        peakInFlight.accumulate(inFlight);
+    }
+
+    long samples() {
+        return samples.get();
+    }
+
+    int peakInFlight() {
+        return (int) peakInFlight.get();
+    }
+
+    /**
+     * Upper bound of the bucket holding the given percentile, in nanoseconds.
+     */
+    long percentileNanos(double percentile) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return TimeUnit.MICROSECONDS.toNanos(upperBoundMicros(i));
+            }
+        }
+        return TimeUnit.MICROSECONDS.toNanos(upperBoundMicros(BUCKETS - 1));
+    }
+
+    static int bucket(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) Math.max(0, micros);
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int subBucket = (int) (micros >>> (exponent - 2)) & (SUB_BUCKETS - 1);
+        return Math.min(BUCKETS - 1, (exponent - 1) * SUB_BUCKETS + subBucket);
+    }
+
+    static long upperBoundMicros(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + 1;
+        long width = 1L << (exponent - 2);
+        return (SUB_BUCKETS + bucket % SUB_BUCKETS) * width + width - 1;
+    }
+}
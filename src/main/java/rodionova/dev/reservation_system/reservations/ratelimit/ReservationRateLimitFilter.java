@@ -0,0 +1,111 @@
+package rodionova.dev.reservation_system.reservations.ratelimit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import rodionova.dev.reservation_system.reservations.ReservationMetrics;
+import rodionova.dev.reservation_system.web.ErrorResposeDTO;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Guards the availability endpoints and the reservation search ahead of their controllers. A client over its
+ * rate gets 429 with the seconds until its next token in Retry-After; a request over the adaptive concurrency
+ * limit is shed with 503, like an exhausted connection pool. Long-lived subscriptions are not limited.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+@ConditionalOnProperty(name = "reservation.ratelimit.enabled", havingValue = "true", matchIfMissing = true)
+public class ReservationRateLimitFilter extends OncePerRequestFilter {
+
+    private static final String AVAILABILITY_PATH = "/api/reservations/availability/";
+
+    private static final String SUBSCRIBE_PATH = AVAILABILITY_PATH + "subscribe";
+
+    private static final String SEARCH_PATH = "/reservation";
+
+    private final ClientRateLimiter clientRateLimiter;
+
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+
+    private final ReservationMetrics reservationMetrics;
+
+    private final ObjectMapper objectMapper;
+
+    private final String clientHeader;
+
+    public ReservationRateLimitFilter(ClientRateLimiter clientRateLimiter,
+                                      AdaptiveConcurrencyLimiter concurrencyLimiter,
+                                      ReservationMetrics reservationMetrics,
+                                      ObjectMapper objectMapper,
+                                      @Value("${reservation.ratelimit.client-header:X-API-Key}") String clientHeader) {
+        this.clientRateLimiter = clientRateLimiter;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.reservationMetrics = reservationMetrics;
+        this.objectMapper = objectMapper;
+        this.clientHeader = clientHeader;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (path.startsWith(AVAILABILITY_PATH)) {
+            return path.equals(SUBSCRIBE_PATH);
+        }
+        return !(path.equals(SEARCH_PATH) && HttpMethod.GET.matches(request.getMethod()));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long waitNanos = clientRateLimiter.tryAcquire(clientOf(request));
+        if (waitNanos > 0) {
+            reservationMetrics.recordRateLimitDecision("throttled");
+            long retryAfterSeconds = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1)
+                    / TimeUnit.SECONDS.toNanos(1));
+            reject(response, HttpStatus.TOO_MANY_REQUESTS, retryAfterSeconds, "Too many requests",
+                    "Request rate limit exceeded");
+            return;
+        }
+        if (!concurrencyLimiter.tryAcquire()) {
+            reservationMetrics.recordRateLimitDecision("shed");
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE, 1, "Service unavailable",
+                    "Too many concurrent requests");
+            return;
+        }
+        reservationMetrics.recordRateLimitDecision("allowed");
+        long started = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            concurrencyLimiter.release(System.nanoTime() - started);
+        }
+    }
+
+    private String clientOf(HttpServletRequest request) {
+        String apiKey = request.getHeader(clientHeader);
+        return apiKey != null && !apiKey.isBlank() ? "key:" + apiKey : "addr:" + request.getRemoteAddr();
+    }
+
+    private void reject(HttpServletResponse response, HttpStatus status, long retryAfterSeconds,
+                        String error, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), new ErrorResposeDTO(error, message, LocalDateTime.now()));
+    }
+}
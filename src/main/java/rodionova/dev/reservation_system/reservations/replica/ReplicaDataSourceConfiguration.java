@@ -0,0 +1,66 @@
+package rodionova.dev.reservation_system.reservations.replica;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import rodionova.dev.reservation_system.reservations.ReservationMetrics;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replaces the auto-configured data source when replica urls are set: the primary pool is built from
+ * {@code spring.datasource.*} as before, and the data source everything uses routes {@link ReplicaReads} to the
+ * replicas. Replica pools start without waiting for their database, so a replica that is down only costs reads
+ * on the primary.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "reservation.datasource.replicas.urls")
+public class ReplicaDataSourceConfiguration {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    @Primary
+    public ReplicaRoutingDataSource dataSource(
+            HikariDataSource primaryDataSource,
+            ReservationMetrics reservationMetrics,
+            MeterRegistry meterRegistry,
+            @Value("${reservation.datasource.replicas.urls}") List<String> urls,
+            @Value("${reservation.datasource.replicas.username:${spring.datasource.username:}}") String username,
+            @Value("${reservation.datasource.replicas.password:${spring.datasource.password:}}") String password,
+            @Value("${reservation.datasource.replicas.maximum-pool-size:10}") int maximumPoolSize,
+            @Value("${reservation.datasource.replicas.connection-timeout:1s}") Duration connectionTimeout,
+            @Value("${reservation.datasource.replicas.lag-query}") String lagQuery,
+            @Value("${reservation.datasource.replicas.max-lag:1s}") Duration maxLag,
+            @Value("${reservation.datasource.replicas.lag-check-interval:500ms}") Duration checkInterval) {
+        var replicas = new ArrayList<HikariDataSource>(urls.size());
+        for (String url : urls) {
+            var replica = new HikariDataSource();
+            replica.setPoolName("replica-" + replicas.size());
+            replica.setJdbcUrl(url.trim());
+            replica.setUsername(username);
+            replica.setPassword(password);
+            replica.setReadOnly(true);
+            replica.setMaximumPoolSize(maximumPoolSize);
+            replica.setConnectionTimeout(connectionTimeout.toMillis());
+            replica.setInitializationFailTimeout(-1);
+            replica.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            replicas.add(replica);
+        }
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas, reservationMetrics, meterRegistry,
+                lagQuery, maxLag, checkInterval);
+    }
+}
@@ -0,0 +1,43 @@
+package rodionova.dev.reservation_system.reservations.replica;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.function.Supplier;
+
+/**
+ * Runs reads that may be served by a replica: in a read-only transaction whose connection
+ * {@link ReplicaRoutingDataSource} takes from a replica. Only reads run through here are routed; Spring Data's
+ * own read-only transactions stay on the primary. A read inside a transaction that is already open joins it and
+ * stays on its connection, so reads behind a write always see the primary.
+ */
+@Component
+public class ReplicaReads {
+
+    private static final ThreadLocal<Boolean> REPLICA_READ = new ThreadLocal<>();
+
+    private final TransactionTemplate transactionTemplate;
+
+    public ReplicaReads(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    public <T> T execute(Supplier<T> read) {
+        if (TransactionSynchronizationManager.isActualTransactionActive() || isReplicaRead()) {
+            return read.get();
+        }
+        REPLICA_READ.set(Boolean.TRUE);
+        try {
+            return transactionTemplate.execute(status -> read.get());
+        } finally {
+            REPLICA_READ.remove();
+        }
+    }
+
+    static boolean isReplicaRead() {
+        return REPLICA_READ.get() != null;
+    }
+}
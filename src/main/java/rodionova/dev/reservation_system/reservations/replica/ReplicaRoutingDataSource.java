@@ -0,0 +1,156 @@
+package rodionova.dev.reservation_system.reservations.replica;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import rodionova.dev.reservation_system.reservations.ReservationMetrics;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands out primary connections, except to reads run through {@link ReplicaReads}: those get a connection from
+ * the next replica, round robin, whose last lag check is recent and within the maximum lag. A replica that fails a
+ * check or a connection attempt takes no reads until it passes a check again; a read without a usable replica
+ * falls back to the primary.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource implements DisposableBean {
+
+    private static final String TARGET_PRIMARY = "primary";
+    private static final String TARGET_REPLICA = "replica";
+
+    private static final int LAG_CHECK_TIMEOUT_SECONDS = 2;
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    private final DataSource primary;
+
+    private final List<Replica> replicas;
+
+    private final ReservationMetrics reservationMetrics;
+
+    private final String lagQuery;
+
+    private final long maxLagMillis;
+
+    private final long staleAfterNanos;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReplicaRoutingDataSource(DataSource primary,
+                                    List<HikariDataSource> replicas,
+                                    ReservationMetrics reservationMetrics,
+                                    MeterRegistry meterRegistry,
+                                    String lagQuery,
+                                    Duration maxLag,
+                                    Duration checkInterval) {
+        this.primary = primary;
+        this.replicas = replicas.stream().map(Replica::new).toList();
+        this.reservationMetrics = reservationMetrics;
+        this.lagQuery = lagQuery;
+        this.maxLagMillis = maxLag.toMillis();
+        // A replica whose checks stopped coming is not trusted either
+        this.staleAfterNanos = checkInterval.multipliedBy(3).toNanos();
+        for (Replica replica : this.replicas) {
+            meterRegistry.gauge("reservation.datasource.replica.lag", Tags.of("replica", replica.name()),
+                    replica, checked -> checked.lagMillis);
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!ReplicaReads.isReplicaRead()) {
+            return primary.getConnection();
+        }
+        for (int attempt = 0; attempt < replicas.size(); attempt++) {
+            var replica = replicas.get(Math.floorMod(next.getAndIncrement(), replicas.size()));
+            if (!replica.isUsable(maxLagMillis, staleAfterNanos)) {
+                continue;
+            }
+            try {
+                var connection = replica.dataSource.getConnection();
+                reservationMetrics.recordReadRouting(TARGET_REPLICA, "within-lag");
+                return connection;
+            } catch (SQLException e) {
+                log.warn("Replica {} is unavailable, routing its reads elsewhere until the next lag check: {}",
+                        replica.name(), e.getMessage());
+                replica.markDown();
+            }
+        }
+        reservationMetrics.recordReadRouting(TARGET_PRIMARY, "no-replica-within-lag");
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return primary.getConnection(username, password);
+    }
+
+    @Scheduled(fixedDelayString = "${reservation.datasource.replicas.lag-check-interval:500ms}")
+    public void checkLag() {
+        for (Replica replica : replicas) {
+            try {
+                Number lag = replica.jdbcTemplate.queryForObject(lagQuery, Number.class);
+                replica.checked(lag != null ? lag.longValue() : 0);
+            } catch (DataAccessException e) {
+                if (replica.up) {
+                    log.warn("Lag check of replica {} failed: {}", replica.name(), e.getMessage());
+                }
+                replica.markDown();
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        replicas.forEach(replica -> replica.dataSource.close());
+    }
+
+    private static final class Replica {
+
+        private final HikariDataSource dataSource;
+
+        private final JdbcTemplate jdbcTemplate;
+
+        private volatile boolean up;
+
+        private volatile long lagMillis = -1;
+
+        private volatile long checkedAtNanos;
+
+        private Replica(HikariDataSource dataSource) {
+            this.dataSource = dataSource;
+            this.jdbcTemplate = new JdbcTemplate(dataSource);
+            this.jdbcTemplate.setQueryTimeout(LAG_CHECK_TIMEOUT_SECONDS);
+        }
+
+        private String name() {
+            return dataSource.getPoolName();
+        }
+
+        private void checked(long lagMillis) {
+            this.lagMillis = lagMillis;
+            this.checkedAtNanos = System.nanoTime();
+            this.up = true;
+        }
+
+        private void markDown() {
+            this.up = false;
+        }
+
+        private boolean isUsable(long maxLagMillis, long staleAfterNanos) {
+            return up && lagMillis <= maxLagMillis && System.nanoTime() - checkedAtNanos <= staleAfterNanos;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package rodionova.dev.reservation_system.reservations.store;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * APPROVED ranges of one room sorted by start day, like the availability index but updated in place under the
+ * store's write lock. {@code maxEnds[i]} is the greatest end day among the first i + 1 ranges, so the scan for
+ * overlaps stops at the first range that cannot reach the queried start.
+ */
+final class ApprovedIntervals {
+
+    private long[] ids = new long[4];
+
+    private int[] starts = new int[4];
+
+    private int[] ends = new int[4];
+
+    private int[] maxEnds = new int[4];
+
+    private int size;
+
+    void add(long id, int startDay, int endDay) {
+        if (size == ids.length) {
+            int capacity = size + (size >> 1) + 1;
+            ids = Arrays.copyOf(ids, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            maxEnds = Arrays.copyOf(maxEnds, capacity);
+        }
+        int position = lastStartingOnOrBefore(startDay) + 1;
+        System.arraycopy(ids, position, ids, position + 1, size - position);
+        System.arraycopy(starts, position, starts, position + 1, size - position);
+        System.arraycopy(ends, position, ends, position + 1, size - position);
+        ids[position] = id;
+        starts[position] = startDay;
+        ends[position] = endDay;
+        size++;
+        updateMaxEnds(position);
+    }
+
+    void remove(long id) {
+        for (int position = 0; position < size; position++) {
+            if (ids[position] == id) {
+                System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+                System.arraycopy(starts, position + 1, starts, position, size - position - 1);
+                System.arraycopy(ends, position + 1, ends, position, size - position - 1);
+                size--;
+                updateMaxEnds(position);
+                return;
+            }
+        }
+    }
+
+    void forEachOverlapping(int startDay, int endDay, LongConsumer action) {
+        for (int i = lastStartingOnOrBefore(endDay); i >= 0 && maxEnds[i] >= startDay; i--) {
+            if (ends[i] >= startDay) {
+                action.accept(ids[i]);
+            }
+        }
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    private void updateMaxEnds(int from) {
+        int max = from == 0 ? Integer.MIN_VALUE : maxEnds[from - 1];
+        for (int i = from; i < size; i++) {
+            max = Math.max(max, ends[i]);
+            maxEnds[i] = max;
+        }
+    }
+
+    private int lastStartingOnOrBefore(int day) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (starts[mid] <= day) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return high;
+    }
+}
@@ -0,0 +1,749 @@
+package rodionova.dev.reservation_system.reservations.store;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import rodionova.dev.reservation_system.reservations.Reservation;
+import rodionova.dev.reservation_system.reservations.ReservationStatus;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Reservations held in process, for single-node deployments. Ids are handed out in sequence, so a row lives at
+ * slot {@code id - 1} of primitive columns; each room and user maps to the ascending ids of its rows for keyset
+ * searches, each room to its APPROVED ranges sorted by start day, and PENDING rows are kept oldest first for
+ * expiry. Writers take turns: a change is appended to the {@link ReservationLog} before it is applied, and the
+ * snapshot taken every snapshot-interval lets a restart replay only what was written since.
+ * <p>
+ * Inside a transaction, writes wait in its write set: the transaction reads them over the committed rows, nobody
+ * else sees them. At commit the write set is logged and applied in one step under the write lock, after checking
+ * that no other transaction committed a change to its rows since they were first written here; if one did, the
+ * commit fails with {@link OptimisticLockingFailureException}. A rollback drops the write set. Outside a
+ * transaction every write commits on its own.
+ */
+@Component
+@ConditionalOnProperty(name = "reservation.store.engine", havingValue = "memory")
+public class InMemoryReservationStore implements ReservationStore, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(InMemoryReservationStore.class);
+
+    private static final ReservationStatus[] STATUSES = ReservationStatus.values();
+
+    private static final byte APPROVED = code(ReservationStatus.APPROVED);
+
+    private static final byte PENDING = code(ReservationStatus.PENDING);
+
+    private static final long NO_ROW = -1;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final ReservationLog reservationLog;
+
+    private long[] userIds = new long[1024];
+
+    private long[] roomIds = new long[1024];
+
+    private int[] startDays = new int[1024];
+
+    private int[] endDays = new int[1024];
+
+    private byte[] statuses = new byte[1024];
+
+    private long[] versions = new long[1024];
+
+    /**
+     * When this process first held the row, for expiry. Not logged: rows recovered at startup count from the
+     * recovery, so a restart gives the ones still PENDING their whole TTL again.
+     */
+    private long[] createdAtMillis = new long[1024];
+
+    /**
+     * Highest id of a committed row. Ids are handed out from {@link #lastAllocatedId}, so an uncommitted insert
+     * leaves a gap below it until it commits, and for good if it rolls back.
+     */
+    private long lastId;
+
+    private long lastAllocatedId;
+
+    private int size;
+
+    private final Map<Long, SortedIds> idsByRoom = new HashMap<>();
+
+    private final Map<Long, SortedIds> idsByUser = new HashMap<>();
+
+    private final Map<Long, ApprovedIntervals> approvedByRoom = new HashMap<>();
+
+    private final PendingByAge pendingByAge = new PendingByAge();
+
+    public InMemoryReservationStore(MeterRegistry meterRegistry,
+                                    @Value("${reservation.store.memory.directory:data/reservations}") String directory,
+                                    @Value("${reservation.store.memory.sync-on-write:true}") boolean syncOnWrite) {
+        long started = System.nanoTime();
+        try {
+            reservationLog = new ReservationLog(Path.of(directory), syncOnWrite);
+            long snapshotLastId = reservationLog.recover(this::apply);
+            // Replayed rows move lastId on; the snapshot's also counts ids whose rows were deleted before it
+            lastId = Math.max(lastId, snapshotLastId);
+            lastAllocatedId = lastId;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not recover reservations from " + directory, e);
+        }
+        log.info("Recovered {} reservations from {} in {} ms", size, directory,
+                (System.nanoTime() - started) / 1_000_000);
+        Gauge.builder("reservation.store.memory.reservations", this, InMemoryReservationStore::size)
+                .description("Reservations held by the in-memory store")
+                .register(meterRegistry);
+        Gauge.builder("reservation.store.memory.log.bytes", reservationLog, ReservationLog::segmentBytes)
+                .description("Bytes of write-ahead log written since the last snapshot")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Optional<Reservation> findById(Long id) {
+        var ownRows = ownRows();
+        lock.readLock().lock();
+        try {
+            return Optional.ofNullable(reservationAt(id, ownRows));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Reservation> findAllById(Collection<Long> ids) {
+        var ownRows = ownRows();
+        lock.readLock().lock();
+        try {
+            var reservations = new ArrayList<Reservation>(ids.size());
+            for (Long id : ids) {
+                var reservation = reservationAt(id, ownRows);
+                if (reservation != null) {
+                    reservations.add(reservation);
+                }
+            }
+            return reservations;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Takes no locks. A row read here and written later in the transaction is checked again at commit, so a
+     * change another transaction committed in between fails this commit instead of being overwritten.
+     */
+    @Override
+    public List<Reservation> findAllByIdForUpdate(Collection<Long> ids) {
+        return findAllById(new TreeSet<>(ids));
+    }
+
+    @Override
+    public List<Reservation> search(Long roomId, Long userId, long afterId, Pageable pageable) {
+        var ownRows = ownRows();
+        long skip = pageable.getOffset();
+        int limit = pageable.getPageSize();
+        lock.readLock().lock();
+        try {
+            if (ownRows.isEmpty()) {
+                return searchCommitted(roomId, userId, afterId, skip, limit, ownRows);
+            }
+            // The page is cut from committed rows merged with the transaction's own, ordered by id as both are
+            var reservations = searchCommitted(roomId, userId, afterId, 0, skip + limit, ownRows);
+            for (StoredRow row : ownRows.values()) {
+                if (!row.isAbsent() && row.id() > afterId && (roomId == null || row.roomId() == roomId)
+                        && (userId == null || row.userId() == userId)) {
+                    reservations.add(toReservation(row));
+                }
+            }
+            reservations.sort(Comparator.comparingLong(Reservation::id));
+            int from = (int) Math.min(skip, reservations.size());
+            return new ArrayList<>(reservations.subList(from, (int) Math.min(from + (long) limit, reservations.size())));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Must hold the read lock. Committed rows in id order, leaving out those the transaction wrote itself.
+     */
+    private List<Reservation> searchCommitted(Long roomId, Long userId, long afterId, long skip, long limit,
+                                              Map<Long, StoredRow> ownRows) {
+        var reservations = new ArrayList<Reservation>((int) Math.min(limit, 64));
+        if (roomId == null && userId == null) {
+            for (long id = Math.max(afterId, 0) + 1; id <= lastId && reservations.size() < limit; id++) {
+                var reservation = ownRows.containsKey(id) ? null : reservationAt(id, Map.of());
+                if (reservation != null && skip-- <= 0) {
+                    reservations.add(reservation);
+                }
+            }
+            return reservations;
+        }
+        SortedIds ids = smaller(roomId != null ? idsByRoom.get(roomId) : null,
+                userId != null ? idsByUser.get(userId) : null, roomId != null, userId != null);
+        if (ids == null) {
+            return reservations;
+        }
+        for (int i = ids.firstAfter(afterId); i < ids.size() && reservations.size() < limit; i++) {
+            int slot = slot(ids.get(i));
+            if ((roomId == null || roomIds[slot] == roomId) && (userId == null || userIds[slot] == userId)
+                    && !ownRows.containsKey(ids.get(i)) && skip-- <= 0) {
+                reservations.add(reservationInSlot(slot));
+            }
+        }
+        return reservations;
+    }
+
+    @Override
+    public List<Long> findConflictReservations(Long roomId, LocalDate startDate, LocalDate endDate,
+                                               ReservationStatus status) {
+        return findReservationsOverlapping(List.of(roomId), startDate, endDate, status).stream()
+                .map(Reservation::id)
+                .toList();
+    }
+
+    @Override
+    public List<Reservation> findReservationsOverlapping(Collection<Long> roomIds, LocalDate startDate,
+                                                         LocalDate endDate, ReservationStatus status) {
+        var ownRows = ownRows();
+        int startDay = day(startDate);
+        int endDay = day(endDate);
+        byte code = code(status);
+        lock.readLock().lock();
+        try {
+            var reservations = new ArrayList<Reservation>();
+            for (Long roomId : roomIds) {
+                if (code == APPROVED) {
+                    var intervals = approvedByRoom.get(roomId);
+                    if (intervals != null) {
+                        intervals.forEachOverlapping(startDay, endDay, id -> {
+                            if (!ownRows.containsKey(id)) {
+                                reservations.add(reservationInSlot(slot(id)));
+                            }
+                        });
+                    }
+                    continue;
+                }
+                var ids = idsByRoom.get(roomId);
+                for (int i = 0; ids != null && i < ids.size(); i++) {
+                    int slot = slot(ids.get(i));
+                    if (statuses[slot] == code && startDays[slot] <= endDay && endDays[slot] >= startDay
+                            && !ownRows.containsKey(ids.get(i))) {
+                        reservations.add(reservationInSlot(slot));
+                    }
+                }
+            }
+            for (StoredRow row : ownRows.values()) {
+                if (row.status() == code && roomIds.contains(row.roomId())
+                        && row.startDay() <= endDay && row.endDay() >= startDay) {
+                    reservations.add(toReservation(row));
+                }
+            }
+            return reservations;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * A scan of memory holds no connection, so it runs to the end.
+     */
+    @Override
+    public List<Reservation> findReservationsOverlapping(Collection<Long> roomIds, LocalDate startDate,
+                                                         LocalDate endDate, ReservationStatus status, Duration timeout) {
+        return findReservationsOverlapping(roomIds, startDate, endDate, status);
+    }
+
+    @Override
+    public List<Reservation> findAllByStatus(ReservationStatus status) {
+        var ownRows = ownRows();
+        byte code = code(status);
+        lock.readLock().lock();
+        try {
+            var reservations = new ArrayList<Reservation>();
+            for (int slot = 0; slot < lastId; slot++) {
+                if (statuses[slot] == code && !ownRows.containsKey(slot + 1L)) {
+                    reservations.add(reservationInSlot(slot));
+                }
+            }
+            if (!ownRows.isEmpty()) {
+                ownRows.values().stream()
+                        .filter(row -> row.status() == code)
+                        .forEach(row -> reservations.add(toReservation(row)));
+                reservations.sort(Comparator.comparingLong(Reservation::id));
+            }
+            return reservations;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Reservation insert(Reservation reservation) {
+        return insertAll(List.of(reservation)).getFirst();
+    }
+
+    @Override
+    public List<Reservation> insertAll(List<Reservation> reservations) {
+        lock.writeLock().lock();
+        try {
+            var rows = new ArrayList<StoredRow>(reservations.size());
+            for (Reservation reservation : reservations) {
+                rows.add(new StoredRow(++lastAllocatedId, reservation.userId(), reservation.roomId(),
+                        day(reservation.startDate()), day(reservation.endDate()), code(reservation.status()), 0));
+            }
+            write(rows);
+            return rows.stream().map(this::toReservation).toList();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int updatePendingIfCurrent(Long id, Long expectedVersion, Long userId, Long roomId,
+                                      LocalDate startDate, LocalDate endDate) {
+        var ownRows = ownRows();
+        lock.writeLock().lock();
+        try {
+            var current = rowAt(id, ownRows);
+            if (current == null || current.status() != PENDING || current.version() != expectedVersion) {
+                return 0;
+            }
+            write(List.of(new StoredRow(id, userId, roomId, day(startDate), day(endDate), current.status(),
+                    current.version() + 1)));
+            return 1;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int updateStatusIfCurrent(Long id, Long expectedVersion, ReservationStatus expectedStatus,
+                                     ReservationStatus status) {
+        var ownRows = ownRows();
+        lock.writeLock().lock();
+        try {
+            var current = rowAt(id, ownRows);
+            if (current == null || current.status() != code(expectedStatus) || current.version() != expectedVersion) {
+                return 0;
+            }
+            write(List.of(withStatus(current, status)));
+            return 1;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Reservation> updateStatusIfCurrent(Collection<Reservation> current, ReservationStatus expectedStatus,
+                                                   ReservationStatus status) {
+        var ownRows = ownRows();
+        lock.writeLock().lock();
+        try {
+            var rows = new ArrayList<StoredRow>(current.size());
+            for (Reservation reservation : current) {
+                var row = rowAt(reservation.id(), ownRows);
+                if (row != null && row.status() == code(expectedStatus) && row.version() == reservation.version()) {
+                    rows.add(withStatus(row, status));
+                }
+            }
+            if (!rows.isEmpty()) {
+                write(rows);
+            }
+            return rows.stream().map(this::toReservation).toList();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<Reservation> delete(Long id) {
+        var ownRows = ownRows();
+        lock.writeLock().lock();
+        try {
+            var current = rowAt(id, ownRows);
+            if (current == null) {
+                return Optional.empty();
+            }
+            write(List.of(StoredRow.absent(id)));
+            return Optional.of(toReservation(current));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Reservation> expirePendingBefore(Instant createdBefore, int limit) {
+        var ownRows = ownRows();
+        long cutoff = createdBefore.toEpochMilli();
+        lock.writeLock().lock();
+        try {
+            var rows = new ArrayList<StoredRow>(Math.min(limit, pendingByAge.size()));
+            for (int i = 0; i < pendingByAge.size() && rows.size() < limit && pendingByAge.createdAt(i) < cutoff; i++) {
+                // The transaction may have changed the row already; its own version decides
+                var row = rowAt(pendingByAge.id(i), ownRows);
+                if (row != null && row.status() == PENDING) {
+                    rows.add(withStatus(row, ReservationStatus.EXPIRED));
+                }
+            }
+            if (!rows.isEmpty()) {
+                write(rows);
+            }
+            return rows.stream().map(this::toReservation).toList();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Starts a new log segment and writes the rows as of that point, outside the lock, to the snapshot that
+     * replaces the older files.
+     */
+    @Scheduled(fixedDelayString = "${reservation.store.memory.snapshot-interval:5m}",
+            initialDelayString = "${reservation.store.memory.snapshot-interval:5m}")
+    public synchronized void snapshot() {
+        long started = System.nanoTime();
+        long segment;
+        long snapshotLastId;
+        int count;
+        Columns columns;
+        lock.writeLock().lock();
+        try {
+            if (reservationLog.segmentBytes() == 0) {
+                return;
+            }
+            segment = reservationLog.roll();
+            snapshotLastId = lastId;
+            count = size;
+            columns = new Columns(snapshotLastId);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not start a new reservation log segment", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        try {
+            reservationLog.writeSnapshot(segment, snapshotLastId, count, columns);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write the reservation snapshot", e);
+        }
+        log.info("Snapshot of {} reservations written in {} ms", count, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        reservationLog.close();
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Must hold the write lock. Inside a transaction the rows go to its write set, otherwise they commit at once.
+     */
+    private void write(List<StoredRow> rows) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            commit(rows);
+            return;
+        }
+        var writeSet = (WriteSet) TransactionSynchronizationManager.getResource(this);
+        if (writeSet == null) {
+            writeSet = new WriteSet();
+            TransactionSynchronizationManager.bindResource(this, writeSet);
+            TransactionSynchronizationManager.registerSynchronization(writeSet);
+        }
+        for (StoredRow row : rows) {
+            if (!writeSet.rows.containsKey(row.id())) {
+                var committed = rowAt(row.id(), Map.of());
+                writeSet.baseVersions.put(row.id(), committed != null ? committed.version() : NO_ROW);
+            }
+            writeSet.rows.put(row.id(), row);
+        }
+    }
+
+    /**
+     * Must hold the write lock. Logs the rows before applying them, so a row is never seen before it is durable.
+     */
+    private void commit(List<StoredRow> rows) {
+        try {
+            reservationLog.append(rows);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write to the reservation log", e);
+        }
+        rows.forEach(this::apply);
+    }
+
+    /**
+     * Rows the current transaction wrote and has not committed, by id; empty outside a transaction. Only the
+     * thread running the transaction touches them.
+     */
+    private Map<Long, StoredRow> ownRows() {
+        var writeSet = (WriteSet) TransactionSynchronizationManager.getResource(this);
+        return writeSet != null ? writeSet.rows : Map.of();
+    }
+
+    private void apply(StoredRow row) {
+        int slot = slot(row.id());
+        ensureCapacity(slot + 1);
+        if (statuses[slot] != StoredRow.ABSENT) {
+            unindex(slot);
+            size--;
+        } else if (!row.isAbsent()) {
+            createdAtMillis[slot] = System.currentTimeMillis();
+        }
+        lastId = Math.max(lastId, row.id());
+        if (row.isAbsent()) {
+            statuses[slot] = StoredRow.ABSENT;
+            return;
+        }
+        userIds[slot] = row.userId();
+        roomIds[slot] = row.roomId();
+        startDays[slot] = row.startDay();
+        endDays[slot] = row.endDay();
+        statuses[slot] = row.status();
+        versions[slot] = row.version();
+        index(slot);
+        size++;
+    }
+
+    private void index(int slot) {
+        long id = slot + 1L;
+        idsByRoom.computeIfAbsent(roomIds[slot], key -> new SortedIds()).add(id);
+        idsByUser.computeIfAbsent(userIds[slot], key -> new SortedIds()).add(id);
+        if (statuses[slot] == APPROVED) {
+            approvedByRoom.computeIfAbsent(roomIds[slot], key -> new ApprovedIntervals())
+                    .add(id, startDays[slot], endDays[slot]);
+        } else if (statuses[slot] == PENDING) {
+            pendingByAge.add(id, createdAtMillis[slot]);
+        }
+    }
+
+    private void unindex(int slot) {
+        long id = slot + 1L;
+        removeId(idsByRoom, roomIds[slot], id);
+        removeId(idsByUser, userIds[slot], id);
+        if (statuses[slot] == APPROVED) {
+            var intervals = approvedByRoom.get(roomIds[slot]);
+            intervals.remove(id);
+            if (intervals.isEmpty()) {
+                approvedByRoom.remove(roomIds[slot]);
+            }
+        } else if (statuses[slot] == PENDING) {
+            pendingByAge.remove(id, createdAtMillis[slot]);
+        }
+    }
+
+    private static void removeId(Map<Long, SortedIds> idsByKey, long key, long id) {
+        var ids = idsByKey.get(key);
+        ids.remove(id);
+        if (ids.isEmpty()) {
+            idsByKey.remove(key);
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= statuses.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, statuses.length + (statuses.length >> 1));
+        userIds = Arrays.copyOf(userIds, newCapacity);
+        roomIds = Arrays.copyOf(roomIds, newCapacity);
+        startDays = Arrays.copyOf(startDays, newCapacity);
+        endDays = Arrays.copyOf(endDays, newCapacity);
+        statuses = Arrays.copyOf(statuses, newCapacity);
+        versions = Arrays.copyOf(versions, newCapacity);
+        createdAtMillis = Arrays.copyOf(createdAtMillis, newCapacity);
+    }
+
+    /**
+     * Must hold a lock. The row as the transaction sees it: its own version if it wrote one, else the committed one.
+     */
+    private StoredRow rowAt(Long id, Map<Long, StoredRow> ownRows) {
+        var own = id != null ? ownRows.get(id) : null;
+        if (own != null) {
+            return own.isAbsent() ? null : own;
+        }
+        if (id == null || id < 1 || id > lastId || statuses[slot(id)] == StoredRow.ABSENT) {
+            return null;
+        }
+        int slot = slot(id);
+        return new StoredRow(id, userIds[slot], roomIds[slot], startDays[slot], endDays[slot], statuses[slot],
+                versions[slot]);
+    }
+
+    private Reservation reservationAt(Long id, Map<Long, StoredRow> ownRows) {
+        var row = rowAt(id, ownRows);
+        return row != null ? toReservation(row) : null;
+    }
+
+    private Reservation reservationInSlot(int slot) {
+        return new Reservation(slot + 1L, userIds[slot], roomIds[slot], LocalDate.ofEpochDay(startDays[slot]),
+                LocalDate.ofEpochDay(endDays[slot]), STATUSES[statuses[slot] - 1], versions[slot]);
+    }
+
+    private Reservation toReservation(StoredRow row) {
+        return new Reservation(row.id(), row.userId(), row.roomId(), LocalDate.ofEpochDay(row.startDay()),
+                LocalDate.ofEpochDay(row.endDay()), STATUSES[row.status() - 1], row.version());
+    }
+
+    private static StoredRow withStatus(StoredRow row, ReservationStatus status) {
+        return new StoredRow(row.id(), row.userId(), row.roomId(), row.startDay(), row.endDay(), code(status),
+                row.version() + 1);
+    }
+
+    private static SortedIds smaller(SortedIds byRoom, SortedIds byUser, boolean filterRoom, boolean filterUser) {
+        if (filterRoom && filterUser) {
+            if (byRoom == null || byUser == null) {
+                return null;
+            }
+            return byRoom.size() <= byUser.size() ? byRoom : byUser;
+        }
+        return filterRoom ? byRoom : byUser;
+    }
+
+    private static int slot(long id) {
+        return Math.toIntExact(id - 1);
+    }
+
+    private static int day(LocalDate date) {
+        return Math.toIntExact(date.toEpochDay());
+    }
+
+    /**
+     * Statuses are stored by ordinal, so new ones go at the end of {@link ReservationStatus}.
+     */
+    private static byte code(ReservationStatus status) {
+        return (byte) (status.ordinal() + 1);
+    }
+
+    /**
+     * Copies of the columns up to the last id, taken under the write lock and read by the snapshot writer.
+     */
+    private final class Columns implements Iterable<StoredRow> {
+
+        private final int length;
+        private final long[] userIds;
+        private final long[] roomIds;
+        private final int[] startDays;
+        private final int[] endDays;
+        private final byte[] statuses;
+        private final long[] versions;
+
+        Columns(long lastId) {
+            this.length = Math.toIntExact(lastId);
+            this.userIds = Arrays.copyOf(InMemoryReservationStore.this.userIds, length);
+            this.roomIds = Arrays.copyOf(InMemoryReservationStore.this.roomIds, length);
+            this.startDays = Arrays.copyOf(InMemoryReservationStore.this.startDays, length);
+            this.endDays = Arrays.copyOf(InMemoryReservationStore.this.endDays, length);
+            this.statuses = Arrays.copyOf(InMemoryReservationStore.this.statuses, length);
+            this.versions = Arrays.copyOf(InMemoryReservationStore.this.versions, length);
+        }
+
+        @Override
+        public Iterator<StoredRow> iterator() {
+            return new Iterator<>() {
+
+                private int slot = nextPresent(0);
+
+                @Override
+                public boolean hasNext() {
+                    return slot < length;
+                }
+
+                @Override
+                public StoredRow next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    var row = new StoredRow(slot + 1L, userIds[slot], roomIds[slot], startDays[slot], endDays[slot],
+                            statuses[slot], versions[slot]);
+                    slot = nextPresent(slot + 1);
+                    return row;
+                }
+            };
+        }
+
+        private int nextPresent(int from) {
+            int slot = from;
+            while (slot < length && statuses[slot] == StoredRow.ABSENT) {
+                slot++;
+            }
+            return slot;
+        }
+    }
+
+    /**
+     * Rows one transaction wrote, the last version of each, and the committed version each had when first written
+     * ({@link #NO_ROW} for an insert). Bound to the transaction as a resource, so it follows a suspension.
+     */
+    private final class WriteSet implements TransactionSynchronization {
+
+        private final Map<Long, StoredRow> rows = new LinkedHashMap<>();
+
+        private final Map<Long, Long> baseVersions = new HashMap<>();
+
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResource(InMemoryReservationStore.this);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(InMemoryReservationStore.this, this);
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            lock.writeLock().lock();
+            try {
+                baseVersions.forEach((id, baseVersion) -> {
+                    var committed = rowAt(id, Map.of());
+                    if ((committed != null ? committed.version() : NO_ROW) != baseVersion) {
+                        throw new OptimisticLockingFailureException(
+                                "Reservation id= " + id + " was modified concurrently, retry the request");
+                    }
+                });
+                commit(List.copyOf(rows.values()));
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(InMemoryReservationStore.this);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package rodionova.dev.reservation_system.reservations.store;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.ResourceHolderSupport;
+import org.springframework.transaction.support.SmartTransactionObject;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Transactions of the memory engine, which has no database to begin or commit: a transaction is its
+ * synchronizations, so {@link InMemoryReservationStore} commits its write set before completion and the cache and
+ * availability callbacks run after it, as they do with the database. Participating transactions share one
+ * rollback-only flag; REQUIRES_NEW suspends the outer transaction's synchronizations and resources.
+ */
+@Component
+@ConditionalOnProperty(name = "reservation.store.engine", havingValue = "memory")
+public class InMemoryTransactionManager extends AbstractPlatformTransactionManager {
+
+    @Override
+    protected Object doGetTransaction() {
+        return new InMemoryTransaction((ResourceHolderSupport) TransactionSynchronizationManager.getResource(this));
+    }
+
+    @Override
+    protected boolean isExistingTransaction(Object transaction) {
+        return ((InMemoryTransaction) transaction).holder != null;
+    }
+
+    @Override
+    protected void doBegin(Object transaction, TransactionDefinition definition) {
+        var holder = new ResourceHolderSupport() {
+        };
+        holder.setSynchronizedWithTransaction(true);
+        ((InMemoryTransaction) transaction).holder = holder;
+        TransactionSynchronizationManager.bindResource(this, holder);
+    }
+
+    @Override
+    protected Object doSuspend(Object transaction) {
+        ((InMemoryTransaction) transaction).holder = null;
+        return TransactionSynchronizationManager.unbindResource(this);
+    }
+
+    @Override
+    protected void doResume(Object transaction, Object suspendedResources) {
+        TransactionSynchronizationManager.bindResource(this, suspendedResources);
+    }
+
+    @Override
+    protected void doCommit(DefaultTransactionStatus status) {
+    }
+
+    @Override
+    protected void doRollback(DefaultTransactionStatus status) {
+    }
+
+    @Override
+    protected void doSetRollbackOnly(DefaultTransactionStatus status) {
+        ((InMemoryTransaction) status.getTransaction()).holder.setRollbackOnly();
+    }
+
+    @Override
+    protected void doCleanupAfterCompletion(Object transaction) {
+        TransactionSynchronizationManager.unbindResource(this);
+    }
+
+    private static final class InMemoryTransaction implements SmartTransactionObject {
+
+        private ResourceHolderSupport holder;
+
+        InMemoryTransaction(ResourceHolderSupport holder) {
+            this.holder = holder;
+        }
+
+        @Override
+        public boolean isRollbackOnly() {
+            return holder.isRollbackOnly();
+        }
+
+        @Override
+        public void flush() {
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package rodionova.dev.reservation_system.reservations.store;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import rodionova.dev.reservation_system.reservations.Reservation;
+import rodionova.dev.reservation_system.reservations.ReservationMapper;
+import rodionova.dev.reservation_system.reservations.ReservationRepository;
+import rodionova.dev.reservation_system.reservations.ReservationStatus;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Component
+@ConditionalOnProperty(name = "reservation.store.engine", havingValue = "jpa", matchIfMissing = true)
+public class JpaReservationStore implements ReservationStore {
+
+    private final ReservationRepository reservationRepository;
+
+    private final ReservationMapper reservationMapper;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public JpaReservationStore(ReservationRepository reservationRepository, ReservationMapper reservationMapper,
+                               JdbcTemplate jdbcTemplate) {
+        this.reservationRepository = reservationRepository;
+        this.reservationMapper = reservationMapper;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public Optional<Reservation> findById(Long id) {
+        return reservationRepository.findById(id).map(reservationMapper::toDomainReservation);
+    }
+
+    @Override
+    public List<Reservation> findAllById(Collection<Long> ids) {
+        return reservationRepository.findAllById(ids).stream()
+                .map(reservationMapper::toDomainReservation)
+                .toList();
+    }
+
+    @Override
+    public List<Reservation> findAllByIdForUpdate(Collection<Long> ids) {
+        return reservationRepository.findAllByIdForUpdate(ids).stream()
+                .map(reservationMapper::toDomainReservation)
+                .toList();
+    }
+
+    /**
+     * One query per filter combination instead of {@code (:param IS NULL OR ...)}, so each can use its own index.
+     * The queries build {@link Reservation} records directly, without managed entities or the mapper.
+     */
+    @Override
+    public List<Reservation> search(Long roomId, Long userId, long afterId, Pageable pageable) {
+        if (roomId != null && userId != null) {
+            return reservationRepository.searchAllByRoomIdAndUserId(roomId, userId, afterId, pageable);
+        }
+        if (roomId != null) {
+            return reservationRepository.searchAllByRoomId(roomId, afterId, pageable);
+        }
+        if (userId != null) {
+            return reservationRepository.searchAllByUserId(userId, afterId, pageable);
+        }
+        return reservationRepository.searchAll(afterId, pageable);
+    }
+
+    @Override
+    public List<Long> findConflictReservations(Long roomId, LocalDate startDate, LocalDate endDate,
+                                               ReservationStatus status) {
+        return reservationRepository.findConflictReservations(roomId, startDate, endDate, status);
+    }
+
+    @Override
+    public List<Reservation> findReservationsOverlapping(Collection<Long> roomIds, LocalDate startDate,
+                                                         LocalDate endDate, ReservationStatus status) {
+        return reservationRepository.findReservationsOverlapping(roomIds, startDate, endDate, status);
+    }
+
+    /**
+     * Postgres cancels the statement itself, so a query past its time stops holding the connection. The limit is
+     * set for the transaction only and put back afterwards, in case the caller's transaction goes on; a cancelled
+     * query aborts the transaction, whose rollback puts it back.
+     */
+    @Override
+    public List<Reservation> findReservationsOverlapping(Collection<Long> roomIds, LocalDate startDate,
+                                                         LocalDate endDate, ReservationStatus status, Duration timeout) {
+        String previous = jdbcTemplate.queryForObject(
+                "SELECT current_setting('statement_timeout'), set_config('statement_timeout', ?, true)",
+                (resultSet, rowNum) -> resultSet.getString(1), Math.max(1, timeout.toMillis()) + "ms");
+        var reservations = reservationRepository.findReservationsOverlapping(roomIds, startDate, endDate, status);
+        jdbcTemplate.queryForObject("SELECT set_config('statement_timeout', ?, true)", String.class, previous);
+        return reservations;
+    }
+
+    @Override
+    public List<Reservation> findAllByStatus(ReservationStatus status) {
+        return reservationRepository.findAllByStatus(status).stream()
+                .map(reservationMapper::toDomainReservation)
+                .toList();
+    }
+
+    @Override
+    public Reservation insert(Reservation reservation) {
+        var savedEntity = reservationRepository.save(reservationMapper.toDomainEntity(reservation));
+        return reservationMapper.toDomainReservation(savedEntity);
+    }
+
+    @Override
+    public List<Reservation> insertAll(List<Reservation> reservations) {
+        var entitiesToSave = reservations.stream()
+                .map(reservationMapper::toDomainEntity)
+                .toList();
+        return reservationRepository.saveAll(entitiesToSave).stream()
+                .map(reservationMapper::toDomainReservation)
+                .toList();
+    }
+
+    @Override
+    public int updatePendingIfCurrent(Long id, Long expectedVersion, Long userId, Long roomId,
+                                      LocalDate startDate, LocalDate endDate) {
+        return reservationRepository.updatePendingIfCurrent(id, expectedVersion, userId, roomId, startDate, endDate);
+    }
+
+    @Override
+    public int updateStatusIfCurrent(Long id, Long expectedVersion, ReservationStatus expectedStatus,
+                                     ReservationStatus status) {
+        return reservationRepository.updateStatusIfCurrent(id, expectedVersion, expectedStatus, status);
+    }
+
+    /**
+     * One bulk update: the rows are locked by {@link #findAllByIdForUpdate}, so their versions are still the ones
+     * read and the new ones are known without reading them back.
+     */
+    @Override
+    public List<Reservation> updateStatusIfCurrent(Collection<Reservation> current, ReservationStatus expectedStatus,
+                                                   ReservationStatus status) {
+        if (current.isEmpty()) {
+            return List.of();
+        }
+        var ids = current.stream().map(Reservation::id).toList();
+        int updated = reservationRepository.updateStatusByIds(ids, expectedStatus, status);
+        if (updated != ids.size()) {
+            throw new OptimisticLockingFailureException(
+                    "Reservations " + ids + " were modified concurrently, retry the request");
+        }
+        return current.stream()
+                .map(reservation -> new Reservation(reservation.id(), reservation.userId(), reservation.roomId(),
+                        reservation.startDate(), reservation.endDate(), status, reservation.version() + 1))
+                .toList();
+    }
+
+    @Override
+    public Optional<Reservation> delete(Long id) {
+        return reservationRepository.findById(id).map(entity -> {
+            reservationRepository.delete(entity);
+            return reservationMapper.toDomainReservation(entity);
+        });
+    }
+
+    /**
+     * Locks the batch with {@code FOR UPDATE SKIP LOCKED} and flips it in one bulk update, so several nodes sweep
+     * disjoint rows and never wait on each other or on approvals in progress.
+     */
+    @Override
+    public List<Reservation> expirePendingBefore(Instant createdBefore, int limit) {
+        var ids = reservationRepository.lockStalePendingIds(createdBefore, limit);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        reservationRepository.updateStatusByIds(ids, ReservationStatus.PENDING, ReservationStatus.EXPIRED);
+        return findAllById(ids);
+    }
+}
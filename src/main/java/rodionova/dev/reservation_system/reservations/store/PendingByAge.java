@@ -0,0 +1,101 @@
+package rodionova.dev.reservation_system.reservations.store;
+
+import java.util.Arrays;
+
+/**
+ * Ids of PENDING rows ordered by when the store first held them, oldest first, for expiry. New rows are the
+ * youngest, so adding is usually an append, and expiry takes from the front, which only moves {@code head}.
+ * Updated under the store's write lock.
+ */
+final class PendingByAge {
+
+    private long[] createdAts = new long[16];
+
+    private long[] ids = new long[16];
+
+    private int head;
+
+    private int size;
+
+    void add(long id, long createdAt) {
+        if (head + size == ids.length) {
+            makeRoom();
+        }
+        int end = head + size;
+        int position = size == 0 || isBefore(createdAts[end - 1], ids[end - 1], createdAt, id)
+                ? end : insertionPoint(id, createdAt);
+        System.arraycopy(createdAts, position, createdAts, position + 1, end - position);
+        System.arraycopy(ids, position, ids, position + 1, end - position);
+        createdAts[position] = createdAt;
+        ids[position] = id;
+        size++;
+    }
+
+    void remove(long id, long createdAt) {
+        int position = insertionPoint(id, createdAt);
+        if (position == head + size || ids[position] != id) {
+            return;
+        }
+        if (position - head < size / 2) {
+            System.arraycopy(createdAts, head, createdAts, head + 1, position - head);
+            System.arraycopy(ids, head, ids, head + 1, position - head);
+            head++;
+        } else {
+            int end = head + size;
+            System.arraycopy(createdAts, position + 1, createdAts, position, end - position - 1);
+            System.arraycopy(ids, position + 1, ids, position, end - position - 1);
+        }
+        size--;
+        if (size == 0) {
+            head = 0;
+        }
+    }
+
+    /**
+     * @param index 0 for the oldest row
+     */
+    long id(int index) {
+        return ids[head + index];
+    }
+
+    long createdAt(int index) {
+        return createdAts[head + index];
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void makeRoom() {
+        if (head > 0) {
+            System.arraycopy(createdAts, head, createdAts, 0, size);
+            System.arraycopy(ids, head, ids, 0, size);
+            head = 0;
+        }
+        if (size == ids.length) {
+            createdAts = Arrays.copyOf(createdAts, size + (size >> 1) + 1);
+            ids = Arrays.copyOf(ids, createdAts.length);
+        }
+    }
+
+    /**
+     * @return the position of the first entry not before {@code (createdAt, id)}
+     */
+    private int insertionPoint(long id, long createdAt) {
+        int low = head;
+        int high = head + size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (isBefore(createdAts[mid], ids[mid], createdAt, id)) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    private static boolean isBefore(long createdAt, long id, long otherCreatedAt, long otherId) {
+        return createdAt < otherCreatedAt || createdAt == otherCreatedAt && id < otherId;
+    }
+}
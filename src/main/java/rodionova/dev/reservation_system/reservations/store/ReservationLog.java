@@ -0,0 +1,274 @@
+package rodionova.dev.reservation_system.reservations.store;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Files of the in-memory store in one directory. {@code wal-N.log} holds the rows written since
+ * {@code snapshot-N.bin}, each followed by its CRC32. A snapshot is written to a temporary file and renamed once
+ * synced, and only then are the older files deleted. Recovery loads the newest snapshot, replays the segments
+ * from its number on and cuts off a torn record at the end of the last one.
+ */
+final class ReservationLog implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(ReservationLog.class);
+
+    private static final int SNAPSHOT_MAGIC = 0x52535631;
+
+    private static final int ENTRY_BYTES = StoredRow.BYTES + Integer.BYTES;
+
+    private static final String SEGMENT_PREFIX = "wal-";
+
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+
+    private final Path directory;
+
+    private final boolean syncOnWrite;
+
+    private FileChannel segment;
+
+    private long segmentNumber;
+
+    private volatile long segmentBytes;
+
+    private boolean failed;
+
+    ReservationLog(Path directory, boolean syncOnWrite) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.syncOnWrite = syncOnWrite;
+    }
+
+    /**
+     * Feeds every stored row to {@code apply} in write order and opens the last segment for appending.
+     *
+     * @return the highest id handed out up to the snapshot; its row may have been deleted since
+     */
+    long recover(Consumer<StoredRow> apply) throws IOException {
+        var snapshots = fileNumbers(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        long snapshotNumber = snapshots.isEmpty() ? 0 : snapshots.getLast();
+        long lastId = snapshots.isEmpty() ? 0 : readSnapshot(snapshotPath(snapshotNumber), apply);
+
+        var segments = fileNumbers(SEGMENT_PREFIX, SEGMENT_SUFFIX).stream()
+                .filter(number -> number >= snapshotNumber)
+                .toList();
+        for (int i = 0; i < segments.size(); i++) {
+            replay(segmentPath(segments.get(i)), apply, i == segments.size() - 1);
+        }
+        openSegment(segments.isEmpty() ? snapshotNumber : segments.getLast());
+        return lastId;
+    }
+
+    /**
+     * Appends the rows in one write, synced unless sync-on-write is off. On failure the segment is cut back to
+     * where the write started, so a later append does not land behind a torn record.
+     */
+    void append(List<StoredRow> rows) throws IOException {
+        if (failed) {
+            throw new IOException("Reservation log could not recover from an earlier write failure");
+        }
+        var buffer = ByteBuffer.allocate(rows.size() * ENTRY_BYTES);
+        var crc = new CRC32();
+        for (StoredRow row : rows) {
+            int start = buffer.position();
+            row.writeTo(buffer);
+            crc.reset();
+            crc.update(buffer.array(), start, StoredRow.BYTES);
+            buffer.putInt((int) crc.getValue());
+        }
+        buffer.flip();
+        long position = segment.position();
+        try {
+            while (buffer.hasRemaining()) {
+                segment.write(buffer);
+            }
+            if (syncOnWrite) {
+                segment.force(false);
+            }
+        } catch (IOException e) {
+            try {
+                segment.truncate(position);
+                segment.position(position);
+            } catch (IOException truncateFailure) {
+                failed = true;
+                e.addSuppressed(truncateFailure);
+            }
+            throw e;
+        }
+        segmentBytes = segment.position();
+    }
+
+    /**
+     * Starts a new segment; a snapshot of the state at this point takes the number returned.
+     */
+    long roll() throws IOException {
+        segment.force(false);
+        segment.close();
+        openSegment(segmentNumber + 1);
+        return segmentNumber;
+    }
+
+    void writeSnapshot(long number, long lastId, int count, Iterable<StoredRow> rows) throws IOException {
+        Path snapshot = snapshotPath(number);
+        Path temporary = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+        var crc = new CRC32();
+        try (var channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            var output = new DataOutputStream(new CheckedOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16), crc));
+            output.writeInt(SNAPSHOT_MAGIC);
+            output.writeLong(lastId);
+            output.writeInt(count);
+            var buffer = ByteBuffer.allocate(StoredRow.BYTES);
+            for (StoredRow row : rows) {
+                buffer.clear();
+                row.writeTo(buffer);
+                output.write(buffer.array());
+            }
+            output.writeInt((int) crc.getValue());
+            output.flush();
+            channel.force(true);
+        }
+        Files.move(temporary, snapshot, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory();
+
+        for (long older : fileNumbers(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX)) {
+            if (older < number) {
+                Files.deleteIfExists(snapshotPath(older));
+            }
+        }
+        for (long older : fileNumbers(SEGMENT_PREFIX, SEGMENT_SUFFIX)) {
+            if (older < number) {
+                Files.deleteIfExists(segmentPath(older));
+            }
+        }
+    }
+
+    long segmentBytes() {
+        return segmentBytes;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (segment != null && segment.isOpen()) {
+            segment.force(false);
+            segment.close();
+        }
+    }
+
+    private long readSnapshot(Path snapshot, Consumer<StoredRow> apply) throws IOException {
+        var crc = new CRC32();
+        try (var input = new DataInputStream(new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(snapshot), 1 << 16), crc))) {
+            if (input.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException(snapshot + " is not a reservation snapshot");
+            }
+            long lastId = input.readLong();
+            int count = input.readInt();
+            var bytes = new byte[StoredRow.BYTES];
+            for (int i = 0; i < count; i++) {
+                input.readFully(bytes);
+                apply.accept(StoredRow.readFrom(ByteBuffer.wrap(bytes)));
+            }
+            int expected = (int) crc.getValue();
+            if (input.readInt() != expected) {
+                throw new IOException(snapshot + " is corrupt");
+            }
+            return lastId;
+        }
+    }
+
+    private void replay(Path segmentPath, Consumer<StoredRow> apply, boolean last) throws IOException {
+        long validBytes = 0;
+        var crc = new CRC32();
+        var entry = new byte[ENTRY_BYTES];
+        try (var input = new DataInputStream(new BufferedInputStream(Files.newInputStream(segmentPath), 1 << 16))) {
+            while (true) {
+                try {
+                    input.readFully(entry);
+                } catch (EOFException e) {
+                    break;
+                }
+                crc.reset();
+                crc.update(entry, 0, StoredRow.BYTES);
+                var buffer = ByteBuffer.wrap(entry);
+                if (buffer.getInt(StoredRow.BYTES) != (int) crc.getValue()) {
+                    break;
+                }
+                apply.accept(StoredRow.readFrom(buffer));
+                validBytes += ENTRY_BYTES;
+            }
+        }
+        long size = Files.size(segmentPath);
+        if (validBytes == size) {
+            return;
+        }
+        if (!last) {
+            throw new IOException(segmentPath + " is corrupt at byte " + validBytes);
+        }
+        log.warn("Cutting a torn record off {} at byte {} of {}", segmentPath, validBytes, size);
+        try (var channel = FileChannel.open(segmentPath, StandardOpenOption.WRITE)) {
+            channel.truncate(validBytes);
+            channel.force(true);
+        }
+    }
+
+    private void openSegment(long number) throws IOException {
+        segment = FileChannel.open(segmentPath(number), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        segment.position(segment.size());
+        segmentNumber = number;
+        segmentBytes = segment.size();
+        syncDirectory();
+    }
+
+    private void syncDirectory() {
+        try (var channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Not every platform can sync a directory; the rename is still atomic
+            log.debug("Could not sync {}", directory, e);
+        }
+    }
+
+    private List<Long> fileNumbers(String prefix, String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(prefix) && name.endsWith(suffix))
+                    .map(name -> Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private Path segmentPath(long number) {
+        return directory.resolve(SEGMENT_PREFIX + "%020d".formatted(number) + SEGMENT_SUFFIX);
+    }
+
+    private Path snapshotPath(long number) {
+        return directory.resolve(SNAPSHOT_PREFIX + "%020d".formatted(number) + SNAPSHOT_SUFFIX);
+    }
+}
@@ -0,0 +1,85 @@
+package rodionova.dev.reservation_system.reservations.store;
+
+import org.springframework.data.domain.Pageable;
+import rodionova.dev.reservation_system.reservations.Reservation;
+import rodionova.dev.reservation_system.reservations.ReservationStatus;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Storage of reservations behind the services. {@code reservation.store.engine} picks the engine: {@code jpa}
+ * keeps them in the database, {@code memory} in process with a write-ahead log on local disk.
+ * Every change increments the version; the {@code *IfCurrent} methods change nothing unless the row still has
+ * the expected status and version.
+ */
+public interface ReservationStore {
+
+    Optional<Reservation> findById(Long id);
+
+    List<Reservation> findAllById(Collection<Long> ids);
+
+    /**
+     * In ascending id order. Must run inside a transaction; the jpa engine locks the rows until it ends.
+     */
+    List<Reservation> findAllByIdForUpdate(Collection<Long> ids);
+
+    /**
+     * Rows with an id above {@code afterId} in id order, optionally of one room and/or one user.
+     */
+    List<Reservation> search(Long roomId, Long userId, long afterId, Pageable pageable);
+
+    List<Long> findConflictReservations(Long roomId, LocalDate startDate, LocalDate endDate, ReservationStatus status);
+
+    List<Reservation> findReservationsOverlapping(Collection<Long> roomIds, LocalDate startDate, LocalDate endDate,
+                                                  ReservationStatus status);
+
+    /**
+     * As {@link #findReservationsOverlapping(Collection, LocalDate, LocalDate, ReservationStatus)}, but the query is
+     * cancelled once it has run for {@code timeout} and fails with a
+     * {@link org.springframework.dao.QueryTimeoutException}. Must run inside a transaction.
+     */
+    List<Reservation> findReservationsOverlapping(Collection<Long> roomIds, LocalDate startDate, LocalDate endDate,
+                                                  ReservationStatus status, Duration timeout);
+
+    List<Reservation> findAllByStatus(ReservationStatus status);
+
+    /**
+     * @return the reservation with its new id and version
+     */
+    Reservation insert(Reservation reservation);
+
+    List<Reservation> insertAll(List<Reservation> reservations);
+
+    int updatePendingIfCurrent(Long id, Long expectedVersion, Long userId, Long roomId,
+                               LocalDate startDate, LocalDate endDate);
+
+    int updateStatusIfCurrent(Long id, Long expectedVersion, ReservationStatus expectedStatus,
+                              ReservationStatus status);
+
+    /**
+     * Moves each of {@code current} from {@code expectedStatus} to {@code status}. The rows must come from
+     * {@link #findAllByIdForUpdate} in the same transaction.
+     *
+     * @return the updated reservations with their new versions; rows changed since they were read are left out
+     */
+    List<Reservation> updateStatusIfCurrent(Collection<Reservation> current, ReservationStatus expectedStatus,
+                                            ReservationStatus status);
+
+    /**
+     * @return the deleted reservation, empty when there was none
+     */
+    Optional<Reservation> delete(Long id);
+
+    /**
+     * Moves up to {@code limit} PENDING reservations created before {@code createdBefore} to EXPIRED, oldest first.
+     * Must run inside a transaction.
+     *
+     * @return the expired reservations with their new versions
+     */
+    List<Reservation> expirePendingBefore(Instant createdBefore, int limit);
+}
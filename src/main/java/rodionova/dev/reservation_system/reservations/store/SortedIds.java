@@ -0,0 +1,57 @@
+package rodionova.dev.reservation_system.reservations.store;
+
+import java.util.Arrays;
+
+/**
+ * Growable ascending array of reservation ids. New rows get the highest id, so adding is usually an append.
+ */
+final class SortedIds {
+
+    private long[] ids = new long[4];
+
+    private int size;
+
+    void add(long id) {
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+        }
+        int position = size == 0 || ids[size - 1] < id ? size : insertionPoint(id);
+        System.arraycopy(ids, position, ids, position + 1, size - position);
+        ids[position] = id;
+        size++;
+    }
+
+    void remove(long id) {
+        int position = Arrays.binarySearch(ids, 0, size, id);
+        if (position < 0) {
+            return;
+        }
+        System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+        size--;
+    }
+
+    /**
+     * @return the position of the first id above {@code afterId}
+     */
+    int firstAfter(long afterId) {
+        int position = Arrays.binarySearch(ids, 0, size, afterId);
+        return position >= 0 ? position + 1 : -position - 1;
+    }
+
+    long get(int position) {
+        return ids[position];
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    private int insertionPoint(long id) {
+        int position = Arrays.binarySearch(ids, 0, size, id);
+        return position >= 0 ? position : -position - 1;
+    }
+}
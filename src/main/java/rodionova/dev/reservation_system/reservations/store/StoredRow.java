@@ -0,0 +1,37 @@
+package rodionova.dev.reservation_system.reservations.store;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A row of the in-memory store as the log and the snapshots hold it: dates as epoch days, the status as its
+ * ordinal plus one. Status {@link #ABSENT} marks a deleted row.
+ */
+record StoredRow(long id, long userId, long roomId, int startDay, int endDay, byte status, long version) {
+
+    static final byte ABSENT = 0;
+
+    static final int BYTES = 8 + 8 + 8 + 4 + 4 + 1 + 8;
+
+    static StoredRow absent(long id) {
+        return new StoredRow(id, 0, 0, 0, 0, ABSENT, 0);
+    }
+
+    boolean isAbsent() {
+        return status == ABSENT;
+    }
+
+    void writeTo(ByteBuffer buffer) {
+        buffer.putLong(id)
+                .putLong(userId)
+                .putLong(roomId)
+                .putInt(startDay)
+                .putInt(endDay)
+                .put(status)
+                .putLong(version);
+    }
+
+    static StoredRow readFrom(ByteBuffer buffer) {
+        return new StoredRow(buffer.getLong(), buffer.getLong(), buffer.getLong(),
+                buffer.getInt(), buffer.getInt(), buffer.get(), buffer.getLong());
+    }
+}
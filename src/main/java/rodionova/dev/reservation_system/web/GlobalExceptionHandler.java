@@ -3,11 +3,19 @@ package rodionova.dev.reservation_system.web;
 import jakarta.persistence.EntityNotFoundException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import rodionova.dev.reservation_system.reservations.ReservationVersionMismatchException;
+import rodionova.dev.reservation_system.reservations.approval.ApprovalQueueFullException;
+import rodionova.dev.reservation_system.reservations.idempotency.IdempotencyKeyReusedException;
+import rodionova.dev.reservation_system.reservations.idempotency.IdempotentRequestInProgressException;
 
 import java.time.LocalDateTime;
 
@@ -40,6 +48,70 @@ public class GlobalExceptionHandler {
                 .body(errorDto);
     }
 
+    @ExceptionHandler(exception = {CannotCreateTransactionException.class,
+            DataAccessResourceFailureException.class})
+    public ResponseEntity<ErrorResposeDTO> handleConnectionPoolExhausted(Exception e) {
+        log.warn("Handle database unavailable exception: {}", e.getMessage());
+        var errorDto = new ErrorResposeDTO("Service unavailable",
+                e.getMessage(), LocalDateTime.now());
+        return ResponseEntity
+                .status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(errorDto);
+    }
+
+    @ExceptionHandler(exception = {ApprovalQueueFullException.class})
+    public ResponseEntity<ErrorResposeDTO> handleApprovalQueueFullException(Exception e) {
+        log.warn("Handle approval queue full exception: {}", e.getMessage());
+        var errorDto = new ErrorResposeDTO("Service unavailable",
+                e.getMessage(), LocalDateTime.now());
+        return ResponseEntity
+                .status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(errorDto);
+    }
+
+    @ExceptionHandler(exception = {ReservationVersionMismatchException.class})
+    public ResponseEntity<ErrorResposeDTO> handleVersionMismatchException(Exception e) {
+        log.warn("Handle version mismatch exception: {}", e.getMessage());
+        var errorDto = new ErrorResposeDTO("Precondition failed",
+                e.getMessage(), LocalDateTime.now());
+        return ResponseEntity
+                .status(HttpStatus.PRECONDITION_FAILED)
+                .body(errorDto);
+    }
+
+    @ExceptionHandler(exception = {OptimisticLockingFailureException.class})
+    public ResponseEntity<ErrorResposeDTO> handleOptimisticLockingFailureException(Exception e) {
+        log.warn("Handle concurrent modification exception: {}", e.getMessage());
+        var errorDto = new ErrorResposeDTO("Conflict",
+                e.getMessage(), LocalDateTime.now());
+        return ResponseEntity
+                .status(HttpStatus.CONFLICT)
+                .body(errorDto);
+    }
+
+    @ExceptionHandler(exception = {IdempotentRequestInProgressException.class})
+    public ResponseEntity<ErrorResposeDTO> handleIdempotentRequestInProgressException(Exception e) {
+        log.warn("Handle idempotent request in progress exception: {}", e.getMessage());
+        var errorDto = new ErrorResposeDTO("Conflict",
+                e.getMessage(), LocalDateTime.now());
+        return ResponseEntity
+                .status(HttpStatus.CONFLICT)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(errorDto);
+    }
+
+    @ExceptionHandler(exception = {IdempotencyKeyReusedException.class})
+    public ResponseEntity<ErrorResposeDTO> handleIdempotencyKeyReusedException(Exception e) {
+        log.warn("Handle idempotency key reused exception: {}", e.getMessage());
+        var errorDto = new ErrorResposeDTO("Unprocessable entity",
+                e.getMessage(), LocalDateTime.now());
+        return ResponseEntity
+                .status(HttpStatus.UNPROCESSABLE_ENTITY)
+                .body(errorDto);
+    }
+
     @ExceptionHandler(exception = {IllegalArgumentException.class,
             IllegalStateException.class,
     MethodArgumentNotValidException.class})
@@ -0,0 +1,19 @@
+-- Older schemas generated ids with an identity column, which owns a sequence of the same name
+ALTER TABLE IF EXISTS reservations ALTER COLUMN id DROP IDENTITY IF EXISTS;
+
+CREATE SEQUENCE IF NOT EXISTS reservations_id_seq INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS reservations
+(
+    id                 bigint PRIMARY KEY DEFAULT nextval('reservations_id_seq'),
+    user_id            bigint       NOT NULL,
+    room_id            bigint       NOT NULL,
+    start_date         date         NOT NULL,
+    end_date           date         NOT NULL,
+    reservation_status varchar(255)
+);
+
+-- ReservationEntity allocates ids in blocks of 50 (pooled optimizer); move the sequence past existing ids
+ALTER SEQUENCE reservations_id_seq INCREMENT BY 50 OWNED BY reservations.id;
+ALTER TABLE reservations ALTER COLUMN id SET DEFAULT nextval('reservations_id_seq');
+SELECT setval('reservations_id_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM reservations), 1));
@@ -0,0 +1,10 @@
+-- findConflictReservations / findReservationsOverlapping: equality on room and status, range on the dates
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_reservations_room_status_dates
+    ON reservations (room_id, reservation_status, start_date, end_date);
+
+-- searchAllByRoomId / searchAllByUserId: equality on the filter column, ordered and keyset-paged by id
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_reservations_room_id
+    ON reservations (room_id, id);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_reservations_user_id
+    ON reservations (user_id, id);
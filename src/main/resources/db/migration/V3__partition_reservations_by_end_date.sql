@@ -0,0 +1,121 @@
+-- Monthly range partitions on end_date: queries bounded by end_date (conflict checks, calendars) prune ended months,
+-- and ReservationArchiveJob moves ended rows to reservations_archive and drops the emptied partitions.
+
+ALTER SEQUENCE reservations_id_seq OWNED BY NONE;
+ALTER TABLE reservations RENAME TO reservations_unpartitioned;
+ALTER INDEX IF EXISTS reservations_pkey RENAME TO reservations_unpartitioned_pkey;
+DROP INDEX IF EXISTS idx_reservations_room_status_dates;
+DROP INDEX IF EXISTS idx_reservations_room_id;
+DROP INDEX IF EXISTS idx_reservations_user_id;
+
+-- The partition key has to be part of the primary key; ids stay unique through reservations_id_seq
+CREATE TABLE reservations
+(
+    id                 bigint       NOT NULL DEFAULT nextval('reservations_id_seq'),
+    user_id            bigint       NOT NULL,
+    room_id            bigint       NOT NULL,
+    start_date         date         NOT NULL,
+    end_date           date         NOT NULL,
+    reservation_status varchar(255),
+    PRIMARY KEY (id, end_date)
+) PARTITION BY RANGE (end_date);
+
+ALTER SEQUENCE reservations_id_seq OWNED BY reservations.id;
+
+-- Rows beyond the partitions created so far; reservations_ensure_partition moves them out when their month is added
+CREATE TABLE reservations_default PARTITION OF reservations DEFAULT;
+
+CREATE INDEX idx_reservations_room_status_dates ON reservations (room_id, reservation_status, start_date, end_date);
+CREATE INDEX idx_reservations_room_id ON reservations (room_id, id);
+CREATE INDEX idx_reservations_user_id ON reservations (user_id, id);
+
+CREATE FUNCTION reservations_ensure_partition(month date) RETURNS void
+    LANGUAGE plpgsql AS
+$$
+DECLARE
+    month_start date := date_trunc('month', month);
+    month_end   date := month_start + interval '1 month';
+    partition   text := 'reservations_p' || to_char(month_start, 'YYYY_MM');
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext('reservations_partitions'));
+    IF to_regclass(partition) IS NOT NULL THEN
+        RETURN;
+    END IF;
+    EXECUTE format('CREATE TABLE %I (LIKE reservations INCLUDING DEFAULTS)', partition);
+    EXECUTE format('WITH moved AS (DELETE FROM reservations_default WHERE end_date >= %L AND end_date < %L RETURNING *) '
+                       || 'INSERT INTO %I SELECT * FROM moved', month_start, month_end, partition);
+    EXECUTE format('ALTER TABLE reservations ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                   partition, month_start, month_end);
+END;
+$$;
+
+-- Drops monthly partitions that end on or before the given date and hold no rows, returns how many were dropped
+CREATE FUNCTION reservations_drop_empty_partitions(before date) RETURNS integer
+    LANGUAGE plpgsql AS
+$$
+DECLARE
+    partition text;
+    has_rows  boolean;
+    locked    boolean := false;
+    dropped   integer := 0;
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext('reservations_partitions'));
+    FOR partition IN
+        SELECT child.relname
+        FROM pg_inherits
+                 JOIN pg_class child ON child.oid = pg_inherits.inhrelid
+        WHERE pg_inherits.inhparent = 'reservations'::regclass
+          AND child.relname ~ '^reservations_p\d{4}_\d{2}$'
+          AND to_date(substr(child.relname, 15), 'YYYY_MM') + interval '1 month' <= before
+        ORDER BY child.relname
+        LOOP
+            IF NOT locked THEN
+                -- Writers lock the parent before a partition, so lock it first; give up rather than queue
+                -- behind long transactions, the next run retries
+                SET LOCAL lock_timeout = '1s';
+                LOCK TABLE reservations IN ACCESS EXCLUSIVE MODE;
+                locked := true;
+            END IF;
+            EXECUTE format('SELECT EXISTS (SELECT 1 FROM %I)', partition) INTO has_rows;
+            CONTINUE WHEN has_rows;
+            EXECUTE format('ALTER TABLE reservations DETACH PARTITION %I', partition);
+            EXECUTE format('DROP TABLE %I', partition);
+            dropped := dropped + 1;
+        END LOOP;
+    RETURN dropped;
+END;
+$$;
+
+DO
+$$
+DECLARE
+    month date;
+BEGIN
+    FOR month IN
+        SELECT generate_series(
+                       date_trunc('month', LEAST((SELECT MIN(end_date) FROM reservations_unpartitioned), current_date)),
+                       date_trunc('month', GREATEST((SELECT MAX(end_date) FROM reservations_unpartitioned),
+                                                    current_date + interval '12 months')),
+                       interval '1 month')
+        LOOP
+            PERFORM reservations_ensure_partition(month);
+        END LOOP;
+END;
+$$;
+
+INSERT INTO reservations (id, user_id, room_id, start_date, end_date, reservation_status)
+SELECT id, user_id, room_id, start_date, end_date, reservation_status
+FROM reservations_unpartitioned;
+
+DROP TABLE reservations_unpartitioned;
+
+CREATE TABLE reservations_archive
+(
+    id                 bigint PRIMARY KEY,
+    user_id            bigint       NOT NULL,
+    room_id            bigint       NOT NULL,
+    start_date         date         NOT NULL,
+    end_date           date         NOT NULL,
+    reservation_status varchar(255),
+    archived_at        timestamptz  NOT NULL DEFAULT now()
+);
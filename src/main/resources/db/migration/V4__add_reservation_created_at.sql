@@ -0,0 +1,6 @@
+-- now() is stable, so existing rows get the migration time without rewriting the table
+ALTER TABLE reservations ADD COLUMN created_at timestamptz NOT NULL DEFAULT now();
+ALTER TABLE reservations_archive ADD COLUMN created_at timestamptz;
+
+-- PendingReservationSweeper: oldest PENDING rows first, without touching the rest of the table
+CREATE INDEX idx_reservations_pending_created_at ON reservations (created_at) WHERE reservation_status = 'PENDING';
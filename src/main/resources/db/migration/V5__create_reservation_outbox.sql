@@ -0,0 +1,28 @@
+CREATE SEQUENCE reservation_outbox_id_seq INCREMENT BY 50;
+
+-- Written in the same transaction as the reservation change; position is assigned by the relay when it publishes
+CREATE TABLE reservation_outbox
+(
+    id             bigint PRIMARY KEY DEFAULT nextval('reservation_outbox_id_seq'),
+    reservation_id bigint      NOT NULL,
+    event_type     varchar(32) NOT NULL,
+    payload        text        NOT NULL,
+    created_at     timestamptz NOT NULL,
+    position       bigint UNIQUE,
+    published_at   timestamptz
+);
+
+ALTER SEQUENCE reservation_outbox_id_seq OWNED BY reservation_outbox.id;
+
+-- Relay order: created_at keeps per-reservation order across nodes, whose pooled id blocks interleave
+CREATE INDEX idx_reservation_outbox_unpublished ON reservation_outbox (created_at, id) WHERE position IS NULL;
+CREATE INDEX idx_reservation_outbox_published_at ON reservation_outbox (published_at) WHERE published_at IS NOT NULL;
+
+-- Single row locked by every relay batch: relays run one at a time, so positions are gap-free in publish order
+CREATE TABLE reservation_outbox_relay
+(
+    id            integer PRIMARY KEY,
+    last_position bigint NOT NULL
+);
+
+INSERT INTO reservation_outbox_relay (id, last_position) VALUES (1, 0);
@@ -0,0 +1,2 @@
+-- Optimistic locking: every change bumps the version, conditional updates and If-Match compare it
+ALTER TABLE reservations ADD COLUMN version bigint NOT NULL DEFAULT 0;
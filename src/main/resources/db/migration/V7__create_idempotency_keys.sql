@@ -0,0 +1,13 @@
+-- Used when reservation.idempotency.store=jdbc; status_code is NULL while the first request is still executing
+CREATE TABLE reservation_idempotency_keys
+(
+    idempotency_key varchar(300) PRIMARY KEY,
+    fingerprint     varchar(64) NOT NULL,
+    status_code     integer,
+    e_tag           varchar(64),
+    body            text,
+    created_at      timestamptz NOT NULL,
+    expires_at      timestamptz NOT NULL
+);
+
+CREATE INDEX idx_reservation_idempotency_keys_expires_at ON reservation_idempotency_keys (expires_at);
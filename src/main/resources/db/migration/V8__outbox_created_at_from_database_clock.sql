@@ -0,0 +1,3 @@
+-- Relay order is created_at, id. Taken from each node's clock, two events of one reservation written on different
+-- nodes could invert under clock skew; the database clock orders them as their row locks did
+ALTER TABLE reservation_outbox ALTER COLUMN created_at SET DEFAULT clock_timestamp();
@@ -0,0 +1,3 @@
+-- Identifies the claim that owns a key; complete and release only touch their own claim, not one that took
+-- over the key after the lease ran out
+ALTER TABLE reservation_idempotency_keys ADD COLUMN claim_token varchar(36);
@@ -0,0 +1,36 @@
+package rodionova.dev.reservation_system;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import rodionova.dev.reservation_system.reservations.ReservationMetrics;
+import rodionova.dev.reservation_system.reservations.approval.ApprovalCallbacks;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ApprovalCallbacksTest {
+
+    private final ApprovalCallbacks callbacks = new ApprovalCallbacks(new ObjectMapper(),
+            new ReservationMetrics(new SimpleMeterRegistry()),
+            List.of("https://partner.example/hooks", "https://other.example/approvals/"), Duration.ofSeconds(1));
+
+    @Test
+    void acceptsTheAllowedPathAndPathsBelowIt() {
+        assertDoesNotThrow(() -> callbacks.to("https://partner.example/hooks"));
+        assertDoesNotThrow(() -> callbacks.to("https://partner.example/hooks/approvals?id=1"));
+        assertDoesNotThrow(() -> callbacks.to("https://other.example/approvals/42"));
+    }
+
+    @Test
+    void rejectsSiblingPathsThatOnlySharePrefix() {
+        assertThrows(IllegalArgumentException.class, () -> callbacks.to("https://partner.example/hooks-evil/x"));
+        assertThrows(IllegalArgumentException.class, () -> callbacks.to("https://partner.example/hooksevil"));
+        assertThrows(IllegalArgumentException.class, () -> callbacks.to("https://other.example/approvals-x"));
+        assertThrows(IllegalArgumentException.class, () -> callbacks.to("https://partner.example/hooks/../admin"));
+        assertThrows(IllegalArgumentException.class, () -> callbacks.to("https://partner.example.evil/hooks"));
+    }
+}
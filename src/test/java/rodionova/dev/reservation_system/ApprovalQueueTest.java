@@ -0,0 +1,126 @@
+package rodionova.dev.reservation_system;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import rodionova.dev.reservation_system.reservations.Reservation;
+import rodionova.dev.reservation_system.reservations.ReservationBatchItemResult;
+import rodionova.dev.reservation_system.reservations.ReservationMetrics;
+import rodionova.dev.reservation_system.reservations.ReservationService;
+import rodionova.dev.reservation_system.reservations.ReservationStatus;
+import rodionova.dev.reservation_system.reservations.approval.ApprovalQueue;
+import rodionova.dev.reservation_system.reservations.approval.ApprovalQueueFullException;
+import rodionova.dev.reservation_system.reservations.approval.ApprovalState;
+import rodionova.dev.reservation_system.reservations.approval.ApprovalTicket;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ApprovalQueueTest {
+
+    private static final LocalDate DAY = LocalDate.of(2030, 9, 1);
+
+    private final ReservationService reservationService = mock(ReservationService.class);
+
+    private final List<List<Long>> batches = Collections.synchronizedList(new ArrayList<>());
+
+    private final CountDownLatch firstBatchStarted = new CountDownLatch(1);
+
+    private final CountDownLatch releaseFirstBatch = new CountDownLatch(1);
+
+    private ApprovalQueue approvalQueue;
+
+    @AfterEach
+    void stop() throws InterruptedException {
+        releaseFirstBatch.countDown();
+        approvalQueue.destroy();
+    }
+
+    @Test
+    void approvalsQueuedBehindABusyRoomAreApprovedAsOneBatchInSubmissionOrder() throws Exception {
+        approvalQueue = queue(100);
+        // The first approval of the room wins, the ones submitted after it overlap and are rejected
+        when(reservationService.approveReservations(anyList(), anyList())).thenAnswer(invocation -> {
+            List<Long> ids = invocation.getArgument(0);
+            batches.add(ids);
+            firstBatchStarted.countDown();
+            releaseFirstBatch.await();
+            var results = new ArrayList<ReservationBatchItemResult>();
+            for (int i = 0; i < ids.size(); i++) {
+                results.add(ids.get(i) == 1L
+                        ? ReservationBatchItemResult.success(i, approved(ids.get(i)))
+                        : ReservationBatchItemResult.failure(i, "Cannot approve reservation, this reservation is conflict"));
+            }
+            return results;
+        });
+        Map<Long, CompletableFuture<ApprovalTicket>> callbacks = new ConcurrentHashMap<>();
+
+        var first = submit(1L, callbacks);
+        assertTrue(firstBatchStarted.await(5, TimeUnit.SECONDS));
+        var tickets = List.of(submit(2L, callbacks), submit(3L, callbacks), submit(4L, callbacks));
+        assertEquals(ApprovalState.QUEUED, approvalQueue.ticket(tickets.getFirst().trackingId()).state());
+        releaseFirstBatch.countDown();
+
+        assertEquals(ApprovalState.APPROVED, callbacks.get(1L).get(5, TimeUnit.SECONDS).state());
+        for (var ticket : tickets) {
+            var completed = callbacks.get(ticket.reservationId()).get(5, TimeUnit.SECONDS);
+            assertEquals(ApprovalState.REJECTED, completed.state());
+            assertEquals(completed, approvalQueue.ticket(ticket.trackingId()));
+        }
+        assertEquals(approved(1L), approvalQueue.ticket(first.trackingId()).reservation());
+        assertEquals(List.of(List.of(1L), List.of(2L, 3L, 4L)), batches);
+    }
+
+    @Test
+    void fullPartitionRejectsTheSubmission() throws Exception {
+        approvalQueue = queue(1);
+        when(reservationService.approveReservations(anyList(), anyList())).thenAnswer(invocation -> {
+            firstBatchStarted.countDown();
+            releaseFirstBatch.await();
+            return List.of(ReservationBatchItemResult.success(0, approved(invocation.<List<Long>>getArgument(0).getFirst())));
+        });
+
+        approvalQueue.submit(1L, null, ticket -> {
+        });
+        assertTrue(firstBatchStarted.await(5, TimeUnit.SECONDS));
+        approvalQueue.submit(2L, null, ticket -> {
+        });
+
+        assertThrows(ApprovalQueueFullException.class, () -> approvalQueue.submit(3L, null, ticket -> {
+        }));
+    }
+
+    private ApprovalTicket submit(Long id, Map<Long, CompletableFuture<ApprovalTicket>> callbacks) {
+        var callback = new CompletableFuture<ApprovalTicket>();
+        callbacks.put(id, callback);
+        return approvalQueue.submit(id, null, callback::complete);
+    }
+
+    private ApprovalQueue queue(int capacity) {
+        when(reservationService.getReservationById(anyLong())).thenAnswer(invocation ->
+                new Reservation(invocation.getArgument(0), 1L, 7L, DAY, DAY.plusDays(3), ReservationStatus.PENDING, 0L));
+        var registry = new SimpleMeterRegistry();
+        return new ApprovalQueue(reservationService, new ReservationMetrics(registry), registry,
+                true, 2, capacity, 100, Duration.ofMinutes(1), 1000);
+    }
+
+    private static Reservation approved(Long id) {
+        return new Reservation(id, 1L, 7L, DAY, DAY.plusDays(3), ReservationStatus.APPROVED, 1L);
+    }
+}
@@ -0,0 +1,87 @@
+package rodionova.dev.reservation_system;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import rodionova.dev.reservation_system.reservations.Reservation;
+import rodionova.dev.reservation_system.reservations.ReservationMetrics;
+import rodionova.dev.reservation_system.reservations.ReservationStatus;
+import rodionova.dev.reservation_system.reservations.availability.AvailabilityAlternativesService;
+import rodionova.dev.reservation_system.reservations.availability.DateInterval;
+import rodionova.dev.reservation_system.reservations.availability.RoomCalendarService;
+import rodionova.dev.reservation_system.reservations.replica.ReplicaReads;
+import rodionova.dev.reservation_system.reservations.store.ReservationStore;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AvailabilityAlternativesServiceTest {
+
+    private static final LocalDate DAY = LocalDate.now().plusYears(1);
+
+    private final List<Reservation> approved = new ArrayList<>();
+
+    private ReservationStore store;
+
+    private RoomCalendarService roomCalendarService;
+
+    @BeforeEach
+    void setUp() {
+        store = mock(ReservationStore.class);
+        when(store.findReservationsOverlapping(anyCollection(), any(), any(), any(), any())).thenReturn(approved);
+        var transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        roomCalendarService = new RoomCalendarService(store, new ReplicaReads(transactionManager));
+    }
+
+    @Test
+    void ranksNearestWindowsOfTheSameLengthAndFreeRooms() {
+        // Room 1 is taken on days 5..9 and 12..20; room 2 on day 11; room 3 is free
+        approve(1L, 5, 9);
+        approve(1L, 12, 20);
+        approve(2L, 11, 11);
+
+        var alternatives = service(Duration.ofSeconds(5))
+                .findAlternatives(1L, DAY.plusDays(10), DAY.plusDays(12), List.of(2L, 3L, 1L));
+
+        assertEquals(List.of(interval(2, 4), interval(21, 23)), alternatives.dates());
+        assertEquals(List.of(3L), alternatives.roomIds());
+    }
+
+    @Test
+    void calendarQueryRunsUnderTheTimeoutAndACancelledOneIsAnsweredWithoutAlternatives() {
+        when(store.findReservationsOverlapping(anyCollection(), any(), any(), any(), any()))
+                .thenThrow(new QueryTimeoutException("canceling statement due to statement timeout"));
+
+        assertNull(service(Duration.ofMillis(50)).findAlternatives(1L, DAY, DAY.plusDays(2), List.of(2L)));
+        verify(store).findReservationsOverlapping(anyCollection(), any(), any(), any(), eq(Duration.ofMillis(50)));
+    }
+
+    private AvailabilityAlternativesService service(Duration timeout) {
+        return new AvailabilityAlternativesService(roomCalendarService,
+                new ReservationMetrics(new SimpleMeterRegistry()), 14, 3, 5, timeout);
+    }
+
+    private void approve(Long roomId, int fromDay, int toDay) {
+        approved.add(new Reservation((long) approved.size() + 1, 1L, roomId,
+                DAY.plusDays(fromDay), DAY.plusDays(toDay), ReservationStatus.APPROVED, 0L));
+    }
+
+    private static DateInterval interval(int fromDay, int toDay) {
+        return new DateInterval(DAY.plusDays(fromDay), DAY.plusDays(toDay));
+    }
+}
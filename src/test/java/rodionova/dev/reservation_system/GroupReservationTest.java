@@ -0,0 +1,147 @@
+package rodionova.dev.reservation_system;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import rodionova.dev.reservation_system.reservations.Reservation;
+import rodionova.dev.reservation_system.reservations.ReservationService;
+import rodionova.dev.reservation_system.reservations.ReservationStatus;
+import rodionova.dev.reservation_system.reservations.availability.ReservationAvalabilityService;
+import rodionova.dev.reservation_system.reservations.outbox.ReservationEventType;
+import rodionova.dev.reservation_system.reservations.outbox.ReservationOutbox;
+import rodionova.dev.reservation_system.reservations.store.InMemoryReservationStore;
+import rodionova.dev.reservation_system.reservations.store.InMemoryTransactionManager;
+import rodionova.dev.reservation_system.reservations.store.ReservationStore;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class GroupReservationTest {
+
+    private static final LocalDate DAY = LocalDate.of(2030, 7, 1);
+
+    private final ReservationStore reservationStore = mock(ReservationStore.class);
+
+    private final ReservationAvalabilityService availabilityService = mock(ReservationAvalabilityService.class);
+
+    private final ReservationOutbox reservationOutbox = mock(ReservationOutbox.class);
+
+    private final ReservationService reservationService = createService();
+
+    @Test
+    void groupIsCheckedWithOneQueryAndCreatedApprovedInOneInsert() {
+        when(reservationStore.findReservationsOverlapping(any(), any(), any(), any())).thenReturn(List.of(
+                new Reservation(50L, 9L, 1L, DAY.minusDays(5), DAY.minusDays(1), ReservationStatus.APPROVED, 1L)));
+        when(reservationStore.insertAll(anyList())).thenAnswer(invocation -> {
+            List<Reservation> reservations = invocation.getArgument(0);
+            var inserted = new ArrayList<Reservation>();
+            for (Reservation reservation : reservations) {
+                inserted.add(new Reservation(100L + inserted.size(), reservation.userId(), reservation.roomId(),
+                        reservation.startDate(), reservation.endDate(), reservation.status(), 0L));
+            }
+            return inserted;
+        });
+
+        var created = reservationService.createGroupReservation(List.of(
+                item(1L, DAY, DAY.plusDays(3)),
+                item(2L, DAY, DAY.plusDays(3)),
+                item(1L, DAY.plusDays(4), DAY.plusDays(6)),
+                item(3L, DAY.plusDays(10), DAY.plusDays(12))));
+
+        assertEquals(4, created.size());
+        assertTrue(created.stream().allMatch(reservation -> reservation.status() == ReservationStatus.APPROVED));
+        verify(reservationStore).findReservationsOverlapping(
+                Set.of(1L, 2L, 3L), DAY, DAY.plusDays(12), ReservationStatus.APPROVED);
+        verify(reservationStore, times(1)).insertAll(anyList());
+        verify(reservationOutbox).appendAll(ReservationEventType.APPROVED, created);
+        verify(availabilityService).onReservationApproved(103L, 3L, DAY.plusDays(10), DAY.plusDays(12));
+    }
+
+    @Test
+    void oneConflictingRoomRejectsTheWholeGroup() {
+        when(reservationStore.findReservationsOverlapping(any(), any(), any(), any())).thenReturn(List.of(
+                new Reservation(50L, 9L, 2L, DAY.plusDays(2), DAY.plusDays(4), ReservationStatus.APPROVED, 1L)));
+
+        var exception = assertThrows(IllegalArgumentException.class, () -> reservationService.createGroupReservation(List.of(
+                item(1L, DAY, DAY.plusDays(3)),
+                item(2L, DAY, DAY.plusDays(3)),
+                item(3L, DAY, DAY.plusDays(3)))));
+
+        assertEquals("Cannot create group reservation, items [1] conflict with existing reservations"
+                + " or earlier items of the group", exception.getMessage());
+        verify(reservationStore, never()).insertAll(anyList());
+        verify(reservationOutbox, never()).appendAll(any(), anyList());
+    }
+
+    @Test
+    void itemsTakingTheSameNightsOfARoomRejectTheGroup() {
+        when(reservationStore.findReservationsOverlapping(any(), any(), any(), any())).thenReturn(List.of());
+
+        var exception = assertThrows(IllegalArgumentException.class, () -> reservationService.createGroupReservation(List.of(
+                item(1L, DAY, DAY.plusDays(3)),
+                item(1L, DAY.plusDays(3), DAY.plusDays(5)))));
+
+        assertEquals("Cannot create group reservation, items [1] conflict with existing reservations"
+                + " or earlier items of the group", exception.getMessage());
+        verify(reservationStore, never()).insertAll(anyList());
+    }
+
+    @Test
+    void groupThatFailsToCommitLeavesNoReservation(@TempDir Path directory) throws IOException {
+        var store = new InMemoryReservationStore(new SimpleMeterRegistry(), directory.toString(), false);
+        try {
+            doThrow(new IllegalStateException("outbox is down")).when(reservationOutbox).appendAll(any(), anyList());
+            var transactionalService = TestReservationServices.reservationService(store)
+                    .availabilityService(availabilityService)
+                    .outbox(reservationOutbox)
+                    .transactionManager(new InMemoryTransactionManager())
+                    .build();
+
+            assertThrows(IllegalStateException.class, () -> transactionalService.createGroupReservation(List.of(
+                    item(1L, DAY, DAY.plusDays(2)), item(2L, DAY, DAY.plusDays(2)))));
+
+            assertTrue(store.findAllByStatus(ReservationStatus.APPROVED).isEmpty());
+            verify(availabilityService, never()).onReservationApproved(anyLong(), any(), any(), any());
+        } finally {
+            store.destroy();
+        }
+    }
+
+    @Test
+    void invalidItemsRejectTheGroupBeforeAnyQuery() {
+        var exception = assertThrows(IllegalArgumentException.class, () -> reservationService.createGroupReservation(List.of(
+                item(1L, DAY, DAY.plusDays(3)),
+                item(2L, DAY.plusDays(3), DAY))));
+
+        assertEquals("Cannot create group reservation, item 1: End date should be after start date", exception.getMessage());
+        verify(reservationStore, never()).findReservationsOverlapping(any(), any(), any(), any());
+    }
+
+    private static Reservation item(Long roomId, LocalDate startDate, LocalDate endDate) {
+        return new Reservation(null, 7L, roomId, startDate, endDate, null, null);
+    }
+
+    private ReservationService createService() {
+        return TestReservationServices.reservationService(reservationStore)
+                .availabilityService(availabilityService)
+                .outbox(reservationOutbox)
+                .build();
+    }
+}
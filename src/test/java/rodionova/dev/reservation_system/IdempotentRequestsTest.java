@@ -0,0 +1,171 @@
+package rodionova.dev.reservation_system;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import rodionova.dev.reservation_system.reservations.Reservation;
+import rodionova.dev.reservation_system.reservations.ReservationMetrics;
+import rodionova.dev.reservation_system.reservations.ReservationStatus;
+import rodionova.dev.reservation_system.reservations.idempotency.IdempotencyKeyReusedException;
+import rodionova.dev.reservation_system.reservations.idempotency.IdempotencyStore;
+import rodionova.dev.reservation_system.reservations.idempotency.IdempotentRequests;
+import rodionova.dev.reservation_system.reservations.idempotency.InMemoryIdempotencyStore;
+import rodionova.dev.reservation_system.reservations.idempotency.JdbcIdempotencyStore;
+import rodionova.dev.reservation_system.reservations.idempotency.StoredResponse;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class IdempotentRequestsTest {
+
+    private static final ObjectMapper OBJECT_MAPPER = Jackson2ObjectMapperBuilder.json().build();
+
+    private static final Reservation REQUEST = new Reservation(null, 1L, 2L,
+            LocalDate.of(2030, 1, 1), LocalDate.of(2030, 1, 3), null, null);
+
+    private final AtomicInteger executions = new AtomicInteger();
+
+    @Test
+    void concurrentDuplicatesExecuteOnceAndReplayTheResponse() throws Exception {
+        assertExecutesOnce(idempotentRequests(new InMemoryIdempotencyStore(Duration.ofHours(1), 1000)));
+    }
+
+    @Test
+    void concurrentDuplicatesExecuteOnceAcrossTheJdbcStore() throws Exception {
+        var jdbcTemplate = new JdbcTemplate(PostgresTestDatabase.migrate("idempotency_test"));
+        assertExecutesOnce(idempotentRequests(
+                new JdbcIdempotencyStore(jdbcTemplate, Duration.ofHours(1), Duration.ofSeconds(30))));
+    }
+
+    @Test
+    void claimPastItsLeaseLeavesTheKeyToTheClaimThatTookItOver() {
+        var jdbcTemplate = new JdbcTemplate(PostgresTestDatabase.migrate("idempotency_lease_test"));
+        var store = new JdbcIdempotencyStore(jdbcTemplate, Duration.ofHours(1), Duration.ZERO);
+        var stale = store.claim("key-1", "fingerprint", Duration.ofSeconds(1));
+        sleep();
+        var current = store.claim("key-1", "fingerprint", Duration.ofSeconds(1));
+        assertTrue(current.acquired());
+
+        store.release("key-1", stale.token());
+        store.complete("key-1", stale.token(), new StoredResponse(201, "\"0\"", "{\"id\":1}"));
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM reservation_idempotency_keys WHERE status_code IS NULL", Integer.class));
+
+        store.complete("key-1", current.token(), new StoredResponse(201, "\"0\"", "{\"id\":2}"));
+        var replay = new JdbcIdempotencyStore(jdbcTemplate, Duration.ofHours(1), Duration.ofSeconds(30))
+                .claim("key-1", "fingerprint", Duration.ofSeconds(1));
+        assertEquals("{\"id\":2}", replay.response().body());
+    }
+
+    @Test
+    void keyReusedForAnotherRequestIsRejected() {
+        var idempotentRequests = idempotentRequests(new InMemoryIdempotencyStore(Duration.ofHours(1), 1000));
+        idempotentRequests.execute("key-1", "create", REQUEST, Reservation.class, this::create);
+
+        var otherRequest = new Reservation(null, 1L, 3L, REQUEST.startDate(), REQUEST.endDate(), null, null);
+        assertThrows(IdempotencyKeyReusedException.class, () ->
+                idempotentRequests.execute("key-1", "create", otherRequest, Reservation.class, this::create));
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void failedRequestReleasesItsKey() {
+        var idempotentRequests = idempotentRequests(new InMemoryIdempotencyStore(Duration.ofHours(1), 1000));
+
+        assertThrows(IllegalStateException.class, () ->
+                idempotentRequests.execute("key-1", "create", REQUEST, Reservation.class, () -> {
+                    throw new IllegalStateException("Database unavailable");
+                }));
+        var response = idempotentRequests.execute("key-1", "create", REQUEST, Reservation.class, this::create);
+
+        assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        assertNull(response.getHeaders().getFirst("Idempotent-Replayed"));
+    }
+
+    private void assertExecutesOnce(IdempotentRequests idempotentRequests) throws Exception {
+        var startSignal = new CountDownLatch(1);
+        var executor = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<ResponseEntity<Reservation>>> futures = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                futures.add(executor.submit(() -> {
+                    startSignal.await();
+                    return idempotentRequests.execute("key-1", "create", REQUEST, Reservation.class, () -> {
+                        sleep();
+                        return create();
+                    });
+                }));
+            }
+            startSignal.countDown();
+            int replayed = 0;
+            for (Future<ResponseEntity<Reservation>> future : futures) {
+                var response = future.get();
+                assertEquals(HttpStatus.CREATED, response.getStatusCode());
+                assertEquals(42L, response.getBody().id());
+                assertEquals("\"0\"", response.getHeaders().getETag());
+                if ("true".equals(response.getHeaders().getFirst("Idempotent-Replayed"))) {
+                    replayed++;
+                }
+            }
+            assertEquals(1, executions.get());
+            assertEquals(15, replayed);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void replayReadsAGenericBodyBackAsItsElementType() {
+        var idempotentRequests = idempotentRequests(new InMemoryIdempotencyStore(Duration.ofHours(1), 1000));
+        var listType = new TypeReference<List<Reservation>>() {
+        };
+        var request = List.of(REQUEST, REQUEST);
+
+        var executed = idempotentRequests.execute("key-1", "create-group", request, listType,
+                () -> ResponseEntity.status(HttpStatus.CREATED).body(List.of(create().getBody())));
+        var replayed = idempotentRequests.execute("key-1", "create-group", request, listType,
+                () -> ResponseEntity.status(HttpStatus.CREATED).body(List.of(create().getBody())));
+
+        assertEquals(1, executions.get());
+        assertEquals("true", replayed.getHeaders().getFirst("Idempotent-Replayed"));
+        assertEquals(executed.getBody(), replayed.getBody());
+        assertEquals(Reservation.class, replayed.getBody().get(0).getClass());
+    }
+
+    private ResponseEntity<Reservation> create() {
+        executions.incrementAndGet();
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .eTag("\"0\"")
+                .body(new Reservation(42L, REQUEST.userId(), REQUEST.roomId(), REQUEST.startDate(), REQUEST.endDate(),
+                        ReservationStatus.PENDING, 0L));
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(200);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static IdempotentRequests idempotentRequests(IdempotencyStore store) {
+        return new IdempotentRequests(store, OBJECT_MAPPER, new ReservationMetrics(new SimpleMeterRegistry()),
+                Duration.ofSeconds(5));
+    }
+}
@@ -0,0 +1,66 @@
+package rodionova.dev.reservation_system;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import rodionova.dev.reservation_system.reservations.Reservation;
+import rodionova.dev.reservation_system.reservations.ReservationService;
+import rodionova.dev.reservation_system.reservations.ReservationStatus;
+import rodionova.dev.reservation_system.reservations.outbox.NoOpReservationOutbox;
+import rodionova.dev.reservation_system.reservations.outbox.ReservationOutbox;
+import rodionova.dev.reservation_system.reservations.store.InMemoryTransactionManager;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("memory")
+public class InMemoryEngineBootTest {
+
+    @TempDir
+    static Path directory;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Autowired
+    private ReservationService reservationService;
+
+    @DynamicPropertySource
+    static void memoryProperties(DynamicPropertyRegistry registry) {
+        registry.add("reservation.store.memory.directory", () -> directory.toString());
+        registry.add("reservation.store.memory.sync-on-write", () -> "false");
+        registry.add("reservation.expiry.enabled", () -> "false");
+    }
+
+    @Test
+    void startsWithoutADatasource() {
+        assertEquals(0, applicationContext.getBeanNamesForType(DataSource.class).length);
+        assertInstanceOf(InMemoryTransactionManager.class, applicationContext.getBean(PlatformTransactionManager.class));
+        assertInstanceOf(NoOpReservationOutbox.class, applicationContext.getBean(ReservationOutbox.class));
+    }
+
+    @Test
+    void createsAndApprovesAReservation() {
+        var day = LocalDate.of(2030, 9, 1);
+        var created = reservationService.createReservation(
+                new Reservation(null, 7L, 3L, day, day.plusDays(2), null, null));
+
+        var approved = reservationService.approveReservation(created.id(), null);
+
+        assertEquals(ReservationStatus.APPROVED, approved.status());
+        assertEquals(approved, reservationService.getReservationById(created.id()));
+        assertTrue(approved.version() > created.version());
+    }
+}
@@ -0,0 +1,188 @@
+package rodionova.dev.reservation_system;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+import rodionova.dev.reservation_system.reservations.Reservation;
+import rodionova.dev.reservation_system.reservations.ReservationStatus;
+import rodionova.dev.reservation_system.reservations.store.InMemoryReservationStore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class InMemoryReservationStoreTest {
+
+    private static final LocalDate DAY = LocalDate.of(2030, 7, 1);
+
+    @TempDir
+    Path directory;
+
+    private InMemoryReservationStore store;
+
+    @AfterEach
+    void close() throws IOException {
+        store.destroy();
+    }
+
+    @Test
+    void restartLoadsTheSnapshotAndReplaysTheLogWrittenSince() throws IOException {
+        store = open();
+        var first = store.insert(pending(1L, 0, 3));
+        var second = store.insert(pending(1L, 2, 5));
+        assertEquals(1, store.updateStatusIfCurrent(first.id(), 0L, ReservationStatus.PENDING, ReservationStatus.APPROVED));
+        store.snapshot();
+        assertEquals(1, store.updatePendingIfCurrent(second.id(), 0L, 7L, 2L, DAY.plusDays(2), DAY.plusDays(5)));
+        var third = store.insert(pending(1L, 8, 9));
+        store.delete(third.id());
+
+        store = reopen();
+
+        assertEquals(List.of(first.id()),
+                store.findConflictReservations(1L, DAY.plusDays(3), DAY.plusDays(4), ReservationStatus.APPROVED));
+        assertEquals(new Reservation(second.id(), 7L, 2L, DAY.plusDays(2), DAY.plusDays(5), ReservationStatus.PENDING, 1L),
+                store.findById(second.id()).orElseThrow());
+        assertTrue(store.findById(third.id()).isEmpty());
+        assertEquals(List.of(first.id()), ids(store.search(1L, null, 0, Pageable.ofSize(10))));
+        assertEquals(third.id() + 1, store.insert(pending(1L, 10, 11)).id());
+        assertEquals(List.of("snapshot-00000000000000000001.bin", "wal-00000000000000000001.log"), files());
+    }
+
+    @Test
+    void tornRecordAtTheEndOfTheLogIsCutOff() throws IOException {
+        store = open();
+        var first = store.insert(pending(3L, 0, 1));
+        var second = store.insert(pending(3L, 4, 5));
+        store.destroy();
+        Path segment = directory.resolve(files().getFirst());
+        Files.write(segment, new byte[]{1, 2, 3}, StandardOpenOption.APPEND);
+
+        store = open();
+        var third = store.insert(pending(3L, 6, 7));
+        store = reopen();
+
+        assertEquals(List.of(first.id(), second.id(), third.id()),
+                ids(store.search(3L, 1L, 0, Pageable.ofSize(10))));
+    }
+
+    @Test
+    void uncommittedChangesAreSeenOnlyByTheirTransactionAndLeaveNoTraceOnRollback() throws IOException {
+        store = open();
+        var kept = store.insert(pending(5L, 0, 1));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            var inserted = store.insert(pending(5L, 2, 3));
+            store.updateStatusIfCurrent(List.of(kept), ReservationStatus.PENDING, ReservationStatus.APPROVED);
+
+            assertEquals(List.of(kept.id(), inserted.id()), ids(store.search(5L, null, 0, Pageable.ofSize(10))));
+            assertEquals(List.of(kept.id()), ids(store.findAllByStatus(ReservationStatus.APPROVED)));
+            assertEquals(List.of(kept), CompletableFuture.supplyAsync(
+                    () -> store.search(5L, null, 0, Pageable.ofSize(10))).join());
+            assertTrue(CompletableFuture.supplyAsync(() -> store.findById(inserted.id())).join().isEmpty());
+
+            TransactionSynchronizationUtils.invokeAfterCompletion(
+                    TransactionSynchronizationManager.getSynchronizations(), TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(List.of(kept), store.search(5L, null, 0, Pageable.ofSize(10)));
+        assertTrue(store.findAllByStatus(ReservationStatus.APPROVED).isEmpty());
+        store = reopen();
+        assertEquals(List.of(kept), store.search(5L, null, 0, Pageable.ofSize(10)));
+    }
+
+    @Test
+    void commitFailsWhenAnotherTransactionChangedTheRowFirst() {
+        store = open();
+        var first = store.insert(pending(5L, 0, 1));
+        var second = store.insert(pending(5L, 2, 3));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            assertEquals(1, store.updateStatusIfCurrent(first.id(), 0L, ReservationStatus.PENDING, ReservationStatus.APPROVED));
+            TransactionSynchronizationUtils.triggerBeforeCommit(false);
+            TransactionSynchronizationUtils.invokeAfterCompletion(
+                    TransactionSynchronizationManager.getSynchronizations(), TransactionSynchronization.STATUS_COMMITTED);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertEquals(ReservationStatus.APPROVED, store.findById(first.id()).orElseThrow().status());
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            assertEquals(1, store.updateStatusIfCurrent(second.id(), 0L, ReservationStatus.PENDING, ReservationStatus.APPROVED));
+            assertEquals(1, CompletableFuture.supplyAsync(() -> store.updateStatusIfCurrent(
+                    second.id(), 0L, ReservationStatus.PENDING, ReservationStatus.CANCELLED)).join());
+
+            assertThrows(OptimisticLockingFailureException.class, () -> TransactionSynchronizationUtils.triggerBeforeCommit(false));
+            TransactionSynchronizationUtils.invokeAfterCompletion(
+                    TransactionSynchronizationManager.getSynchronizations(), TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertEquals(ReservationStatus.CANCELLED, store.findById(second.id()).orElseThrow().status());
+    }
+
+    @Test
+    void expiresStalePendingRowsOldestFirstUpToTheLimit() throws IOException {
+        store = open();
+        var first = store.insert(pending(6L, 0, 1));
+        var second = store.insert(pending(6L, 2, 3));
+        var approved = store.insert(pending(6L, 4, 5));
+        assertEquals(1, store.updateStatusIfCurrent(approved.id(), 0L, ReservationStatus.PENDING, ReservationStatus.APPROVED));
+
+        assertTrue(store.expirePendingBefore(Instant.now().minusSeconds(60), 10).isEmpty());
+        var expired = store.expirePendingBefore(Instant.now().plusSeconds(1), 1);
+        assertEquals(List.of(new Reservation(first.id(), 1L, 6L, DAY, DAY.plusDays(1), ReservationStatus.EXPIRED, 1L)),
+                expired);
+        assertEquals(List.of(second.id()),
+                ids(store.expirePendingBefore(Instant.now().plusSeconds(1), 10)));
+        assertTrue(store.expirePendingBefore(Instant.now().plusSeconds(1), 10).isEmpty());
+
+        store = reopen();
+
+        assertEquals(List.of(first.id(), second.id()), ids(store.findAllByStatus(ReservationStatus.EXPIRED)));
+    }
+
+    private InMemoryReservationStore open() {
+        return new InMemoryReservationStore(new SimpleMeterRegistry(), directory.toString(), true);
+    }
+
+    private InMemoryReservationStore reopen() throws IOException {
+        store.destroy();
+        return open();
+    }
+
+    private List<String> files() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString()).sorted().toList();
+        }
+    }
+
+    private static List<Long> ids(List<Reservation> reservations) {
+        return reservations.stream().map(Reservation::id).toList();
+    }
+
+    private static Reservation pending(Long roomId, int fromDay, int toDay) {
+        return new Reservation(null, 1L, roomId, DAY.plusDays(fromDay), DAY.plusDays(toDay),
+                ReservationStatus.PENDING, null);
+    }
+}
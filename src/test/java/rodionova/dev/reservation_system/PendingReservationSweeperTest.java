@@ -0,0 +1,109 @@
+package rodionova.dev.reservation_system;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import rodionova.dev.reservation_system.reservations.expiry.PendingReservationSweeper;
+
+import java.sql.Connection;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+public class PendingReservationSweeperTest {
+
+    private static final String SCHEMA = "sweeper_test";
+
+    private static DriverManagerDataSource dataSource;
+
+    @Autowired
+    private PendingReservationSweeper sweeper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    static void migrate() {
+        dataSource = PostgresTestDatabase.migrate(SCHEMA);
+    }
+
+    @DynamicPropertySource
+    static void postgresProperties(DynamicPropertyRegistry registry) {
+        PostgresTestDatabase.register(registry, SCHEMA);
+        registry.add("reservation.expiry.enabled", () -> "true");
+        registry.add("reservation.expiry.interval", () -> "1h");
+        registry.add("reservation.expiry.pending-ttl", () -> "30m");
+        registry.add("reservation.expiry.batch-size", () -> "3");
+    }
+
+    @BeforeEach
+    void cleanTable() {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("DELETE FROM reservations");
+    }
+
+    @Test
+    void expiresOnlyStalePendingReservationsInBatches() {
+        insert(1, "PENDING", "2 hours");
+        insert(2, "PENDING", "2 hours");
+        insert(3, "PENDING", "1 hour");
+        insert(4, "PENDING", "31 minutes");
+        insert(5, "PENDING", "5 minutes");
+        insert(6, "APPROVED", "2 hours");
+        double transitionsBefore = expiredTransitions();
+
+        assertEquals(4, sweeper.sweep());
+
+        assertEquals("EXPIRED", status(1));
+        assertEquals("EXPIRED", status(4));
+        assertEquals("PENDING", status(5));
+        assertEquals("APPROVED", status(6));
+        assertEquals(4, expiredTransitions() - transitionsBefore);
+        assertEquals(0, sweeper.sweep());
+    }
+
+    @Test
+    void skipsRowsLockedByAnotherTransaction() throws Exception {
+        insert(1, "PENDING", "2 hours");
+        insert(2, "PENDING", "2 hours");
+
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            connection.createStatement().execute("SELECT * FROM reservations WHERE id = 1 FOR UPDATE");
+
+            assertEquals(1, sweeper.sweep());
+            assertEquals("PENDING", status(1));
+            assertEquals("EXPIRED", status(2));
+            connection.rollback();
+        }
+        assertEquals(1, sweeper.sweep());
+        assertEquals("EXPIRED", status(1));
+    }
+
+    private void insert(long id, String status, String age) {
+        jdbcTemplate.update("""
+                INSERT INTO reservations (id, user_id, room_id, start_date, end_date, reservation_status, created_at)
+                VALUES (?, 1, ?, DATE '2030-01-01', DATE '2030-01-03', ?, now() - ?::interval)
+                """, id, id, status, age);
+    }
+
+    private String status(long id) {
+        return jdbcTemplate.queryForObject("SELECT reservation_status FROM reservations WHERE id = ?", String.class, id);
+    }
+
+    private double expiredTransitions() {
+        var counter = meterRegistry.find("reservation.status.transitions")
+                .tags("from", "PENDING", "to", "EXPIRED")
+                .counter();
+        return counter != null ? counter.count() : 0;
+    }
+}
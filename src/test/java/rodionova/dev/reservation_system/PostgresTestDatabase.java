@@ -0,0 +1,89 @@
+package rodionova.dev.reservation_system;
+
+import org.flywaydb.core.Flyway;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Postgres for the tests that need the real schema: Testcontainers, or an existing database given by
+ * {@code -Dtest.postgres.url} (plus {@code .user} and {@code .password}). Each caller gets its own schema,
+ * dropped and migrated from scratch. Tests are skipped when neither is available.
+ */
+final class PostgresTestDatabase {
+
+    private static final Map<String, DriverManagerDataSource> migrated = new HashMap<>();
+
+    private static PostgreSQLContainer<?> postgres;
+
+    private PostgresTestDatabase() {
+    }
+
+    static synchronized DriverManagerDataSource migrate(String schema) {
+        String url = System.getProperty("test.postgres.url");
+        String user = System.getProperty("test.postgres.user", "postgres");
+        String password = System.getProperty("test.postgres.password", "");
+        if (url == null) {
+            assumeTrue(DockerClientFactory.instance().isDockerAvailable(), "Needs Docker or -Dtest.postgres.url");
+            if (postgres == null) {
+                postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+                postgres.start();
+            }
+            url = postgres.getJdbcUrl();
+            user = postgres.getUsername();
+            password = postgres.getPassword();
+        }
+        var dataSource = new DriverManagerDataSource(url, user, password);
+        var connectionProperties = new Properties();
+        connectionProperties.setProperty("currentSchema", schema);
+        dataSource.setConnectionProperties(connectionProperties);
+
+        var flyway = Flyway.configure()
+                .dataSource(dataSource)
+                .schemas(schema)
+                .cleanDisabled(false)
+                .configuration(Map.of("flyway.postgresql.transactional.lock", "false"))
+                .load();
+        flyway.clean();
+        flyway.migrate();
+        migrated.put(schema, dataSource);
+        return dataSource;
+    }
+
+    /**
+     * Points a Spring Boot test at a schema {@link #migrate migrated} in {@code @BeforeAll}, with Flyway and the
+     * scheduled archive, expiry and outbox relay off. Properties a test adds after this call win.
+     */
+    static void register(DynamicPropertyRegistry registry, String schema) {
+        registry.add("spring.datasource.url", () -> url(schema));
+        registry.add("spring.datasource.username", () -> dataSource(schema).getUsername());
+        registry.add("spring.datasource.password", () -> dataSource(schema).getPassword());
+        registry.add("spring.flyway.enabled", () -> "false");
+        registry.add("reservation.archive.enabled", () -> "false");
+        registry.add("reservation.expiry.enabled", () -> "false");
+        registry.add("reservation.outbox.relay.enabled", () -> "false");
+    }
+
+    /**
+     * JDBC URL of a migrated schema, for a data source that does not take connection properties.
+     */
+    static synchronized String url(String schema) {
+        String url = dataSource(schema).getUrl();
+        return url + (url.contains("?") ? "&" : "?") + "currentSchema=" + schema;
+    }
+
+    private static synchronized DriverManagerDataSource dataSource(String schema) {
+        var dataSource = migrated.get(schema);
+        if (dataSource == null) {
+            throw new IllegalStateException("Schema " + schema + " is not migrated yet");
+        }
+        return dataSource;
+    }
+}
@@ -0,0 +1,66 @@
+package rodionova.dev.reservation_system;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An emitter with no connection behind it: keeps the data of every sent event and runs the completion callback
+ * when completed.
+ */
+class RecordingSseEmitter extends SseEmitter {
+
+    private final List<Object> sent = new ArrayList<>();
+
+    private Runnable completionCallback = () -> {
+    };
+
+    private boolean completed;
+
+    @Override
+    public synchronized void send(SseEventBuilder builder) {
+        builder.build().forEach(part -> sent.add(part.getData()));
+        notifyAll();
+    }
+
+    @Override
+    public synchronized void onCompletion(Runnable callback) {
+        completionCallback = callback;
+    }
+
+    @Override
+    public void complete() {
+        Runnable callback;
+        synchronized (this) {
+            completed = true;
+            callback = completionCallback;
+        }
+        callback.run();
+    }
+
+    @Override
+    public void completeWithError(Throwable error) {
+        complete();
+    }
+
+    /**
+     * The sent data other than the SSE field text, in send order.
+     */
+    synchronized <T> List<T> sent(Class<T> type) {
+        return sent.stream().filter(type::isInstance).map(type::cast).toList();
+    }
+
+    synchronized <T> List<T> awaitSent(Class<T> type, int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (sent(type).size() < count && System.nanoTime() < deadline) {
+            wait(TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()) + 1);
+        }
+        return sent(type);
+    }
+
+    synchronized boolean isCompleted() {
+        return completed;
+    }
+}
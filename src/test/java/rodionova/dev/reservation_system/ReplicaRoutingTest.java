@@ -0,0 +1,110 @@
+package rodionova.dev.reservation_system;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import rodionova.dev.reservation_system.reservations.Reservation;
+import rodionova.dev.reservation_system.reservations.ReservationSearchFilter;
+import rodionova.dev.reservation_system.reservations.ReservationService;
+import rodionova.dev.reservation_system.reservations.ReservationStatus;
+import rodionova.dev.reservation_system.reservations.availability.ReservationAvalabilityService;
+import rodionova.dev.reservation_system.reservations.replica.ReplicaRoutingDataSource;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The primary and the replica are two schemas of one database: a row only the replica schema holds shows which
+ * side a read went to. The second replica never answers and must not take reads.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+public class ReplicaRoutingTest {
+
+    private static final String PRIMARY_SCHEMA = "replica_routing_primary_test";
+
+    private static final String REPLICA_SCHEMA = "replica_routing_replica_test";
+
+    private static final LocalDate START_DATE = LocalDate.of(2030, 5, 1);
+
+    private static DriverManagerDataSource replica;
+
+    @Autowired
+    private ReservationService reservationService;
+
+    @Autowired
+    private ReservationAvalabilityService reservationAvalabilityService;
+
+    @Autowired
+    private ReplicaRoutingDataSource routingDataSource;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeAll
+    static void migrate() {
+        PostgresTestDatabase.migrate(PRIMARY_SCHEMA);
+        replica = PostgresTestDatabase.migrate(REPLICA_SCHEMA);
+    }
+
+    @DynamicPropertySource
+    static void postgresProperties(DynamicPropertyRegistry registry) {
+        PostgresTestDatabase.register(registry, PRIMARY_SCHEMA);
+        registry.add("reservation.datasource.replicas.urls",
+                () -> PostgresTestDatabase.url(REPLICA_SCHEMA) + ",jdbc:postgresql://localhost:1/unreachable");
+        registry.add("reservation.datasource.replicas.lag-check-interval", () -> "1h");
+    }
+
+    @BeforeEach
+    void checkReplicas() {
+        routingDataSource.checkLag();
+    }
+
+    @Test
+    void searchesAndAvailabilityChecksReadTheReplica() {
+        new JdbcTemplate(replica).update("""
+                INSERT INTO reservations (user_id, room_id, start_date, end_date, reservation_status)
+                VALUES (1, 301, ?, ?, 'APPROVED')
+                """, START_DATE, START_DATE.plusDays(3));
+        double before = replicaReads();
+
+        for (int i = 0; i < 4; i++) {
+            var page = reservationService.searchAllByFilter(new ReservationSearchFilter(301L, null, null, null, null));
+            assertEquals(1, page.reservations().size());
+            assertFalse(reservationAvalabilityService.isReservationAvailable(301L, START_DATE, START_DATE.plusDays(1)));
+        }
+
+        assertEquals(before + 8, replicaReads());
+    }
+
+    @Test
+    void approvalChecksConflictsOnThePrimary() {
+        new JdbcTemplate(replica).update("""
+                INSERT INTO reservations (user_id, room_id, start_date, end_date, reservation_status)
+                VALUES (1, 302, ?, ?, 'APPROVED')
+                """, START_DATE, START_DATE.plusDays(3));
+        var created = reservationService.createReservation(
+                new Reservation(null, 1L, 302L, START_DATE, START_DATE.plusDays(2), null, null));
+
+        var approved = reservationService.approveReservation(created.id(), null);
+
+        assertEquals(ReservationStatus.APPROVED, approved.status());
+        assertEquals(created.id(), reservationService.getReservationById(created.id()).id());
+        assertTrue(reservationAvalabilityService.isReservationAvailableForApproval(
+                302L, START_DATE.plusDays(10), START_DATE.plusDays(11)));
+    }
+
+    private double replicaReads() {
+        var counter = meterRegistry.find("reservation.datasource.reads").tag("target", "replica").counter();
+        return counter != null ? counter.count() : 0;
+    }
+}
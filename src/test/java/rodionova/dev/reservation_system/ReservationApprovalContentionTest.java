@@ -0,0 +1,190 @@
+package rodionova.dev.reservation_system;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import rodionova.dev.reservation_system.reservations.Reservation;
+import rodionova.dev.reservation_system.reservations.ReservationEntity;
+import rodionova.dev.reservation_system.reservations.ReservationMapper;
+import rodionova.dev.reservation_system.reservations.ReservationMetrics;
+import rodionova.dev.reservation_system.reservations.ReservationRepository;
+import rodionova.dev.reservation_system.reservations.ReservationService;
+import rodionova.dev.reservation_system.reservations.ReservationStatus;
+import rodionova.dev.reservation_system.reservations.availability.ReservationAvalabilityService;
+import rodionova.dev.reservation_system.reservations.availability.RoomAvailabilityBroadcaster;
+import rodionova.dev.reservation_system.reservations.availability.RoomAvailabilityIndex;
+import rodionova.dev.reservation_system.reservations.replica.ReplicaReads;
+import rodionova.dev.reservation_system.reservations.store.InMemoryReservationStore;
+import rodionova.dev.reservation_system.reservations.store.InMemoryTransactionManager;
+import rodionova.dev.reservation_system.reservations.store.JpaReservationStore;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ReservationApprovalContentionTest {
+
+    private static final int ROOMS = 8;
+    private static final int RESERVATIONS_PER_ROOM = 500;
+    private static final LocalDate START = LocalDate.of(2030, 6, 1);
+
+    private final Map<Long, ReservationEntity> table = new ConcurrentHashMap<>();
+
+    @Test
+    void parallelApprovalsOfOverlappingReservationsApproveOnlyOnePerRoom() throws Exception {
+        long id = 1;
+        for (long roomId = 1; roomId <= ROOMS; roomId++) {
+            for (int i = 0; i < RESERVATIONS_PER_ROOM; i++) {
+                var entity = new ReservationEntity(id, 100L + i, roomId,
+                        START.plusDays(i % 3), START.plusDays(5 + i % 3), ReservationStatus.PENDING);
+                entity.setVersion(0L);
+                table.put(id, entity);
+                id++;
+            }
+        }
+        var reservationService = createService();
+
+        assertEquals(ROOMS, approveInParallel(reservationService, table.keySet()));
+        for (long roomId = 1; roomId <= ROOMS; roomId++) {
+            long room = roomId;
+            assertEquals(1, table.values().stream()
+                    .filter(entity -> entity.getRoomId() == room)
+                    .filter(entity -> entity.getStatus() == ReservationStatus.APPROVED)
+                    .count());
+        }
+    }
+
+    @Test
+    void parallelApprovalsInMemoryEngineTransactionsApproveOnlyOnePerRoom(@TempDir Path directory) throws Exception {
+        var store = new InMemoryReservationStore(new SimpleMeterRegistry(), directory.toString(), false);
+        try {
+            var ids = new ArrayList<Long>();
+            for (long roomId = 1; roomId <= ROOMS; roomId++) {
+                for (int i = 0; i < RESERVATIONS_PER_ROOM; i++) {
+                    ids.add(store.insert(new Reservation(null, 100L + i, roomId,
+                            START.plusDays(i % 3), START.plusDays(5 + i % 3), ReservationStatus.PENDING, null)).id());
+                }
+            }
+            var transactionManager = new InMemoryTransactionManager();
+            var availabilityService = new ReservationAvalabilityService(
+                    store, new RoomAvailabilityIndex(), new ReservationMetrics(new SimpleMeterRegistry()),
+                    mock(RoomAvailabilityBroadcaster.class), new ReplicaReads(transactionManager), false);
+            var reservationService = TestReservationServices.reservationService(store)
+                    .availabilityService(availabilityService)
+                    .transactionManager(transactionManager)
+                    .build();
+
+            assertEquals(ROOMS, approveInParallel(reservationService, ids));
+            assertEquals(LongStream.rangeClosed(1, ROOMS).boxed().toList(),
+                    store.findAllByStatus(ReservationStatus.APPROVED).stream().map(Reservation::roomId).sorted().toList());
+        } finally {
+            store.destroy();
+        }
+    }
+
+    /**
+     * @return how many approvals went through; every other one must have been rejected as a conflict
+     */
+    private static int approveInParallel(ReservationService reservationService, Collection<Long> ids) throws Exception {
+        var approved = new AtomicInteger();
+        var rejected = new AtomicInteger();
+        var startSignal = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(64);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (long reservationId : ids) {
+                futures.add(executor.submit(() -> {
+                    startSignal.await();
+                    try {
+                        reservationService.approveReservation(reservationId, null);
+                        approved.incrementAndGet();
+                    } catch (IllegalArgumentException e) {
+                        rejected.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            startSignal.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(ids.size(), approved.get() + rejected.get());
+        return approved.get();
+    }
+
+    private ReservationService createService() {
+        var repository = mock(ReservationRepository.class);
+        when(repository.findById(anyLong())).thenAnswer(invocation -> {
+            ReservationEntity stored = table.get(invocation.<Long>getArgument(0));
+            return Optional.ofNullable(stored).map(this::copy);
+        });
+        when(repository.updateStatusIfCurrent(anyLong(), anyLong(), any(), any())).thenAnswer(invocation -> {
+            Long id = invocation.getArgument(0);
+            Long expectedVersion = invocation.getArgument(1);
+            ReservationStatus expectedStatus = invocation.getArgument(2);
+            ReservationStatus status = invocation.getArgument(3);
+            var updated = new AtomicInteger();
+            table.computeIfPresent(id, (key, stored) -> {
+                if (stored.getStatus() != expectedStatus || !stored.getVersion().equals(expectedVersion)) {
+                    return stored;
+                }
+                var entity = copy(stored);
+                entity.setStatus(status);
+                entity.setVersion(stored.getVersion() + 1);
+                updated.incrementAndGet();
+                return entity;
+            });
+            return updated.get();
+        });
+        when(repository.findConflictReservations(anyLong(), any(), any(), any())).thenAnswer(invocation -> {
+            Long roomId = invocation.getArgument(0);
+            LocalDate startDate = invocation.getArgument(1);
+            LocalDate endDate = invocation.getArgument(2);
+            ReservationStatus status = invocation.getArgument(3);
+            return table.values().stream()
+                    .filter(entity -> entity.getRoomId().equals(roomId))
+                    .filter(entity -> entity.getStatus() == status)
+                    .filter(entity -> !entity.getStartDate().isAfter(endDate) && !entity.getEndDate().isBefore(startDate))
+                    .map(ReservationEntity::getId)
+                    .toList();
+        });
+
+        var transactionManager = TestReservationServices.withoutTransactions();
+        var reservationMetrics = new ReservationMetrics(new SimpleMeterRegistry());
+        var store = new JpaReservationStore(repository, new ReservationMapper(), null);
+        var availabilityService = new ReservationAvalabilityService(
+                store, new RoomAvailabilityIndex(), reservationMetrics,
+                mock(RoomAvailabilityBroadcaster.class), new ReplicaReads(transactionManager), false);
+        return TestReservationServices.reservationService(store)
+                .availabilityService(availabilityService)
+                .transactionManager(transactionManager)
+                .build();
+    }
+
+    private ReservationEntity copy(ReservationEntity entity) {
+        var copy = new ReservationEntity(entity.getId(), entity.getUserId(), entity.getRoomId(),
+                entity.getStartDate(), entity.getEndDate(), entity.getStatus());
+        copy.setVersion(entity.getVersion());
+        return copy;
+    }
+}
@@ -0,0 +1,162 @@
+package rodionova.dev.reservation_system;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import rodionova.dev.reservation_system.reservations.Reservation;
+import rodionova.dev.reservation_system.reservations.ReservationMetrics;
+import rodionova.dev.reservation_system.reservations.ReservationStatus;
+import rodionova.dev.reservation_system.reservations.archive.ReservationArchiveJob;
+import rodionova.dev.reservation_system.reservations.availability.ReservationAvalabilityService;
+import rodionova.dev.reservation_system.reservations.cache.NoOpReservationCacheTier;
+import rodionova.dev.reservation_system.reservations.cache.ReservationCache;
+import rodionova.dev.reservation_system.reservations.export.ReservationExportFilter;
+import rodionova.dev.reservation_system.reservations.export.ReservationExportService;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+
+public class ReservationArchiveJobTest {
+
+    private static final LocalDate CUTOFF = LocalDate.of(2021, 1, 1);
+
+    private JdbcTemplate jdbcTemplate;
+
+    private ReservationArchiveJob archiveJob;
+
+    private ReservationExportService exportService;
+
+    @BeforeEach
+    void setUp() {
+        var dataSource = PostgresTestDatabase.migrate("archive_test");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        var meterRegistry = new SimpleMeterRegistry();
+        archiveJob = new ReservationArchiveJob(jdbcTemplate, new DataSourceTransactionManager(dataSource),
+                new ReservationCache(new NoOpReservationCacheTier(), meterRegistry, false, 0, Duration.ZERO),
+                mock(ReservationAvalabilityService.class), new ReservationMetrics(meterRegistry),
+                Duration.ofDays(90), 7, 2);
+        exportService = new ReservationExportService(dataSource, new DataSourceTransactionManager(dataSource),
+                new ObjectMapper().findAndRegisterModules());
+    }
+
+    @Test
+    void movesEndedApprovedAndCancelledRowsInBatches() {
+        archiveJob.ensurePartitions(YearMonth.of(2020, 11));
+        insert(1, "2020-11-10", "APPROVED");
+        insert(50, "2020-12-20", "CANCELLED");
+        insert(3, "2020-12-20", "PENDING");
+        insert(4, "2021-01-05", "APPROVED");
+
+        assertEquals(51, archiveJob.archiveEndedBefore(CUTOFF));
+
+        assertEquals(51, count("reservations_archive"));
+        assertEquals(7, count("reservations"));
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM reservations WHERE end_date < ? AND reservation_status <> 'PENDING'",
+                Integer.class, CUTOFF));
+    }
+
+    @Test
+    void appendsAnArchivedEventPerMovedRow() throws Exception {
+        archiveJob.ensurePartitions(YearMonth.of(2020, 11));
+        insert(3, "2020-11-10", "APPROVED");
+        insert(1, "2020-12-20", "PENDING");
+
+        archiveJob.archiveEndedBefore(CUTOFF);
+
+        var payloads = jdbcTemplate.queryForList(
+                "SELECT payload FROM reservation_outbox WHERE event_type = 'ARCHIVED' ORDER BY reservation_id", String.class);
+        assertEquals(3, payloads.size());
+        var reservation = new ObjectMapper().findAndRegisterModules().readValue(payloads.getFirst(), Reservation.class);
+        assertEquals(ReservationStatus.APPROVED, reservation.status());
+        assertEquals(LocalDate.of(2020, 11, 10), reservation.endDate());
+        assertEquals(0L, reservation.version());
+        assertEquals(reservation.id(), jdbcTemplate.queryForObject(
+                "SELECT min(reservation_id) FROM reservation_outbox", Long.class));
+    }
+
+    @Test
+    void exportMergesArchivedRowsOnlyWhenAsked() throws Exception {
+        archiveJob.ensurePartitions(YearMonth.of(2020, 11));
+        insert(2, "2020-11-10", "APPROVED");
+        insert(1, "2020-12-20", "PENDING");
+        archiveJob.archiveEndedBefore(CUTOFF);
+
+        var current = export(new ReservationExportFilter(null, null, null, null, null, false));
+        assertEquals(List.of(ReservationStatus.PENDING), current.stream().map(Reservation::status).toList());
+
+        // The archived rows were inserted first, so they lead the merge by id
+        var all = export(new ReservationExportFilter(null, null, null, null, null, true));
+        assertEquals(List.of(ReservationStatus.APPROVED, ReservationStatus.APPROVED, ReservationStatus.PENDING),
+                all.stream().map(Reservation::status).toList());
+        assertEquals(all.stream().map(Reservation::id).sorted().toList(), all.stream().map(Reservation::id).toList());
+        assertEquals(Arrays.asList(null, null, 0L), all.stream().map(Reservation::version).toList());
+
+        var filtered = export(new ReservationExportFilter(null, 2L, ReservationStatus.APPROVED, null, null, true));
+        assertEquals(List.of(all.get(1)), filtered);
+    }
+
+    @Test
+    void dropsOnlyEmptyPartitionsBehindTheCutoff() {
+        archiveJob.ensurePartitions(YearMonth.of(2020, 11));
+        insert(1, "2020-11-10", "APPROVED");
+        insert(1, "2020-12-20", "PENDING");
+
+        archiveJob.archiveEndedBefore(CUTOFF);
+
+        assertEquals(1, archiveJob.dropEmptyPartitionsBefore(CUTOFF));
+        assertNull(jdbcTemplate.queryForObject("SELECT to_regclass('reservations_p2020_11')::text", String.class));
+        assertNotNull(jdbcTemplate.queryForObject("SELECT to_regclass('reservations_p2020_12')::text", String.class));
+        assertNotNull(jdbcTemplate.queryForObject("SELECT to_regclass('reservations_p2021_01')::text", String.class));
+    }
+
+    @Test
+    void newPartitionTakesOverRowsFromTheDefaultPartition() {
+        insert(5, "2035-03-15", "APPROVED");
+        assertEquals(5, count("reservations_default"));
+
+        archiveJob.ensurePartitions(YearMonth.of(2035, 3));
+
+        assertEquals(0, count("reservations_default"));
+        assertEquals(5, count("reservations_p2035_03"));
+    }
+
+    private void insert(int rows, String endDate, String status) {
+        jdbcTemplate.update("""
+                INSERT INTO reservations (user_id, room_id, start_date, end_date, reservation_status)
+                SELECT g, g, ?::date - 2, ?::date, ? FROM generate_series(1, ?) AS g
+                """, endDate, endDate, status, rows);
+    }
+
+    private List<Reservation> export(ReservationExportFilter filter) throws Exception {
+        var output = new ByteArrayOutputStream();
+        exportService.export(filter, output);
+        var objectMapper = new ObjectMapper().findAndRegisterModules();
+        return output.toString(StandardCharsets.UTF_8).lines()
+                .map(line -> {
+                    try {
+                        return objectMapper.readValue(line, Reservation.class);
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                })
+                .toList();
+    }
+
+    private int count(String table) {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM " + table, Integer.class);
+    }
+}
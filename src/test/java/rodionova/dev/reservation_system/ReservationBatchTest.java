@@ -0,0 +1,163 @@
+package rodionova.dev.reservation_system;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import rodionova.dev.reservation_system.reservations.Reservation;
+import rodionova.dev.reservation_system.reservations.ReservationBatchItemResult;
+import rodionova.dev.reservation_system.reservations.ReservationService;
+import rodionova.dev.reservation_system.reservations.ReservationStatus;
+import rodionova.dev.reservation_system.reservations.availability.ReservationAvalabilityService;
+import rodionova.dev.reservation_system.reservations.outbox.ReservationEventType;
+import rodionova.dev.reservation_system.reservations.outbox.ReservationOutbox;
+import rodionova.dev.reservation_system.reservations.store.InMemoryReservationStore;
+import rodionova.dev.reservation_system.reservations.store.InMemoryTransactionManager;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class ReservationBatchTest {
+
+    private static final LocalDate DAY = LocalDate.of(2030, 7, 1);
+
+    @TempDir
+    Path directory;
+
+    private final ReservationAvalabilityService availabilityService = mock(ReservationAvalabilityService.class);
+
+    private final ReservationOutbox reservationOutbox = mock(ReservationOutbox.class);
+
+    private InMemoryReservationStore store;
+
+    private ReservationService reservationService;
+
+    @BeforeEach
+    void setUp() {
+        store = new InMemoryReservationStore(new SimpleMeterRegistry(), directory.toString(), false);
+        reservationService = TestReservationServices.reservationService(store)
+                .availabilityService(availabilityService)
+                .outbox(reservationOutbox)
+                .build();
+    }
+
+    @AfterEach
+    void close() throws IOException {
+        store.destroy();
+    }
+
+    @Test
+    void createBatchSavesTheValidItemsAndReportsTheOthersByIndex() {
+        var results = reservationService.createReservations(Arrays.asList(
+                item(1L, DAY, DAY.plusDays(2)),
+                null,
+                item(1L, DAY.plusDays(2), DAY),
+                new Reservation(null, 7L, 1L, DAY, DAY.plusDays(2), ReservationStatus.APPROVED, null),
+                new Reservation(null, null, 1L, DAY, DAY.plusDays(2), null, null),
+                item(2L, DAY, DAY.plusDays(2))));
+
+        assertEquals(List.of(0, 1, 2, 3, 4, 5), results.stream().map(ReservationBatchItemResult::index).toList());
+        assertEquals("Reservation should not be empty", results.get(1).error());
+        assertEquals("End date should be after start date", results.get(2).error());
+        assertEquals("Status should be empty", results.get(3).error());
+        assertTrue(results.get(4).error().startsWith("userId "));
+        for (int index : List.of(1, 2, 3, 4)) {
+            assertNull(results.get(index).reservation());
+        }
+
+        var created = List.of(results.get(0).reservation(), results.get(5).reservation());
+        assertNull(results.get(0).error());
+        assertNull(results.get(5).error());
+        assertEquals(List.of(1L, 2L), created.stream().map(Reservation::roomId).toList());
+        assertTrue(created.stream().allMatch(reservation -> reservation.status() == ReservationStatus.PENDING));
+        for (Reservation reservation : created) {
+            assertEquals(reservation, store.findById(reservation.id()).orElseThrow());
+        }
+        verify(reservationOutbox).appendAll(ReservationEventType.CREATED, created);
+    }
+
+    @Test
+    void approveBatchApprovesWhatItCanAndReportsTheRest() {
+        var first = store.insert(pending(1L, DAY, DAY.plusDays(2)));
+        var overlappingFirst = store.insert(pending(1L, DAY.plusDays(1), DAY.plusDays(3)));
+        var approved = store.insert(pending(2L, DAY, DAY.plusDays(2)));
+        assertEquals(1, store.updateStatusIfCurrent(approved.id(), 0L, ReservationStatus.PENDING, ReservationStatus.APPROVED));
+        var overlappingApproved = store.insert(pending(2L, DAY.plusDays(2), DAY.plusDays(4)));
+        var stale = store.insert(pending(3L, DAY, DAY.plusDays(2)));
+
+        var results = reservationService.approveReservations(
+                Arrays.asList(first.id(), overlappingFirst.id(), null, 999L, first.id(), approved.id(),
+                        overlappingApproved.id(), stale.id()),
+                Arrays.asList(null, null, null, null, null, null, null, 5L));
+
+        var approvedFirst = new Reservation(first.id(), 7L, 1L, DAY, DAY.plusDays(2), ReservationStatus.APPROVED, 1L);
+        assertEquals(ReservationBatchItemResult.success(0, approvedFirst), results.get(0));
+        assertEquals(List.of(
+                        "Cannot approve reservation, this reservation is conflict",
+                        "Reservation id should not be empty",
+                        "No found reservation by id= 999",
+                        "Reservation id= " + first.id() + " is repeated in the batch",
+                        "Cannot approve reservation, this status should be PENDING",
+                        "Cannot approve reservation, this reservation is conflict",
+                        "Reservation id= " + stale.id() + " is at version 0, not 5"),
+                results.subList(1, 8).stream().map(ReservationBatchItemResult::error).toList());
+
+        assertEquals(approvedFirst, store.findById(first.id()).orElseThrow());
+        assertEquals(ReservationStatus.PENDING, store.findById(overlappingFirst.id()).orElseThrow().status());
+        assertEquals(ReservationStatus.PENDING, store.findById(overlappingApproved.id()).orElseThrow().status());
+        assertEquals(ReservationStatus.PENDING, store.findById(stale.id()).orElseThrow().status());
+        verify(reservationOutbox).appendAll(ReservationEventType.APPROVED, List.of(approvedFirst));
+        verify(availabilityService, times(1)).onReservationApproved(anyLong(), any(), any(), any());
+        verify(availabilityService).onReservationApproved(first.id(), 1L, DAY, DAY.plusDays(2));
+    }
+
+    @Test
+    void batchesCommitOrRollBackAsOneTransaction() {
+        var failingOutbox = mock(ReservationOutbox.class);
+        doThrow(new IllegalStateException("outbox is down")).when(failingOutbox).appendAll(any(), anyList());
+        var transactionalService = TestReservationServices.reservationService(store)
+                .outbox(failingOutbox)
+                .transactionManager(new InMemoryTransactionManager())
+                .build();
+        var pending = store.insert(pending(1L, DAY, DAY.plusDays(2)));
+
+        assertThrows(IllegalStateException.class, () -> transactionalService.createReservations(List.of(
+                item(2L, DAY, DAY.plusDays(2)), item(3L, DAY, DAY.plusDays(2)))));
+        assertThrows(IllegalStateException.class, () -> transactionalService.approveReservations(List.of(pending.id())));
+
+        assertEquals(List.of(pending), store.findAllByStatus(ReservationStatus.PENDING));
+        assertTrue(store.findAllByStatus(ReservationStatus.APPROVED).isEmpty());
+    }
+
+    @Test
+    void emptyBatchIsRejected() {
+        var exception = assertThrows(IllegalArgumentException.class,
+                () -> reservationService.approveReservations(List.of()));
+
+        assertEquals("Batch size should be between 1 and 1000", exception.getMessage());
+    }
+
+    private static Reservation item(Long roomId, LocalDate startDate, LocalDate endDate) {
+        return new Reservation(null, 7L, roomId, startDate, endDate, null, null);
+    }
+
+    private static Reservation pending(Long roomId, LocalDate startDate, LocalDate endDate) {
+        return new Reservation(null, 7L, roomId, startDate, endDate, ReservationStatus.PENDING, null);
+    }
+}
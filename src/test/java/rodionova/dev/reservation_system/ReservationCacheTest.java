@@ -0,0 +1,198 @@
+package rodionova.dev.reservation_system;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.Ordered;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+import rodionova.dev.reservation_system.reservations.Reservation;
+import rodionova.dev.reservation_system.reservations.ReservationService;
+import rodionova.dev.reservation_system.reservations.ReservationStatus;
+import rodionova.dev.reservation_system.reservations.cache.LocalReservationCacheTier;
+import rodionova.dev.reservation_system.reservations.cache.ReservationCache;
+import rodionova.dev.reservation_system.reservations.outbox.ReservationEventType;
+import rodionova.dev.reservation_system.reservations.outbox.ReservationOutbox;
+import rodionova.dev.reservation_system.reservations.store.InMemoryReservationStore;
+import rodionova.dev.reservation_system.reservations.store.InMemoryTransactionManager;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+public class ReservationCacheTest {
+
+    private static final LocalDate DAY = LocalDate.of(2030, 7, 1);
+
+    @TempDir
+    Path directory;
+
+    private final LocalReservationCacheTier secondTier = new LocalReservationCacheTier(100, Duration.ofMinutes(5));
+
+    private final ReservationCache reservationCache = new ReservationCache(secondTier, new SimpleMeterRegistry(),
+            true, 100, Duration.ofMinutes(5));
+
+    private InMemoryReservationStore store;
+
+    private ReservationService reservationService;
+
+    @BeforeEach
+    void setUp() {
+        store = new InMemoryReservationStore(new SimpleMeterRegistry(), directory.toString(), false);
+        reservationService = TestReservationServices.reservationService(store).cache(reservationCache).build();
+    }
+
+    @AfterEach
+    void close() throws IOException {
+        store.destroy();
+    }
+
+    @Test
+    void updateEvictsTheCachedReservation() {
+        var reservation = store.insert(pending(1L));
+        assertEquals(reservation, reservationService.getReservationById(reservation.id()));
+
+        reservationService.updateReservation(reservation.id(),
+                new Reservation(null, 8L, 2L, DAY.plusDays(3), DAY.plusDays(5), null, null), null);
+
+        var expected = new Reservation(reservation.id(), 8L, 2L, DAY.plusDays(3), DAY.plusDays(5),
+                ReservationStatus.PENDING, 1L);
+        assertEquals(expected, reservationService.getReservationById(reservation.id()));
+        assertEquals(expected, secondTier.get(reservation.id()).orElseThrow());
+    }
+
+    @Test
+    void cancelEvictsTheCachedReservation() {
+        var reservation = store.insert(pending(1L));
+        assertEquals(1, store.updateStatusIfCurrent(reservation.id(), 0L, ReservationStatus.PENDING, ReservationStatus.APPROVED));
+        assertEquals(ReservationStatus.APPROVED, reservationService.getReservationById(reservation.id()).status());
+
+        reservationService.cancelReservation(reservation.id(), null);
+
+        var cached = reservationService.getReservationById(reservation.id());
+        assertEquals(ReservationStatus.CANCELLED, cached.status());
+        assertEquals(2L, cached.version());
+    }
+
+    @Test
+    void deleteEvictsTheCachedReservationFromBothTiers() {
+        var reservation = store.insert(pending(1L));
+        reservationService.getReservationById(reservation.id());
+
+        reservationService.deleteReservation(reservation.id());
+
+        assertTrue(secondTier.get(reservation.id()).isEmpty());
+        assertThrows(EntityNotFoundException.class, () -> reservationService.getReservationById(reservation.id()));
+    }
+
+    @Test
+    void rolledBackUpdateIsNeverCached() {
+        var reservation = store.insert(pending(1L));
+        reservationService.getReservationById(reservation.id());
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            reservationService.updateReservation(reservation.id(),
+                    new Reservation(null, 8L, 2L, DAY.plusDays(3), DAY.plusDays(5), null, null), null);
+            // Readers outside the transaction reload the committed row, not the one about to be rolled back
+            assertEquals(reservation, CompletableFuture.supplyAsync(
+                    () -> reservationService.getReservationById(reservation.id())).join());
+            TransactionSynchronizationUtils.invokeAfterCompletion(
+                    TransactionSynchronizationManager.getSynchronizations(), TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(reservation, reservationService.getReservationById(reservation.id()));
+        assertEquals(reservation, secondTier.get(reservation.id()).orElseThrow());
+    }
+
+    @Test
+    void rowCachedWhileTheUpdateCommitsIsEvictedOnceItHasCommitted() {
+        var reservationOutbox = mock(ReservationOutbox.class);
+        var transactionalService = TestReservationServices.reservationService(store)
+                .cache(reservationCache)
+                .outbox(reservationOutbox)
+                .transactionManager(new InMemoryTransactionManager())
+                .build();
+        var reservation = store.insert(pending(1L));
+        var readWhileCommitting = new AtomicReference<Reservation>();
+        doAnswer(invocation -> {
+            // Runs ahead of the store's commit, after the update evicted the row: the old row is loaded again
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public int getOrder() {
+                    return Ordered.HIGHEST_PRECEDENCE;
+                }
+
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    readWhileCommitting.set(CompletableFuture.supplyAsync(
+                            () -> transactionalService.getReservationById(reservation.id())).join());
+                }
+            });
+            return null;
+        }).when(reservationOutbox).append(eq(ReservationEventType.UPDATED), any());
+
+        var updated = transactionalService.updateReservation(reservation.id(),
+                new Reservation(null, 8L, 2L, DAY.plusDays(3), DAY.plusDays(5), null, null), null);
+
+        assertEquals(reservation, readWhileCommitting.get());
+        assertEquals(updated, transactionalService.getReservationById(reservation.id()));
+        assertEquals(updated, secondTier.get(reservation.id()).orElseThrow());
+    }
+
+    @Test
+    void evictionDuringALoadKeepsTheLoadedRowOutOfTheSecondTier() throws Exception {
+        var reservation = store.insert(pending(1L));
+        var loading = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var load = CompletableFuture.supplyAsync(() -> reservationCache.get(reservation.id(), id -> {
+            loading.countDown();
+            await(release);
+            return reservation;
+        }));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+        var evictor = new Thread(() -> reservationCache.evict(reservation.id()));
+        evictor.start();
+        while (evictor.getState() == Thread.State.RUNNABLE || evictor.getState() == Thread.State.NEW) {
+            Thread.onSpinWait();
+        }
+        release.countDown();
+        load.get(5, TimeUnit.SECONDS);
+        evictor.join(5000);
+
+        assertTrue(secondTier.get(reservation.id()).isEmpty());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Reservation pending(Long roomId) {
+        return new Reservation(null, 7L, roomId, DAY, DAY.plusDays(2), ReservationStatus.PENDING, null);
+    }
+}
@@ -0,0 +1,104 @@
+package rodionova.dev.reservation_system;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import rodionova.dev.reservation_system.reservations.Reservation;
+import rodionova.dev.reservation_system.reservations.ReservationService;
+import rodionova.dev.reservation_system.reservations.ReservationStatus;
+import rodionova.dev.reservation_system.reservations.ReservationVersionMismatchException;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+public class ReservationConditionalUpdateTest {
+
+    private static final String SCHEMA = "conditional_update_test";
+
+    private static DriverManagerDataSource dataSource;
+
+    @Autowired
+    private ReservationService reservationService;
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    static void migrate() {
+        dataSource = PostgresTestDatabase.migrate(SCHEMA);
+    }
+
+    @DynamicPropertySource
+    static void postgresProperties(DynamicPropertyRegistry registry) {
+        PostgresTestDatabase.register(registry, SCHEMA);
+    }
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @Test
+    void everyTransitionBumpsTheVersion() {
+        var created = reservationService.createReservation(newReservation(201, 1));
+        assertEquals(0L, created.version());
+
+        var updated = reservationService.updateReservation(created.id(), newReservation(201, 2), 0L);
+        var approved = reservationService.approveReservation(created.id(), 1L);
+        var cancelled = reservationService.cancelReservation(created.id(), 2L);
+
+        assertEquals(1L, updated.version());
+        assertEquals(2L, approved.version());
+        assertEquals(3L, cancelled.version());
+        assertEquals(ReservationStatus.CANCELLED, cancelled.status());
+        assertEquals(3L, version(created.id()));
+    }
+
+    @Test
+    void staleIfMatchIsRejectedWithoutWriting() {
+        var created = reservationService.createReservation(newReservation(202, 1));
+        reservationService.updateReservation(created.id(), newReservation(202, 2), 0L);
+
+        assertThrows(ReservationVersionMismatchException.class,
+                () -> reservationService.updateReservation(created.id(), newReservation(202, 5), 0L));
+        assertThrows(ReservationVersionMismatchException.class,
+                () -> reservationService.approveReservation(created.id(), 0L));
+
+        assertEquals(1L, version(created.id()));
+        assertEquals("PENDING", jdbcTemplate.queryForObject(
+                "SELECT reservation_status FROM reservations WHERE id = ?", String.class, created.id()));
+    }
+
+    @Test
+    void changeMadeBehindTheCacheIsNotOverwritten() {
+        var created = reservationService.createReservation(newReservation(203, 1));
+        reservationService.getReservationById(created.id());
+        // Another node approves: this node's cached copy still says PENDING at version 0
+        jdbcTemplate.update("UPDATE reservations SET reservation_status = 'APPROVED', version = version + 1 WHERE id = ?",
+                created.id());
+
+        var cancelled = reservationService.cancelReservation(created.id(), null);
+
+        assertEquals(ReservationStatus.CANCELLED, cancelled.status());
+        assertEquals(2L, cancelled.version());
+        assertThrows(IllegalStateException.class,
+                () -> reservationService.updateReservation(created.id(), newReservation(203, 3), null));
+    }
+
+    private long version(long id) {
+        return jdbcTemplate.queryForObject("SELECT version FROM reservations WHERE id = ?", Long.class, id);
+    }
+
+    private static Reservation newReservation(long roomId, int nights) {
+        return new Reservation(null, 1L, roomId, LocalDate.of(2030, 3, 1), LocalDate.of(2030, 3, 1).plusDays(nights),
+                null, null);
+    }
+}
@@ -0,0 +1,163 @@
+package rodionova.dev.reservation_system;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import rodionova.dev.reservation_system.reservations.Reservation;
+import rodionova.dev.reservation_system.reservations.ReservationService;
+import rodionova.dev.reservation_system.reservations.ReservationStatus;
+import rodionova.dev.reservation_system.reservations.outbox.ReservationEvent;
+import rodionova.dev.reservation_system.reservations.outbox.ReservationEventSink;
+import rodionova.dev.reservation_system.reservations.outbox.ReservationEventType;
+import rodionova.dev.reservation_system.reservations.outbox.ReservationOutboxRelay;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+public class ReservationOutboxRelayTest {
+
+    private static final String SCHEMA = "outbox_test";
+
+    private static DriverManagerDataSource dataSource;
+
+    @Autowired
+    private ReservationService reservationService;
+
+    @Autowired
+    private ReservationOutboxRelay relay;
+
+    @Autowired
+    private RecordingSink sink;
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    static void migrate() {
+        dataSource = PostgresTestDatabase.migrate(SCHEMA);
+    }
+
+    @DynamicPropertySource
+    static void postgresProperties(DynamicPropertyRegistry registry) {
+        PostgresTestDatabase.register(registry, SCHEMA);
+        registry.add("reservation.outbox.relay.enabled", () -> "true");
+        registry.add("reservation.outbox.interval", () -> "1h");
+        registry.add("reservation.outbox.batch-size", () -> "2");
+    }
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        relay.relay();
+        sink.events.clear();
+        sink.failing = false;
+    }
+
+    @Test
+    void publishesTransitionsInOrderWithGapFreePositions() {
+        long start = lastPosition();
+        var created = reservationService.createReservation(newReservation(101));
+        reservationService.approveReservation(created.id(), null);
+        reservationService.cancelReservation(created.id(), null);
+
+        assertEquals(3, relay.relay());
+
+        assertEquals(List.of(ReservationEventType.CREATED, ReservationEventType.APPROVED, ReservationEventType.CANCELLED),
+                sink.events.stream().map(ReservationEvent::type).toList());
+        assertEquals(List.of(start + 1, start + 2, start + 3),
+                sink.events.stream().map(ReservationEvent::position).toList());
+        assertEquals(ReservationStatus.CANCELLED, sink.events.getLast().reservation().status());
+        assertEquals(start + 3, lastPosition());
+        assertEquals(0, relay.relay());
+    }
+
+    @Test
+    void failedSinkLeavesTheBatchForTheNextRun() {
+        long start = lastPosition();
+        reservationService.createReservation(newReservation(102));
+        sink.failing = true;
+
+        assertThrows(IllegalStateException.class, relay::relay);
+        assertEquals(start, lastPosition());
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM reservation_outbox WHERE position IS NULL", Integer.class));
+
+        sink.failing = false;
+        assertEquals(1, relay.relay());
+        assertEquals(start + 1, sink.events.getLast().position());
+    }
+
+    @Test
+    void rolledBackChangeWritesNoEvent() {
+        var created = reservationService.createReservation(newReservation(103));
+        relay.relay();
+        sink.events.clear();
+
+        assertThrows(IllegalStateException.class, () -> reservationService.cancelReservation(created.id(), null));
+
+        assertEquals(0, relay.relay());
+    }
+
+    @Test
+    void eventsAreRelayedInTheOrderTheDatabaseStampedThem() {
+        // The later event carries the lower id, as it would coming from another node's pooled id block
+        insertEvent(1_000_002L, ReservationEventType.APPROVED);
+        insertEvent(1_000_001L, ReservationEventType.CANCELLED);
+
+        assertEquals(2, relay.relay());
+
+        assertEquals(List.of(ReservationEventType.APPROVED, ReservationEventType.CANCELLED),
+                sink.events.stream().map(ReservationEvent::type).toList());
+    }
+
+    private void insertEvent(long id, ReservationEventType type) {
+        jdbcTemplate.update("""
+                INSERT INTO reservation_outbox (id, reservation_id, event_type, payload)
+                VALUES (?, 104, ?, '{"id":104,"userId":1,"roomId":104,"startDate":"2030-01-01","endDate":"2030-01-03","status":"APPROVED","version":1}')
+                """, id, type.name());
+    }
+
+    private long lastPosition() {
+        return jdbcTemplate.queryForObject("SELECT last_position FROM reservation_outbox_relay", Long.class);
+    }
+
+    private static Reservation newReservation(long roomId) {
+        return new Reservation(null, 1L, roomId, LocalDate.of(2030, 1, 1), LocalDate.of(2030, 1, 3), null, null);
+    }
+
+    @TestConfiguration
+    static class RecordingSinkConfiguration {
+
+        @Bean
+        RecordingSink recordingSink() {
+            return new RecordingSink();
+        }
+    }
+
+    static class RecordingSink implements ReservationEventSink {
+
+        final List<ReservationEvent> events = new ArrayList<>();
+
+        volatile boolean failing;
+
+        @Override
+        public synchronized void publish(List<ReservationEvent> events) {
+            if (failing) {
+                throw new IllegalStateException("Sink unavailable");
+            }
+            this.events.addAll(events);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package rodionova.dev.reservation_system;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.support.TransactionTemplate;
+import rodionova.dev.reservation_system.reservations.Reservation;
+import rodionova.dev.reservation_system.reservations.ReservationController;
+import rodionova.dev.reservation_system.reservations.ReservationPage;
+import rodionova.dev.reservation_system.reservations.ReservationSearchFilter;
+import rodionova.dev.reservation_system.reservations.ReservationService;
+import rodionova.dev.reservation_system.reservations.ReservationStatus;
+import rodionova.dev.reservation_system.reservations.store.InMemoryReservationStore;
+import rodionova.dev.reservation_system.reservations.store.InMemoryTransactionManager;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ReservationPagingTest {
+
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private static final LocalDate DAY = LocalDate.of(2030, 7, 1);
+
+    @TempDir
+    Path directory;
+
+    private InMemoryReservationStore store;
+
+    private ReservationService reservationService;
+
+    private ReservationController controller;
+
+    @BeforeEach
+    void setUp() {
+        store = new InMemoryReservationStore(new SimpleMeterRegistry(), directory.toString(), false);
+        reservationService = TestReservationServices.reservationService(store).build();
+        controller = new ReservationController(reservationService, null, null, null);
+    }
+
+    @AfterEach
+    void close() throws IOException {
+        store.destroy();
+    }
+
+    @Test
+    void cursorWalksTheRoomPageByPageUntilTheHeaderIsGone() {
+        var ids = new ArrayList<Long>();
+        for (int i = 0; i < 5; i++) {
+            ids.add(store.insert(pending(1L, i)).id());
+            store.insert(pending(2L, i));
+        }
+
+        var first = controller.getAllReservations(1L, null, 2, null, null);
+        assertEquals(ids.subList(0, 2), ids(first));
+        assertEquals(ids.get(1).toString(), first.getHeaders().getFirst(NEXT_CURSOR_HEADER));
+
+        var second = controller.getAllReservations(1L, null, 2, null, cursor(first));
+        assertEquals(ids.subList(2, 4), ids(second));
+        assertEquals(ids.get(3).toString(), second.getHeaders().getFirst(NEXT_CURSOR_HEADER));
+
+        var last = controller.getAllReservations(1L, null, 2, null, cursor(second));
+        assertEquals(ids.subList(4, 5), ids(last));
+        assertNull(last.getHeaders().getFirst(NEXT_CURSOR_HEADER));
+    }
+
+    @Test
+    void rowsDeletedBehindTheCursorDoNotShiftTheNextPage() {
+        var ids = new ArrayList<Long>();
+        for (int i = 0; i < 4; i++) {
+            ids.add(store.insert(pending(1L, i)).id());
+        }
+
+        var first = controller.getAllReservations(1L, null, 2, null, null);
+        store.delete(ids.getFirst());
+
+        // An offset page would now start at the fourth row and skip the third
+        var second = controller.getAllReservations(1L, null, 2, null, cursor(first));
+        assertEquals(ids.subList(2, 4), ids(second));
+    }
+
+    @Test
+    void fullLastPageStillHandsOutACursorThatReturnsNothing() {
+        store.insert(pending(1L, 0));
+        store.insert(pending(1L, 1));
+
+        var page = reservationService.searchAllByFilter(new ReservationSearchFilter(1L, null, 2, null, null));
+        assertEquals(2, page.reservations().size());
+
+        var next = reservationService.searchAllByFilter(new ReservationSearchFilter(1L, null, 2, null, page.nextCursor()));
+        assertEquals(List.of(), next.reservations());
+        assertNull(next.nextCursor());
+    }
+
+    @Test
+    void pagesSeeTheRowsOfTheirOwnTransactionAndOnlyCommittedRowsOfOthers() {
+        var transactionManager = new InMemoryTransactionManager();
+        var transactionalService = TestReservationServices.reservationService(store)
+                .transactionManager(transactionManager)
+                .build();
+        var committed = List.of(store.insert(pending(1L, 0)).id(), store.insert(pending(1L, 1)).id());
+        var filter = new ReservationSearchFilter(1L, null, 2, null, null);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            var uncommitted = store.insert(pending(1L, 2)).id();
+            var first = transactionalService.searchAllByFilter(filter);
+            assertEquals(committed, ids(first));
+            var next = transactionalService.searchAllByFilter(new ReservationSearchFilter(1L, null, 2, null, first.nextCursor()));
+            assertEquals(List.of(uncommitted), ids(next));
+
+            var outside = CompletableFuture.supplyAsync(() -> transactionalService.searchAllByFilter(
+                    new ReservationSearchFilter(1L, null, 2, null, first.nextCursor()))).join();
+            assertEquals(List.of(), ids(outside));
+            status.setRollbackOnly();
+        });
+
+        assertEquals(committed, ids(transactionalService.searchAllByFilter(filter)));
+    }
+
+    @Test
+    void pageNumberCannotBeCombinedWithACursor() {
+        var exception = assertThrows(IllegalArgumentException.class,
+                () -> reservationService.searchAllByFilter(new ReservationSearchFilter(1L, null, 2, 1, 5L)));
+
+        assertEquals("Page number cannot be combined with a cursor", exception.getMessage());
+    }
+
+    private static Long cursor(ResponseEntity<List<Reservation>> response) {
+        return Long.valueOf(response.getHeaders().getFirst(NEXT_CURSOR_HEADER));
+    }
+
+    private static List<Long> ids(ResponseEntity<List<Reservation>> response) {
+        return response.getBody().stream().map(Reservation::id).toList();
+    }
+
+    private static List<Long> ids(ReservationPage page) {
+        return page.reservations().stream().map(Reservation::id).toList();
+    }
+
+    private static Reservation pending(Long roomId, int night) {
+        return new Reservation(null, 7L, roomId, DAY.plusDays(night * 2L), DAY.plusDays(night * 2L + 1),
+                ReservationStatus.PENDING, null);
+    }
+}
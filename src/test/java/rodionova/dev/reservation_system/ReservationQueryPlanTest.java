@@ -0,0 +1,122 @@
+package rodionova.dev.reservation_system;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks on a migrated Postgres schema that the conflict and search queries are planned on the indexes
+ * and that date-bounded queries only touch the partitions they can match.
+ */
+public class ReservationQueryPlanTest {
+
+    private static final int TABLE_SIZE = 200_000;
+
+    private static JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    static void migrateAndSeed() {
+        jdbcTemplate = new JdbcTemplate(PostgresTestDatabase.migrate("query_plan_test"));
+        jdbcTemplate.query("""
+                SELECT reservations_ensure_partition(month::date)
+                FROM generate_series(DATE '2030-01-01', DATE '2032-01-01', INTERVAL '1 month') AS month
+                """, resultSet -> null);
+        jdbcTemplate.update("""
+                INSERT INTO reservations (user_id, room_id, start_date, end_date, reservation_status)
+                SELECT g % 5000 + 1, g % 2000 + 1, DATE '2030-01-01' + g % 700, DATE '2030-01-01' + g % 700 + 3,
+                       (ARRAY ['PENDING', 'APPROVED', 'CANCELLED'])[g % 3 + 1]
+                FROM generate_series(1, ?) AS g
+                """, TABLE_SIZE);
+        jdbcTemplate.execute("ANALYZE reservations");
+    }
+
+    @Test
+    void conflictQueryUsesRoomStatusDatesIndex() {
+        assertPlanUses("idx_reservations_room_status_dates", """
+                SELECT id FROM reservations
+                WHERE room_id = 42
+                AND start_date <= DATE '2030-06-10'
+                AND end_date >= DATE '2030-06-01'
+                AND reservation_status = 'APPROVED'
+                """);
+    }
+
+    @Test
+    void searchByRoomUsesRoomIndex() {
+        assertPlanUses("idx_reservations_room_id", """
+                SELECT * FROM reservations
+                WHERE room_id = 42 AND id > 0
+                ORDER BY id LIMIT 50
+                """);
+    }
+
+    @Test
+    void searchByUserUsesUserIndex() {
+        assertPlanUses("idx_reservations_user_id", """
+                SELECT * FROM reservations
+                WHERE user_id = 42 AND id > 0
+                ORDER BY id LIMIT 50
+                """);
+    }
+
+    @Test
+    void searchByRoomAndUserUsesAnIndex() {
+        assertPlanUses("idx_reservations_", """
+                SELECT * FROM reservations
+                WHERE room_id = 42 AND user_id = 42 AND id > 0
+                ORDER BY id LIMIT 50
+                """);
+    }
+
+    @Test
+    void keysetSearchSeeksOnPrimaryKey() {
+        assertPlanUses("reservations_pkey", """
+                SELECT * FROM reservations
+                WHERE id > 150000
+                ORDER BY id LIMIT 50
+                """);
+    }
+
+    @Test
+    void conflictQueryOnlyScansPartitionsEndingAfterStart() {
+        String plan = explain("""
+                SELECT id FROM reservations
+                WHERE room_id = 42
+                AND start_date <= DATE '2031-06-10'
+                AND end_date >= DATE '2031-06-01'
+                AND reservation_status = 'APPROVED'
+                """);
+        assertTrue(plan.contains("reservations_p2031_06"), plan);
+        assertFalse(plan.contains("reservations_p2031_05"), plan);
+        assertFalse(plan.contains("reservations_p2030_01"), plan);
+    }
+
+    private void assertPlanUses(String index, String query) {
+        String plan = explain(query);
+        // Partitions carry their own copies of the indexes; name each one by the index it was created from
+        var used = new ArrayList<String>();
+        Matcher matcher = Pattern.compile("using (\\S+)").matcher(plan);
+        while (matcher.find()) {
+            used.add(jdbcTemplate.queryForObject("""
+                    SELECT COALESCE(parent.relname, child.relname)
+                    FROM pg_class child
+                    LEFT JOIN pg_inherits ON pg_inherits.inhrelid = child.oid
+                    LEFT JOIN pg_class parent ON parent.oid = pg_inherits.inhparent
+                    WHERE child.oid = to_regclass(?)
+                    """, String.class, matcher.group(1)));
+        }
+        assertTrue(used.stream().anyMatch(name -> name.startsWith(index)),
+                () -> "Expected " + index + " in plan:\n" + plan);
+    }
+
+    private String explain(String query) {
+        return String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + query, String.class));
+    }
+}
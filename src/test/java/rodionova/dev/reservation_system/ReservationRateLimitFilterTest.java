@@ -0,0 +1,89 @@
+package rodionova.dev.reservation_system;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import rodionova.dev.reservation_system.reservations.ReservationMetrics;
+import rodionova.dev.reservation_system.reservations.ratelimit.AdaptiveConcurrencyLimiter;
+import rodionova.dev.reservation_system.reservations.ratelimit.ClientRateLimiter;
+import rodionova.dev.reservation_system.reservations.ratelimit.ReservationRateLimitFilter;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ReservationRateLimitFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter = new AdaptiveConcurrencyLimiter(meterRegistry,
+            10, 2, 20, 0.9, 2.0, 5, Duration.ofMillis(1));
+
+    private final ReservationRateLimitFilter filter = new ReservationRateLimitFilter(
+            new ClientRateLimiter(meterRegistry, 0.1, 3, 1000), concurrencyLimiter,
+            new ReservationMetrics(meterRegistry), Jackson2ObjectMapperBuilder.json().build(), "X-API-Key");
+
+    @Test
+    void clientOverItsBurstGetsTooManyRequestsWithRetryAfter() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            assertEquals(200, send("POST", "/api/reservations/availability/check", "client-1").getStatus());
+        }
+
+        var throttled = send("POST", "/api/reservations/availability/check", "client-1");
+        assertEquals(429, throttled.getStatus());
+        assertTrue(Long.parseLong(throttled.getHeader("Retry-After")) >= 1);
+        assertEquals(200, send("GET", "/reservation", "client-2").getStatus());
+        assertEquals(1.0, meterRegistry.get("reservation.ratelimit.requests").tag("outcome", "throttled")
+                .counter().count());
+    }
+
+    @Test
+    void subscriptionsAndWritesAreNotLimited() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            assertEquals(200, send("GET", "/api/reservations/availability/subscribe", "client-1").getStatus());
+            assertEquals(200, send("POST", "/reservation", "client-1").getStatus());
+        }
+    }
+
+    @Test
+    void concurrencyLimitShrinksWhenLatencyRisesAndShedsTheExcess() throws Exception {
+        recordWindow(Duration.ofMillis(2));
+        assertEquals(11, concurrencyLimiter.limit());
+
+        recordWindow(Duration.ofMillis(50));
+        int limit = concurrencyLimiter.limit();
+        assertEquals(9, limit);
+
+        for (int i = 0; i < limit; i++) {
+            assertTrue(concurrencyLimiter.tryAcquire());
+        }
+        assertFalse(concurrencyLimiter.tryAcquire());
+        var shed = send("GET", "/reservation", "client-1");
+        assertEquals(503, shed.getStatus());
+        assertEquals("1", shed.getHeader("Retry-After"));
+    }
+
+    private void recordWindow(Duration latency) {
+        for (int i = 0; i < 10; i++) {
+            assertTrue(concurrencyLimiter.tryAcquire());
+        }
+        for (int i = 0; i < 10; i++) {
+            concurrencyLimiter.release(TimeUnit.NANOSECONDS.convert(latency));
+        }
+        concurrencyLimiter.adjustLimit();
+    }
+
+    private MockHttpServletResponse send(String method, String path, String apiKey) throws Exception {
+        var request = new MockHttpServletRequest(method, path);
+        request.addHeader("X-API-Key", apiKey);
+        var response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+}
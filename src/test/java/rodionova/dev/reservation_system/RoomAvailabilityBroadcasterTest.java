@@ -0,0 +1,114 @@
+package rodionova.dev.reservation_system;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+import rodionova.dev.reservation_system.reservations.ReservationMetrics;
+import rodionova.dev.reservation_system.reservations.availability.AvailabilityDelta;
+import rodionova.dev.reservation_system.reservations.availability.AvailabilityStatus;
+import rodionova.dev.reservation_system.reservations.availability.RoomAvailabilityBroadcaster;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RoomAvailabilityBroadcasterTest {
+
+    private static final LocalDate DAY = LocalDate.of(2030, 5, 1);
+
+    private final CountDownLatch sendAllowed = new CountDownLatch(1);
+
+    // Blocks the drain on its first send, so later deltas pile up in the buffer like behind a slow client
+    private final RecordingSseEmitter slowEmitter = new RecordingSseEmitter() {
+        @Override
+        public void send(SseEventBuilder builder) {
+            try {
+                sendAllowed.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            super.send(builder);
+        }
+    };
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @AfterEach
+    void tearDown() {
+        sendAllowed.countDown();
+    }
+
+    @Test
+    void deltasReachSubscribersOfTheRoomOnlyWhenTheTransactionCommits() throws Exception {
+        var emitter = new RecordingSseEmitter();
+        var broadcaster = broadcaster(10, emitter);
+        broadcaster.subscribe(List.of(1L));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            broadcaster.publish(delta(1L, 10L));
+            TransactionSynchronizationUtils.invokeAfterCompletion(
+                    TransactionSynchronizationManager.getSynchronizations(), TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            broadcaster.publish(delta(2L, 20L));
+            broadcaster.publish(delta(1L, 30L));
+            assertTrue(emitter.sent(AvailabilityDelta.class).isEmpty());
+            TransactionSynchronizationUtils.triggerAfterCommit();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        var sent = emitter.awaitSent(AvailabilityDelta.class, 1);
+        assertEquals(List.of(30L), sent.stream().map(AvailabilityDelta::reservationId).toList());
+    }
+
+    @Test
+    void subscriberAFullBufferBehindIsDisconnected() {
+        var broadcaster = broadcaster(2, slowEmitter);
+        broadcaster.subscribe(List.of(1L));
+
+        // The drain holds at most one delta, the buffer the next two; the fourth overflows it
+        for (long reservationId = 1; reservationId <= 4; reservationId++) {
+            broadcaster.publish(delta(1L, reservationId));
+        }
+
+        assertTrue(slowEmitter.isCompleted());
+        assertEquals(1.0, meterRegistry.counter("reservation.availability.subscribers.dropped").count());
+        assertEquals(0.0, meterRegistry.get("reservation.availability.subscribers").gauge().value());
+    }
+
+    @Test
+    void subscriberWithinItsBufferStaysConnected() throws Exception {
+        var emitter = new RecordingSseEmitter();
+        var broadcaster = broadcaster(2, emitter);
+        broadcaster.subscribe(List.of(1L));
+
+        for (long reservationId = 1; reservationId <= 2; reservationId++) {
+            broadcaster.publish(delta(1L, reservationId));
+        }
+
+        assertEquals(2, emitter.awaitSent(AvailabilityDelta.class, 2).size());
+        assertEquals(1.0, meterRegistry.get("reservation.availability.subscribers").gauge().value());
+    }
+
+    private RoomAvailabilityBroadcaster broadcaster(int bufferSize, RecordingSseEmitter emitter) {
+        return new RoomAvailabilityBroadcaster(new ReservationMetrics(meterRegistry), meterRegistry, bufferSize,
+                () -> emitter);
+    }
+
+    private AvailabilityDelta delta(Long roomId, Long reservationId) {
+        return new AvailabilityDelta(roomId, DAY, DAY.plusDays(1), AvailabilityStatus.RESERVED, reservationId);
+    }
+}
@@ -0,0 +1,122 @@
+package rodionova.dev.reservation_system;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import rodionova.dev.reservation_system.reservations.Reservation;
+import rodionova.dev.reservation_system.reservations.ReservationMetrics;
+import rodionova.dev.reservation_system.reservations.ReservationStatus;
+import rodionova.dev.reservation_system.reservations.availability.RoomAvailabilityIndex;
+import rodionova.dev.reservation_system.reservations.availability.RoomAvailabilityIndexLoader;
+import rodionova.dev.reservation_system.reservations.outbox.ReservationEvent;
+import rodionova.dev.reservation_system.reservations.outbox.ReservationEventFeed;
+import rodionova.dev.reservation_system.reservations.outbox.ReservationEventType;
+import rodionova.dev.reservation_system.reservations.store.ReservationStore;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RoomAvailabilityIndexLoaderTest {
+
+    private static final LocalDate DAY = LocalDate.of(2030, 3, 1);
+
+    @TempDir
+    Path directory;
+
+    private ReservationStore store;
+
+    private ReservationEventFeed feed;
+
+    @BeforeEach
+    void setUp() {
+        store = mock(ReservationStore.class);
+        feed = mock(ReservationEventFeed.class);
+        when(store.findAllByStatus(ReservationStatus.APPROVED))
+                .thenReturn(List.of(approved(1L, 10L), approved(2L, 20L)));
+        when(feed.publishedAfter(anyLong(), anyInt())).thenReturn(List.of());
+        when(feed.unpublishedAfter(any(), anyInt())).thenReturn(List.of());
+        when(feed.lastPosition()).thenReturn(5L);
+        when(feed.firstPosition()).thenReturn(1L);
+        var first = new RoomAvailabilityIndex();
+        var loader = loader(first);
+        loader.afterSingletonsInstantiated();
+        loader.destroy();
+        assertEquals(2, first.size());
+    }
+
+    @Test
+    void restartReplaysOnlyTheEventsAfterTheSnapshot() {
+        when(feed.lastPosition()).thenReturn(7L);
+        when(feed.publishedAfter(eq(5L), anyInt())).thenReturn(List.of(
+                event(6, ReservationEventType.CANCELLED, withStatus(approved(1L, 10L), ReservationStatus.CANCELLED)),
+                event(7, ReservationEventType.APPROVED, approved(3L, 10L))));
+        when(feed.unpublishedAfter(eq(null), anyInt())).thenReturn(List.of(
+                event(0, ReservationEventType.DELETED, approved(2L, 20L))));
+
+        var index = new RoomAvailabilityIndex();
+        loader(index).afterSingletonsInstantiated();
+
+        assertEquals(1, index.size());
+        assertTrue(index.hasConflict(10L, DAY, DAY.plusDays(1)));
+        assertFalse(index.hasConflict(20L, DAY, DAY.plusDays(1)));
+        verify(store, times(1)).findAllByStatus(ReservationStatus.APPROVED);
+    }
+
+    @Test
+    void archivedApprovedReservationLeavesTheIndex() {
+        when(feed.lastPosition()).thenReturn(6L);
+        when(feed.publishedAfter(eq(5L), anyInt())).thenReturn(List.of(
+                event(6, ReservationEventType.ARCHIVED, approved(1L, 10L))));
+
+        var index = new RoomAvailabilityIndex();
+        loader(index).afterSingletonsInstantiated();
+
+        assertEquals(1, index.size());
+        assertFalse(index.hasConflict(10L, DAY, DAY.plusDays(1)));
+    }
+
+    @Test
+    void snapshotWhoseEventsWereCleanedUpIsReadFromTheStore() {
+        when(feed.lastPosition()).thenReturn(30L);
+        when(feed.firstPosition()).thenReturn(10L);
+
+        var index = new RoomAvailabilityIndex();
+        loader(index).afterSingletonsInstantiated();
+
+        assertEquals(2, index.size());
+        verify(store, times(2)).findAllByStatus(ReservationStatus.APPROVED);
+    }
+
+    private RoomAvailabilityIndexLoader loader(RoomAvailabilityIndex index) {
+        return new RoomAvailabilityIndexLoader(index, store, feed, new ReservationMetrics(new SimpleMeterRegistry()),
+                directory.resolve("availability-index.bin").toString());
+    }
+
+    private static Reservation approved(Long id, Long roomId) {
+        return new Reservation(id, 1L, roomId, DAY, DAY.plusDays(2), ReservationStatus.APPROVED, 1L);
+    }
+
+    private static Reservation withStatus(Reservation reservation, ReservationStatus status) {
+        return new Reservation(reservation.id(), reservation.userId(), reservation.roomId(),
+                reservation.startDate(), reservation.endDate(), status, reservation.version() + 1);
+    }
+
+    private static ReservationEvent event(long position, ReservationEventType type, Reservation reservation) {
+        return new ReservationEvent(position, position + 100, type, reservation.id(), reservation, Instant.now());
+    }
+}
@@ -0,0 +1,122 @@
+package rodionova.dev.reservation_system;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+import rodionova.dev.reservation_system.reservations.ReservationMetrics;
+import rodionova.dev.reservation_system.reservations.availability.ReservationAvalabilityService;
+import rodionova.dev.reservation_system.reservations.availability.RoomAvailabilityBroadcaster;
+import rodionova.dev.reservation_system.reservations.availability.RoomAvailabilityIndex;
+import rodionova.dev.reservation_system.reservations.replica.ReplicaReads;
+import rodionova.dev.reservation_system.reservations.store.ReservationStore;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class RoomAvailabilityIndexTest {
+
+    private static final LocalDate DAY = LocalDate.of(2030, 1, 1);
+
+    @Test
+    void detectsOverlapWithInclusiveBounds() {
+        var index = new RoomAvailabilityIndex();
+        index.add(1L, 10L, DAY.plusDays(5), DAY.plusDays(10));
+
+        assertTrue(index.hasConflict(10L, DAY.plusDays(10), DAY.plusDays(12)));
+        assertTrue(index.hasConflict(10L, DAY, DAY.plusDays(5)));
+        assertTrue(index.hasConflict(10L, DAY.plusDays(6), DAY.plusDays(7)));
+        assertFalse(index.hasConflict(10L, DAY.plusDays(11), DAY.plusDays(12)));
+        assertFalse(index.hasConflict(10L, DAY, DAY.plusDays(4)));
+        assertFalse(index.hasConflict(11L, DAY.plusDays(6), DAY.plusDays(7)));
+    }
+
+    @Test
+    void findsLongIntervalHiddenBehindLaterStarts() {
+        var index = new RoomAvailabilityIndex();
+        index.add(1L, 10L, DAY, DAY.plusDays(30));
+        index.add(2L, 10L, DAY.plusDays(2), DAY.plusDays(3));
+
+        assertTrue(index.hasConflict(10L, DAY.plusDays(20), DAY.plusDays(21)));
+    }
+
+    @Test
+    void removeAndReloadKeepIndexInSync() {
+        var index = new RoomAvailabilityIndex();
+        index.add(1L, 10L, DAY, DAY.plusDays(3));
+        index.remove(1L);
+        assertFalse(index.hasConflict(10L, DAY, DAY.plusDays(3)));
+        assertEquals(0, index.size());
+
+        index.load(List.of(
+                new RoomAvailabilityIndex.IndexedInterval(2L, 10L, DAY.plusDays(8), DAY.plusDays(9)),
+                new RoomAvailabilityIndex.IndexedInterval(3L, 10L, DAY, DAY.plusDays(1)),
+                new RoomAvailabilityIndex.IndexedInterval(4L, 20L, DAY, DAY.plusDays(1))));
+
+        assertEquals(3, index.size());
+        assertTrue(index.hasConflict(10L, DAY.plusDays(1), DAY.plusDays(2)));
+        assertFalse(index.hasConflict(10L, DAY.plusDays(2), DAY.plusDays(7)));
+        index.remove(2L);
+        assertFalse(index.hasConflict(10L, DAY.plusDays(8), DAY.plusDays(9)));
+    }
+
+    @Test
+    void concurrentMovesLeaveTheReservationInExactlyOneRoom() {
+        var index = new RoomAvailabilityIndex();
+        for (int round = 0; round < 200; round++) {
+            var toFirstRoom = CompletableFuture.runAsync(() -> {
+                for (int i = 0; i < 50; i++) {
+                    index.add(1L, 10L, DAY, DAY.plusDays(3));
+                }
+            });
+            var toSecondRoom = CompletableFuture.runAsync(() -> {
+                for (int i = 0; i < 50; i++) {
+                    index.add(1L, 20L, DAY, DAY.plusDays(3));
+                }
+            });
+            CompletableFuture.allOf(toFirstRoom, toSecondRoom).join();
+
+            assertEquals(1, index.size());
+            assertEquals(1, index.intervals().size());
+            assertTrue(index.hasConflict(10L, DAY, DAY.plusDays(3)) != index.hasConflict(20L, DAY, DAY.plusDays(3)));
+        }
+    }
+
+    @Test
+    void releasedIntervalLeavesTheIndexOnlyWhenTheTransactionCommits() {
+        var index = new RoomAvailabilityIndex();
+        var transactionManager = mock(PlatformTransactionManager.class);
+        var availabilityService = new ReservationAvalabilityService(mock(ReservationStore.class), index,
+                new ReservationMetrics(new SimpleMeterRegistry()), mock(RoomAvailabilityBroadcaster.class),
+                new ReplicaReads(transactionManager), true);
+        index.add(1L, 10L, DAY, DAY.plusDays(3));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            availabilityService.onApprovedReservationReleased(1L, 10L, DAY, DAY.plusDays(3));
+            assertTrue(index.hasConflict(10L, DAY, DAY.plusDays(3)));
+            TransactionSynchronizationUtils.invokeAfterCompletion(
+                    TransactionSynchronizationManager.getSynchronizations(), TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertTrue(index.hasConflict(10L, DAY, DAY.plusDays(3)));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            availabilityService.onApprovedReservationReleased(1L, 10L, DAY, DAY.plusDays(3));
+            TransactionSynchronizationUtils.triggerAfterCommit();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertFalse(index.hasConflict(10L, DAY, DAY.plusDays(3)));
+    }
+}
@@ -0,0 +1,148 @@
+package rodionova.dev.reservation_system;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+import rodionova.dev.reservation_system.reservations.Reservation;
+import rodionova.dev.reservation_system.reservations.ReservationStatus;
+import rodionova.dev.reservation_system.reservations.availability.DateInterval;
+import rodionova.dev.reservation_system.reservations.availability.RoomCalendar;
+import rodionova.dev.reservation_system.reservations.availability.RoomCalendarRequest;
+import rodionova.dev.reservation_system.reservations.availability.RoomCalendarService;
+import rodionova.dev.reservation_system.reservations.replica.ReplicaReads;
+import rodionova.dev.reservation_system.reservations.store.InMemoryReservationStore;
+import rodionova.dev.reservation_system.reservations.store.InMemoryTransactionManager;
+import rodionova.dev.reservation_system.reservations.store.ReservationStore;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RoomCalendarServiceTest {
+
+    private static final LocalDate DAY = LocalDate.of(2030, 7, 1);
+
+    private final List<Reservation> approved = new ArrayList<>();
+
+    private ReservationStore store;
+
+    private RoomCalendarService roomCalendarService;
+
+    @BeforeEach
+    void setUp() {
+        store = mock(ReservationStore.class);
+        when(store.findReservationsOverlapping(anyCollection(), any(), any(), any())).thenReturn(approved);
+        var transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        roomCalendarService = new RoomCalendarService(store, new ReplicaReads(transactionManager));
+    }
+
+    @Test
+    void sweepMergesOverlapsClipsToTheWindowAndListsTheGaps() {
+        // Unsorted on purpose: the store returns rows in no particular order
+        approve(1L, 8, 20);
+        approve(1L, 4, 6);
+        approve(1L, -3, 1);
+        approve(1L, 5, 5);
+        approve(1L, 3, 5);
+
+        var response = roomCalendarService.getCalendar(new RoomCalendarRequest(List.of(2L, 1L, 2L), DAY, DAY.plusDays(9)));
+
+        assertEquals(List.of(
+                        new RoomCalendar(2L, "0000000000", List.of(interval(0, 9))),
+                        new RoomCalendar(1L, "1101111011", List.of(interval(2, 2), interval(7, 7)))),
+                response.rooms());
+        verify(store).findReservationsOverlapping(Set.of(1L, 2L), DAY, DAY.plusDays(9), ReservationStatus.APPROVED);
+    }
+
+    @Test
+    void fullyBookedRoomHasNoFreeIntervals() {
+        approve(1L, -1, 2);
+        approve(1L, 2, 3);
+
+        var response = roomCalendarService.getCalendar(new RoomCalendarRequest(List.of(1L), DAY, DAY.plusDays(3)));
+
+        assertEquals(List.of(new RoomCalendar(1L, "1111", List.of())), response.rooms());
+    }
+
+    @Test
+    void acceptsUpTo500RoomsAnd366Days() {
+        var rooms = LongStream.rangeClosed(1, 500).boxed().toList();
+
+        var response = roomCalendarService.getCalendar(new RoomCalendarRequest(rooms, DAY, DAY.plusDays(365)));
+
+        assertEquals(500, response.rooms().size());
+        assertEquals(366, response.rooms().getFirst().occupancy().length());
+    }
+
+    @Test
+    void calendarShowsApprovalsOfItsOwnTransactionAndOnlyCommittedOnesOfOthers(@TempDir Path directory) throws IOException {
+        var memoryStore = new InMemoryReservationStore(new SimpleMeterRegistry(), directory.toString(), false);
+        try {
+            var transactionManager = new InMemoryTransactionManager();
+            var calendarService = new RoomCalendarService(memoryStore, new ReplicaReads(transactionManager));
+            var request = new RoomCalendarRequest(List.of(1L), DAY, DAY.plusDays(4));
+            memoryStore.insert(new Reservation(null, 1L, 1L, DAY, DAY.plusDays(1), ReservationStatus.APPROVED, null));
+
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                memoryStore.insert(new Reservation(null, 1L, 1L, DAY.plusDays(3), DAY.plusDays(4),
+                        ReservationStatus.APPROVED, null));
+                assertEquals("11011", calendarService.getCalendar(request).rooms().getFirst().occupancy());
+                assertEquals("11000", CompletableFuture.supplyAsync(() -> calendarService.getCalendar(request))
+                        .join().rooms().getFirst().occupancy());
+                status.setRollbackOnly();
+            });
+
+            assertEquals(List.of(new RoomCalendar(1L, "11000", List.of(interval(2, 4)))),
+                    calendarService.getCalendar(request).rooms());
+        } finally {
+            memoryStore.destroy();
+        }
+    }
+
+    @Test
+    void rejectsWindowsOutsideTheLimitsBeforeQuerying() {
+        var tooManyRooms = LongStream.rangeClosed(1, 501).boxed().toList();
+
+        assertEquals("Number of rooms should be between 1 and 500", assertThrows(IllegalArgumentException.class,
+                () -> roomCalendarService.getCalendar(new RoomCalendarRequest(tooManyRooms, DAY, DAY))).getMessage());
+        assertEquals("Number of rooms should be between 1 and 500", assertThrows(IllegalArgumentException.class,
+                () -> roomCalendarService.getCalendar(new RoomCalendarRequest(Arrays.asList((Long) null), DAY, DAY)))
+                .getMessage());
+        assertEquals("Calendar window should not be longer than 366 days", assertThrows(IllegalArgumentException.class,
+                () -> roomCalendarService.getCalendar(new RoomCalendarRequest(List.of(1L), DAY, DAY.plusDays(366))))
+                .getMessage());
+        assertEquals("Calendar end should not be before its start", assertThrows(IllegalArgumentException.class,
+                () -> roomCalendarService.getCalendar(new RoomCalendarRequest(List.of(1L), DAY, DAY.minusDays(1))))
+                .getMessage());
+        verify(store, never()).findReservationsOverlapping(anyCollection(), any(), any(), any());
+    }
+
+    private void approve(Long roomId, int fromDay, int toDay) {
+        approved.add(new Reservation((long) approved.size() + 1, 1L, roomId,
+                DAY.plusDays(fromDay), DAY.plusDays(toDay), ReservationStatus.APPROVED, 0L));
+    }
+
+    private static DateInterval interval(int fromDay, int toDay) {
+        return new DateInterval(DAY.plusDays(fromDay), DAY.plusDays(toDay));
+    }
+}
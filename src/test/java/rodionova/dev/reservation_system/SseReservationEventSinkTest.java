@@ -0,0 +1,80 @@
+package rodionova.dev.reservation_system;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+import rodionova.dev.reservation_system.reservations.Reservation;
+import rodionova.dev.reservation_system.reservations.ReservationMetrics;
+import rodionova.dev.reservation_system.reservations.ReservationStatus;
+import rodionova.dev.reservation_system.reservations.outbox.ReservationEvent;
+import rodionova.dev.reservation_system.reservations.outbox.ReservationEventType;
+import rodionova.dev.reservation_system.reservations.outbox.SseReservationEventSink;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class SseReservationEventSinkTest {
+
+    private static final LocalDate DAY = LocalDate.of(2030, 5, 1);
+
+    private final RecordingSseEmitter emitter = new RecordingSseEmitter();
+
+    // The mocked replay query finds no events, so the subscriber goes straight to live events
+    private final SseReservationEventSink sink = new SseReservationEventSink(mock(JdbcTemplate.class),
+            new ObjectMapper(), new ReservationMetrics(new SimpleMeterRegistry()), 10, () -> emitter);
+
+    @Test
+    void eventsOfABatchReachClientsOnlyWhenItCommits() throws Exception {
+        sink.subscribe(0);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            sink.publish(List.of(event(1), event(2)));
+            TransactionSynchronizationUtils.invokeAfterCompletion(
+                    TransactionSynchronizationManager.getSynchronizations(), TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        // The retried batch gives positions 1 and 2 to other events, which the client must still get
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            sink.publish(List.of(event(1, 30L), event(2, 40L)));
+            TransactionSynchronizationUtils.triggerAfterCommit();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        var sent = emitter.awaitSent(ReservationEvent.class, 2);
+        assertEquals(List.of(30L, 40L), sent.stream().map(ReservationEvent::reservationId).toList());
+    }
+
+    @Test
+    void subscriberAFullBufferBehindIsDisconnected() {
+        sink.subscribe(0);
+
+        sink.publish(LongStream.rangeClosed(1, 11).mapToObj(this::event).toList());
+
+        assertTrue(emitter.isCompleted());
+    }
+
+    private ReservationEvent event(long position) {
+        return event(position, position);
+    }
+
+    private ReservationEvent event(long position, Long reservationId) {
+        var reservation = new Reservation(reservationId, 1L, 1L, DAY, DAY.plusDays(1), ReservationStatus.PENDING, 0L);
+        return new ReservationEvent(position, position + 100, ReservationEventType.CREATED, reservationId,
+                reservation, Instant.now());
+    }
+}
@@ -0,0 +1,99 @@
+package rodionova.dev.reservation_system;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.AnnotationTransactionAttributeSource;
+import org.springframework.transaction.interceptor.TransactionInterceptor;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import rodionova.dev.reservation_system.reservations.ReservationMetrics;
+import rodionova.dev.reservation_system.reservations.ReservationService;
+import rodionova.dev.reservation_system.reservations.RoomLocks;
+import rodionova.dev.reservation_system.reservations.availability.ReservationAvalabilityService;
+import rodionova.dev.reservation_system.reservations.cache.NoOpReservationCacheTier;
+import rodionova.dev.reservation_system.reservations.cache.ReservationCache;
+import rodionova.dev.reservation_system.reservations.outbox.ReservationOutbox;
+import rodionova.dev.reservation_system.reservations.replica.ReplicaReads;
+import rodionova.dev.reservation_system.reservations.store.InMemoryTransactionManager;
+import rodionova.dev.reservation_system.reservations.store.ReservationStore;
+
+import java.time.Duration;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * {@link ReservationService} wired by hand around a store, with in-process room locks only. The availability
+ * service and the outbox are mocks and the cache is off unless a test gives its own. Its {@code @Transactional}
+ * methods run in transactions of the given manager, as behind the Spring proxy: {@link #withoutTransactions()} by
+ * default, or {@link InMemoryTransactionManager} for tests that need commits and rollbacks to happen.
+ */
+final class TestReservationServices {
+
+    private TestReservationServices() {
+    }
+
+    static Builder reservationService(ReservationStore store) {
+        return new Builder(store);
+    }
+
+    /**
+     * A manager whose transactions do nothing: each statement of the store stands on its own.
+     */
+    static PlatformTransactionManager withoutTransactions() {
+        var transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        return transactionManager;
+    }
+
+    static final class Builder {
+
+        private final ReservationStore store;
+
+        private ReservationAvalabilityService availabilityService = mock(ReservationAvalabilityService.class);
+
+        private ReservationOutbox outbox = mock(ReservationOutbox.class);
+
+        private ReservationCache cache = new ReservationCache(new NoOpReservationCacheTier(), new SimpleMeterRegistry(),
+                false, 0, Duration.ZERO);
+
+        private PlatformTransactionManager transactionManager = withoutTransactions();
+
+        private Builder(ReservationStore store) {
+            this.store = store;
+        }
+
+        Builder availabilityService(ReservationAvalabilityService availabilityService) {
+            this.availabilityService = availabilityService;
+            return this;
+        }
+
+        Builder outbox(ReservationOutbox outbox) {
+            this.outbox = outbox;
+            return this;
+        }
+
+        Builder cache(ReservationCache cache) {
+            this.cache = cache;
+            return this;
+        }
+
+        Builder transactionManager(PlatformTransactionManager transactionManager) {
+            this.transactionManager = transactionManager;
+            return this;
+        }
+
+        ReservationService build() {
+            var reservationService = new ReservationService(store, availabilityService,
+                    Validation.buildDefaultValidatorFactory().getValidator(), transactionManager,
+                    new RoomLocks(null, false), new ReservationMetrics(new SimpleMeterRegistry()), cache, outbox,
+                    new ReplicaReads(transactionManager));
+            var proxyFactory = new ProxyFactory(reservationService);
+            proxyFactory.setProxyTargetClass(true);
+            proxyFactory.addAdvice(new TransactionInterceptor(transactionManager, new AnnotationTransactionAttributeSource()));
+            return (ReservationService) proxyFactory.getProxy();
+        }
+    }
+}